@@ -12,9 +12,11 @@ import org.dei.perla.core.fpc.base.BaseFpcFactory;
 import org.dei.perla.core.message.MapperFactory;
 import org.dei.perla.core.registry.Registry;
 import org.dei.perla.core.registry.TreeRegistry;
+import org.dei.perla.core.utils.TimerWheel;
 
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A simple helper class employed to automatically setup the PerLa Middleware.
@@ -29,18 +31,23 @@ public final class PerLaSystem {
     private final DeviceDescriptorParser parser;
     private final FpcFactory factory;
     private final TreeRegistry registry;
+    private final TimerWheel timer;
 
     private final FactoryHandler fctHand = new FactoryHandler();
 
     /**
      * Creates a new {@code PerLaSystem} object configured with the required
-     * {@link Plugin}s.
+     * {@link Plugin}s. The {@code PerLaSystem} installs the
+     * {@link TimerWheel} that drives the timed activities of the
+     * middleware, which is stopped by the {@code stop()} method.
      *
      * @param plugins plugin objects to use in the PerLa installation
      *                (MapperFactory and ChannelPlugin)
      */
     public PerLaSystem(List<Plugin> plugins) {
         registry = new TreeRegistry();
+        timer = new TimerWheel(TimerWheel.DEFAULT_TICK, TimeUnit.MILLISECONDS);
+        TimerWheel.setDefault(timer);
 
         // Initialize default Device Descriptor packages
         Set<String> pkgs = new HashSet<>();
@@ -164,6 +171,15 @@ public final class PerLaSystem {
         return registry;
     }
 
+    /**
+     * Stops the {@link TimerWheel} installed by this {@code PerLaSystem},
+     * along with its execution pool. No timed activity is run after this
+     * method returns, hence the {@link Fpc}s should be stopped first.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
     /**
      * IOHandler for processing FPC Device Descriptors
      *
@@ -1,13 +1,16 @@
 package org.dei.perla.core.channel;
 
 import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.utils.Check;
 
+import java.util.Comparator;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>
@@ -17,7 +20,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * <p>
  * This {@code AbstractChannel} guarantees that all submitted requests are
- * performed sequentially in insertion order.
+ * performed sequentially. Pending requests are performed in order of
+ * {@link QosClass}, and in insertion order within the same
+ * {@link QosClass}.
  * </p>
  *
  * @author Guido Rota (2014)
@@ -27,8 +32,15 @@ public abstract class AbstractChannel implements Channel {
 
 	private final Logger log;
 
+	// Pending requests, ordered by QosClass and submission sequence number
+	private static final Comparator<FutureIOTask> order =
+			Comparator.<FutureIOTask, QosClass>comparing(t -> t.qos)
+					.thenComparingLong(t -> t.seq);
+
 	private final String id;
-	private final BlockingQueue<FutureIOTask> pending = new LinkedBlockingQueue<>();
+	private final AtomicLong sequence = new AtomicLong(0);
+	private final BlockingQueue<FutureIOTask> pending =
+			new PriorityBlockingQueue<>(11, order);
 	private volatile IOHandler asyncHandler = null;
 
 	// Coordination between threads achieved through CAS
@@ -63,11 +75,18 @@ public abstract class AbstractChannel implements Channel {
 	@Override
 	public IOTask submit(IORequest request, IOHandler handler)
 			throws ChannelException {
+		return submit(request, handler, QosClass.NORMAL);
+	}
+
+	@Override
+	public IOTask submit(IORequest request, IOHandler handler, QosClass qos)
+			throws ChannelException {
 		if (stopped.get()) {
 			throw new ChannelException(
                     "Cannot process IORequest: Channel is not running");
 		}
-		FutureIOTask task = new FutureIOTask(request, handler);
+		FutureIOTask task = new FutureIOTask(request, handler,
+				Check.notNull(qos, "qos"), sequence.getAndIncrement());
 
         // Mutual exclusion synchronization ensures, that the newly inserted
         // task cannot be run by the dispatcher thread before the submit call
@@ -204,10 +223,15 @@ public abstract class AbstractChannel implements Channel {
 
 		private final IORequest request;
 		private final IOHandler handler;
+		private final QosClass qos;
+		private final long seq;
 
-		public FutureIOTask(final IORequest request, final IOHandler handler) {
+		public FutureIOTask(final IORequest request, final IOHandler handler,
+				QosClass qos, long seq) {
 			this.request = request;
 			this.handler = handler;
+			this.qos = qos;
+			this.seq = seq;
 		}
 
 		public void run() throws InterruptedException {
@@ -1,5 +1,7 @@
 package org.dei.perla.core.channel;
 
+import org.dei.perla.core.fpc.QosClass;
+
 /**
  * <p>
  * An abstract communication channel between <code>FPC</code>s and physical
@@ -88,6 +90,32 @@ public interface Channel {
 	public IOTask submit(IORequest request, IOHandler handler)
 			throws ChannelException;
 
+	/**
+	 * Submits a new <code>IORequest</code> with the priority of the
+	 * {@link QosClass} passed as parameter. Requests of a higher
+	 * {@link QosClass} are performed before the pending requests of lower
+	 * ones. <code>Channel</code>s that do not support priorities perform
+	 * the request like any other.
+	 *
+	 * @param request
+	 *            <code>IORequest</code> to be performed by the Channel
+	 * @param handler
+	 *            <code>IOHandler</code> for asynchronous <code>Channel</code>
+	 *            management
+	 * @param qos
+	 *            {@link QosClass} of the request
+	 * @return An <code>IOTask</code> object that can be used to control the
+	 *         request execution and to retrieve the <code>Channel</code>
+	 *         response
+	 * @throws ChannelException
+	 *             If the <code>Channel</code> is unable to perform the
+	 *             <code>IORequest</code> being submitted (e.g., Channel closed)
+	 */
+	public default IOTask submit(IORequest request, IOHandler handler,
+			QosClass qos) throws ChannelException {
+		return submit(request, handler);
+	}
+
 	/**
 	 * <p>
 	 * Sets a <code>IOHandler</code> to be used by the <code>Channel</code> for
@@ -1,6 +1,7 @@
 package org.dei.perla.core.channel.simulator;
 
 import org.dei.perla.core.channel.simulator.GeneratorFieldDescriptor.GeneratorFieldStrategy;
+import org.dei.perla.core.utils.TimeSource;
 
 import java.time.Instant;
 
@@ -121,7 +122,7 @@ public abstract class DynamicFieldGenerator extends FieldGenerator {
 
         @Override
         public Instant generateValue() {
-            return Instant.now();
+            return TimeSource.getDefault().now();
         }
 
     }
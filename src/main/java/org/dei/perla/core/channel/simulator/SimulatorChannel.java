@@ -4,12 +4,12 @@ import org.dei.perla.core.channel.AbstractChannel;
 import org.dei.perla.core.channel.ChannelException;
 import org.dei.perla.core.channel.IORequest;
 import org.dei.perla.core.channel.Payload;
+import org.dei.perla.core.utils.PhasePolicy;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -128,8 +128,7 @@ import java.util.concurrent.TimeUnit;
 public class SimulatorChannel extends AbstractChannel {
 
     private final Generator[] generatorArray;
-    private ScheduledExecutorService exec = new ScheduledThreadPoolExecutor(1);
-    private Map<String, ScheduledFuture<?>> runningMap = new HashMap<>();
+    private Map<String, Timeout> runningMap = new HashMap<>();
 
     public SimulatorChannel(String id, Generator[] generatorArray) {
         super(id);
@@ -182,9 +181,9 @@ public class SimulatorChannel extends AbstractChannel {
                         "Simulator request '" + req.getId() + "'.");
             }
 
-            ScheduledFuture<?> future = runningMap.remove(req.getGeneratorId());
+            Timeout future = runningMap.remove(req.getGeneratorId());
             if (future != null) {
-                future.cancel(true);
+                future.cancel();
             }
 
             // Setting a period = 0 stops the simulator from periodically generating
@@ -193,12 +192,13 @@ public class SimulatorChannel extends AbstractChannel {
                 return;
             }
 
-            future = exec.scheduleAtFixedRate(() -> {
+            future = TimerWheel.getDefault().scheduleAtFixedRate(() -> {
                 synchronized (gen) {
                     Payload response = gen.generateResponse();
                     notifyAsyncData(response);
                 }
-            }, 0, period, TimeUnit.MILLISECONDS);
+            }, PhasePolicy.getDefault().initialDelay(period, 0), period,
+                    TimeUnit.MILLISECONDS);
 
             runningMap.put(req.getGeneratorId(), future);
         }
@@ -207,12 +207,10 @@ public class SimulatorChannel extends AbstractChannel {
     @Override
     public void close() {
         super.close();
-        for (ScheduledFuture<?> future : runningMap.values()) {
-            future.cancel(true);
+        for (Timeout future : runningMap.values()) {
+            future.cancel();
         }
-        exec.shutdownNow();
         runningMap = null;
-        exec = null;
     }
 
 }
@@ -23,6 +23,10 @@ public class PeriodicOperationDescriptor extends OperationDescriptor {
 	@XmlElementRef(name = "instruction")
 	private List<InstructionDescriptor> stop = new ArrayList<>();
 
+	@XmlElementWrapper(required = false)
+	@XmlElementRef(name = "instruction")
+	private List<InstructionDescriptor> change = new ArrayList<>();
+
 	@XmlElementRef
 	private List<OnReceiveDescriptor> on = new ArrayList<>();
 
@@ -34,6 +38,17 @@ public class PeriodicOperationDescriptor extends OperationDescriptor {
 		return stop;
 	}
 
+	/**
+	 * Returns the optional script used to change the sampling period while
+	 * the device is sampling.
+	 *
+	 * @return change script, empty if the sampling period can only be
+	 * changed by restarting the sampling activity
+	 */
+	public List<InstructionDescriptor> getChangeScript() {
+		return change;
+	}
+
 	public List<OnReceiveDescriptor> getOnReceiveList() {
 		return on;
 	}
@@ -2,11 +2,14 @@ package org.dei.perla.core.engine;
 
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.utils.Check;
 
 import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.ValueExpression;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -28,6 +31,14 @@ import java.util.concurrent.*;
  * suspension. {@link ScriptDebugger} and {@link ScriptHandler} are preserved
  * during suspension.
  *
+ * <p>
+ * {@link Script}s are run in separate execution lanes, one for every
+ * {@link QosClass}. Each lane has its own thread pool, so that
+ * {@link Script}s of a higher {@link QosClass} never wait for the threads
+ * employed by lower ones. The {@code BULK} lane is bounded, and queues the
+ * {@link Script}s exceeding its capacity. A suspended {@link Script} is
+ * resumed in the lane where it was started.
+ *
  *
  * @author Guido Rota (2014)
  *
@@ -43,21 +54,24 @@ public class Executor {
 
     private static final ExpressionFactory expFct = ExpressionFactory.newInstance();
 
-    private static final ExecutorService pool;
-    static {
-        // Custom thread naming pattern
-        pool = Executors.newCachedThreadPool(new ThreadFactory() {
-
-            private final ThreadFactory fct = Executors.defaultThreadFactory();
-
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = fct.newThread(r);
-                t.setName("Executor_" + t.getName());
-                return t;
-            }
+    // Maximum number of threads running BULK Scripts
+    private static final int BULK_THREADS =
+            Math.max(2, Runtime.getRuntime().availableProcessors());
 
-        });
+    private static final Map<QosClass, ExecutorService> lanes =
+            new EnumMap<>(QosClass.class);
+    static {
+        lanes.put(QosClass.CRITICAL, Executors.newCachedThreadPool(
+                new LaneThreadFactory("Executor_critical_",
+                        Thread.MAX_PRIORITY)));
+        lanes.put(QosClass.NORMAL, Executors.newCachedThreadPool(
+                new LaneThreadFactory("Executor_", Thread.NORM_PRIORITY)));
+        ThreadPoolExecutor bulk = new ThreadPoolExecutor(BULK_THREADS,
+                BULK_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new LaneThreadFactory("Executor_bulk_", Thread.MIN_PRIORITY));
+        bulk.allowCoreThreadTimeOut(true);
+        lanes.put(QosClass.BULK, bulk);
     }
 
     /**
@@ -75,11 +89,17 @@ public class Executor {
     public static synchronized void shutdown(int timeoutSec)
             throws InterruptedException {
         running = false;
-        pool.shutdown();
-        boolean terminated = pool.awaitTermination(timeoutSec, TimeUnit.SECONDS);
+        lanes.values().forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(timeoutSec);
+        boolean terminated = true;
+        for (ExecutorService pool : lanes.values()) {
+            terminated &= pool.awaitTermination(
+                    deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
         if (!terminated) {
             log.info("Termination timeout expired, attempting to interrupt lingering Scripts");
-            pool.shutdownNow();
+            lanes.values().forEach(ExecutorService::shutdownNow);
         }
     }
 
@@ -107,7 +127,8 @@ public class Executor {
      *         execution
      */
     public static Runner execute(Script script, ScriptHandler handler) {
-        return execute(script, EMPTY_PARAMETER_ARRAY, handler, null);
+        return execute(script, EMPTY_PARAMETER_ARRAY, handler, null,
+                QosClass.NORMAL);
     }
 
     /**
@@ -127,7 +148,30 @@ public class Executor {
      */
     public static Runner execute(Script script, ScriptParameter[] paramArray,
             ScriptHandler handler) {
-        return execute(script, paramArray, handler, null);
+        return execute(script, paramArray, handler, null, QosClass.NORMAL);
+    }
+
+    /**
+     * Runs a {@link Script} with a {@link ScriptHandler} attached in the
+     * execution lane of the {@link QosClass} passed as parameter. The
+     * {@link ScriptHandler} is invoked when the {@link Script} is
+     * terminated, normally or abnormally.
+     *
+     * @param script
+     *            {@link Script} to execute
+     * @param paramArray
+     *            Array of parameters to pass to the {@link Script}
+     * @param handler
+     *            {@link ScriptHandler} to be invoke upon {@link Script}
+     *            termination.
+     * @param qos
+     *            {@link QosClass} of the execution
+     * @return {@link Runner} object for controlling {@link Script}
+     *         execution
+     */
+    public static Runner execute(Script script, ScriptParameter[] paramArray,
+            ScriptHandler handler, QosClass qos) {
+        return execute(script, paramArray, handler, null, qos);
     }
 
     /**
@@ -149,8 +193,15 @@ public class Executor {
      * @return {@link Runner} object for controlling {@link Script}
      *         execution
      */
-    public static synchronized Runner execute(Script script, ScriptParameter[]
+    public static Runner execute(Script script, ScriptParameter[]
         paramArray, ScriptHandler handler, ScriptDebugger debugger) {
+        return execute(script, paramArray, handler, debugger,
+                QosClass.NORMAL);
+    }
+
+    private static synchronized Runner execute(Script script,
+            ScriptParameter[] paramArray, ScriptHandler handler,
+            ScriptDebugger debugger, QosClass qos) {
         if (!running) {
             throw new RejectedExecutionException(
                     "Cannot start, Executor has been stopped");
@@ -161,9 +212,10 @@ public class Executor {
         script = Check.notNull(script, "script");
         paramArray = Check.notNull(paramArray, "paramArray");
         handler = Check.notNull(handler, "handler");
+        qos = Check.notNull(qos, "qos");
 
-        Runner runner = new Runner(script, paramArray, handler, debugger);
-        pool.submit(runner::execute);
+        Runner runner = new Runner(script, paramArray, handler, debugger, qos);
+        lanes.get(qos).submit(runner::execute);
         return runner;
     }
 
@@ -180,7 +232,7 @@ public class Executor {
                     "Cannot start, Executor has been stopped");
         }
         log.debug("Resuming script '" + runner.getScript().getName() + "'");
-        pool.submit(runner::resume);
+        lanes.get(runner.getQos()).submit(runner::resume);
     }
 
     /**
@@ -235,4 +287,29 @@ public class Executor {
         }
     }
 
+    /**
+     * Thread factory of an execution lane, with custom thread naming pattern
+     * and priority
+     */
+    private static final class LaneThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory fct = Executors.defaultThreadFactory();
+        private final String prefix;
+        private final int priority;
+
+        private LaneThreadFactory(String prefix, int priority) {
+            this.prefix = prefix;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = fct.newThread(r);
+            t.setName(prefix + t.getName());
+            t.setPriority(priority);
+            return t;
+        }
+
+    }
+
 }
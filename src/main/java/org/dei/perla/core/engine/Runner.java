@@ -1,6 +1,7 @@
 package org.dei.perla.core.engine;
 
 import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.QosClass;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -44,6 +45,7 @@ public class Runner {
     private final Script script;
     private final ScriptHandler handler;
     private final ScriptDebugger debugger;
+    private final QosClass qos;
     private Instruction instruction; // Program counter
     private volatile boolean breakpoint;
     private int state;
@@ -53,9 +55,15 @@ public class Runner {
 
     protected Runner(Script script, ScriptParameter[] params,
             ScriptHandler handler, ScriptDebugger debugger) {
+        this(script, params, handler, debugger, QosClass.NORMAL);
+    }
+
+    protected Runner(Script script, ScriptParameter[] params,
+            ScriptHandler handler, ScriptDebugger debugger, QosClass qos) {
         this.script = script;
         this.handler = handler;
         this.debugger = debugger;
+        this.qos = qos;
 
         this.breakpoint = false;
         this.ctx = getContext();
@@ -67,6 +75,16 @@ public class Runner {
         return script;
     }
 
+    /**
+     * Returns the {@link QosClass} of the execution lane running the
+     * {@link Script}.
+     *
+     * @return {@link QosClass} of the {@link Script} execution
+     */
+    public QosClass getQos() {
+        return qos;
+    }
+
     /**
      * Returns an {@link ExecutionContext} taken from a pool of unused
      * contexts. The {@link ExecutionContext} object is cleared of all
@@ -106,7 +106,7 @@ public class SubmitInstruction implements Instruction {
 				channelError = cause;
 				Executor.resume(runner);
 			}
-		});
+		}, runner.getQos());
 	}
 
 	private IORequest createRequest(Runner runner, IORequestBuilder builder)
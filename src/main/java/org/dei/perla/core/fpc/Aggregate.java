@@ -0,0 +1,71 @@
+package org.dei.perla.core.fpc;
+
+/**
+ * Aggregation functions that can be computed by the PerLa core over a
+ * {@link Window} of {@link Sample}s.
+ */
+public enum Aggregate {
+
+    /**
+     * Arithmetic mean of the values in the window, of {@code FLOAT} type.
+     */
+    AVG,
+
+    /**
+     * Minimum value in the window, of the same type of the aggregated
+     * {@link Attribute}.
+     */
+    MIN,
+
+    /**
+     * Maximum value in the window, of the same type of the aggregated
+     * {@link Attribute}.
+     */
+    MAX,
+
+    /**
+     * Sum of the values in the window, of {@code FLOAT} type.
+     */
+    SUM,
+
+    /**
+     * Number of non-null values in the window, of {@code INTEGER} type.
+     */
+    COUNT,
+
+    /**
+     * Most recent value in the window, of the same type of the aggregated
+     * {@link Attribute}.
+     */
+    LAST;
+
+    /**
+     * Returns the identifier of the {@link Attribute} containing the result
+     * of this aggregation function (e.g., {@code avg_temperature}).
+     *
+     * @param attId identifier of the aggregated {@link Attribute}
+     * @return identifier of the aggregate {@link Attribute}
+     */
+    public String resultId(String attId) {
+        return name().toLowerCase() + "_" + attId;
+    }
+
+    /**
+     * Returns the type of the result of this aggregation function.
+     *
+     * @param type type of the aggregated {@link Attribute}
+     * @return type of the aggregate {@link Attribute}
+     */
+    public DataType resultType(DataType type) {
+        switch (this) {
+            case AVG:
+            case SUM:
+                return DataType.FLOAT;
+            case COUNT:
+                return DataType.INTEGER;
+            default:
+                return type;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.dei.perla.core.fpc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A {@link TaskHandler} capable of receiving several {@link Sample}s in a
+ * single invocation. Consumers whose processing cost is dominated by a
+ * per-call overhead (e.g., database inserts, network writes) can use this
+ * interface to amortize such cost over multiple {@link Sample}s.
+ *
+ * <p>
+ * Batch size and maximum batching delay are configured through the
+ * {@link TaskOptions} passed to the {@link Fpc}. When no batching options
+ * are specified, every {@link Sample} is delivered as a batch of one.
+ */
+public interface BatchTaskHandler extends TaskHandler {
+
+    /**
+     * Invoked when a new batch of {@link Sample}s is ready. {@link Sample}s
+     * are ordered by creation time.
+     *
+     * @param task {@link Task} that produced the new samples
+     * @param samples new samples, never empty
+     */
+    public void data(Task task, List<Sample> samples);
+
+    @Override
+    public default void data(Task task, Sample sample) {
+        data(task, Collections.singletonList(sample));
+    }
+
+}
@@ -0,0 +1,184 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.utils.Check;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An immutable change-only reporting policy for a {@link Task}. A
+ * {@link Task} with a {@code Deadband} only reports a new {@link Sample}
+ * when at least one of the monitored {@link Attribute}s differs from the
+ * last reported value by more than its threshold. An optional heartbeat
+ * forces the delivery of a {@link Sample} after a given number of
+ * consecutive suppressions.
+ *
+ * <p>
+ * Thresholds can be absolute (e.g., 0.5 degrees) or relative to the last
+ * reported value (e.g., 0.05 for a 5% change). Changes to or from a missing
+ * value are always reported.
+ *
+ * <p>
+ * New {@code Deadband} objects are created using a {@link Builder}, which
+ * can be obtained through the {@code Deadband.newBuilder()} method.
+ */
+public final class Deadband {
+
+    private final List<Threshold> thresholds;
+    private final int heartbeat;
+
+    private Deadband(Builder b) {
+        this.thresholds = Collections.unmodifiableList(
+                new ArrayList<>(b.thresholds));
+        this.heartbeat = b.heartbeat;
+    }
+
+    /**
+     * Creates a new {@link Builder} for {@code Deadband} objects.
+     *
+     * @return new {@link Builder} instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the thresholds of the monitored {@link Attribute}s.
+     *
+     * @return list of thresholds
+     */
+    public List<Threshold> getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * Returns the maximum number of consecutive {@link Sample}s that can be
+     * suppressed before a {@link Sample} is reported regardless of its
+     * value.
+     *
+     * @return heartbeat interval, expressed in number of samples. Zero if
+     * no heartbeat is required.
+     */
+    public int getHeartbeat() {
+        return heartbeat;
+    }
+
+
+    /**
+     * Change threshold of a single {@link Attribute}.
+     */
+    public static final class Threshold {
+
+        private final String attributeId;
+        private final double value;
+        private final boolean relative;
+
+        private Threshold(String attributeId, double value,
+                boolean relative) {
+            this.attributeId = attributeId;
+            this.value = value;
+            this.relative = relative;
+        }
+
+        /**
+         * Returns the identifier of the monitored {@link Attribute}.
+         *
+         * @return monitored {@link Attribute} identifier
+         */
+        public String getAttributeId() {
+            return attributeId;
+        }
+
+        /**
+         * Returns the threshold value.
+         *
+         * @return threshold value
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * Indicates if the threshold is relative to the last reported value.
+         *
+         * @return true if the threshold is relative, false if absolute
+         */
+        public boolean isRelative() {
+            return relative;
+        }
+
+    }
+
+
+    /**
+     * Builder class for {@link Deadband} objects.
+     */
+    public static final class Builder {
+
+        private final List<Threshold> thresholds = new ArrayList<>();
+        private int heartbeat = 0;
+
+        private Builder() { }
+
+        /**
+         * Monitors a numeric {@link Attribute} with an absolute threshold.
+         *
+         * @param attributeId identifier of the monitored {@link Attribute}
+         * @param delta minimum absolute change to report
+         * @return this {@code Builder}
+         */
+        public Builder absolute(String attributeId, double delta) {
+            Check.notNull(attributeId, "attributeId");
+            Check.argument(delta >= 0, "Deadband threshold cannot be negative");
+            thresholds.add(new Threshold(attributeId, delta, false));
+            return this;
+        }
+
+        /**
+         * Monitors a numeric {@link Attribute} with a threshold relative to
+         * the last reported value.
+         *
+         * @param attributeId identifier of the monitored {@link Attribute}
+         * @param ratio minimum relative change to report (e.g., 0.05 for 5%)
+         * @return this {@code Builder}
+         */
+        public Builder relative(String attributeId, double ratio) {
+            Check.notNull(attributeId, "attributeId");
+            Check.argument(ratio >= 0, "Deadband threshold cannot be negative");
+            thresholds.add(new Threshold(attributeId, ratio, true));
+            return this;
+        }
+
+        /**
+         * Forces the delivery of a {@link Sample} after {@code samples}
+         * consecutive suppressions.
+         *
+         * @param samples heartbeat interval, expressed in number of samples
+         * @return this {@code Builder}
+         */
+        public Builder heartbeat(int samples) {
+            Check.argument(samples > 0,
+                    "Heartbeat interval must be greater than zero");
+            this.heartbeat = samples;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link Deadband} object.
+         *
+         * @return new {@link Deadband} instance
+         * @throws IllegalStateException if no threshold was specified
+         */
+        public Deadband build() throws IllegalStateException {
+            if (thresholds.isEmpty()) {
+                throw new IllegalStateException(
+                        "A deadband requires at least one threshold");
+            }
+            return new Deadband(this);
+        }
+
+    }
+
+}
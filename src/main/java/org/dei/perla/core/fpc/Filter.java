@@ -0,0 +1,353 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.utils.Check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * An immutable predicate over the {@link Attribute}s sampled by a
+ * {@link Task}. A {@link Task} with a {@code Filter} only delivers the
+ * {@link Sample}s that satisfy the predicate, for instance:
+ *
+ * <pre>
+ * Filter f = Filter.and(
+ *         Filter.gt("temperature", 40),
+ *         Filter.eq("room", "kitchen"));
+ * </pre>
+ *
+ * <p>
+ * {@code Filter}s are compiled once, when the {@link Task} is created,
+ * into an evaluator that operates directly on the raw values produced by
+ * the device. Comparisons involving a missing value are always false.
+ */
+public abstract class Filter {
+
+    private Filter() { }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of a numeric
+     * {@link Attribute} is greater than a constant.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter gt(String attributeId, double value) {
+        return new Compare(attributeId, Op.GT, value);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of a numeric
+     * {@link Attribute} is greater than or equal to a constant.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter ge(String attributeId, double value) {
+        return new Compare(attributeId, Op.GE, value);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of a numeric
+     * {@link Attribute} is less than a constant.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter lt(String attributeId, double value) {
+        return new Compare(attributeId, Op.LT, value);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of a numeric
+     * {@link Attribute} is less than or equal to a constant.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter le(String attributeId, double value) {
+        return new Compare(attributeId, Op.LE, value);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of an
+     * {@link Attribute} is equal to a constant. Numeric values are compared
+     * by value, regardless of their Java type.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter eq(String attributeId, Object value) {
+        return new Equals(attributeId, Check.notNull(value, "value"), false);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the value of an
+     * {@link Attribute} is present and different from a constant.
+     *
+     * @param attributeId {@link Attribute} identifier
+     * @param value constant value
+     * @return new {@code Filter}
+     */
+    public static Filter ne(String attributeId, Object value) {
+        return new Equals(attributeId, Check.notNull(value, "value"), true);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when all the {@code Filter}s passed
+     * as parameter are satisfied.
+     *
+     * @param filters {@code Filter}s to combine
+     * @return new {@code Filter}
+     */
+    public static Filter and(Filter... filters) {
+        return new Junction(Arrays.asList(filters), true);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when at least one of the
+     * {@code Filter}s passed as parameter is satisfied.
+     *
+     * @param filters {@code Filter}s to combine
+     * @return new {@code Filter}
+     */
+    public static Filter or(Filter... filters) {
+        return new Junction(Arrays.asList(filters), false);
+    }
+
+    /**
+     * Creates a {@code Filter} satisfied when the {@code Filter} passed as
+     * parameter is not satisfied.
+     *
+     * @param filter {@code Filter} to negate
+     * @return new {@code Filter}
+     */
+    public static Filter not(Filter filter) {
+        return new Not(Check.notNull(filter, "filter"));
+    }
+
+    /**
+     * Compiles this {@code Filter} into an evaluator for the raw values of
+     * a sample. All {@link Attribute} references are resolved to array
+     * positions during compilation.
+     *
+     * @param atts {@link Attribute}s of the values to evaluate, in order
+     * @return compiled evaluator
+     * @throws IllegalArgumentException if the {@code Filter} references an
+     * {@link Attribute} that is not available, or if a numeric comparison
+     * is applied to a non-numeric {@link Attribute}
+     */
+    public abstract Predicate<Object[]> compile(List<Attribute> atts)
+            throws IllegalArgumentException;
+
+    private static int indexOf(List<Attribute> atts, String id) {
+        for (int i = 0; i < atts.size(); i++) {
+            if (atts.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Cannot filter on attribute '" +
+                id + "', attribute is not sampled by the task");
+    }
+
+    private enum Op {
+        GT(">"), GE(">="), LT("<"), LE("<=");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+
+    /**
+     * Comparison between a numeric {@link Attribute} and a constant
+     */
+    private static final class Compare extends Filter {
+
+        private final String id;
+        private final Op op;
+        private final double value;
+
+        private Compare(String id, Op op, double value) {
+            this.id = Check.notNull(id, "attributeId");
+            this.op = op;
+            this.value = value;
+        }
+
+        @Override
+        public Predicate<Object[]> compile(List<Attribute> atts) {
+            int i = indexOf(atts, id);
+            if (!DataType.NUMERIC.match(atts.get(i).getType())) {
+                throw new IllegalArgumentException("Cannot compare " +
+                        "non-numeric attribute '" + id + "'");
+            }
+
+            final double v = value;
+            switch (op) {
+                case GT:
+                    return r -> r[i] != null &&
+                            ((Number) r[i]).doubleValue() > v;
+                case GE:
+                    return r -> r[i] != null &&
+                            ((Number) r[i]).doubleValue() >= v;
+                case LT:
+                    return r -> r[i] != null &&
+                            ((Number) r[i]).doubleValue() < v;
+                default:
+                    return r -> r[i] != null &&
+                            ((Number) r[i]).doubleValue() <= v;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + op.symbol + " " + value;
+        }
+
+    }
+
+
+    /**
+     * Equality comparison between an {@link Attribute} and a constant
+     */
+    private static final class Equals extends Filter {
+
+        private final String id;
+        private final Object value;
+        private final boolean negate;
+
+        private Equals(String id, Object value, boolean negate) {
+            this.id = Check.notNull(id, "attributeId");
+            this.value = value;
+            this.negate = negate;
+        }
+
+        @Override
+        public Predicate<Object[]> compile(List<Attribute> atts) {
+            int i = indexOf(atts, id);
+            final boolean neg = negate;
+            if (value instanceof Number &&
+                    DataType.NUMERIC.match(atts.get(i).getType())) {
+                final double v = ((Number) value).doubleValue();
+                return r -> r[i] != null &&
+                        (((Number) r[i]).doubleValue() == v) != neg;
+            }
+
+            final Object v = value;
+            return r -> r[i] != null && v.equals(r[i]) != neg;
+        }
+
+        @Override
+        public String toString() {
+            return id + (negate ? " != " : " = ") + value;
+        }
+
+    }
+
+
+    /**
+     * Conjunction or disjunction of several {@code Filter}s
+     */
+    private static final class Junction extends Filter {
+
+        private final List<Filter> filters;
+        private final boolean and;
+
+        private Junction(List<Filter> filters, boolean and) {
+            Check.argument(!filters.isEmpty(), "Filter list cannot be empty");
+            for (Filter f : filters) {
+                Check.notNull(f, "filter");
+            }
+            this.filters = Collections.unmodifiableList(
+                    new ArrayList<>(filters));
+            this.and = and;
+        }
+
+        @Override
+        public Predicate<Object[]> compile(List<Attribute> atts) {
+            // Generic arrays cannot be created directly; the array is only
+            // filled with Predicate<Object[]> and never escapes this method
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Predicate<Object[]>[] ps = new Predicate[filters.size()];
+            for (int i = 0; i < ps.length; i++) {
+                ps[i] = filters.get(i).compile(atts);
+            }
+
+            if (ps.length == 1) {
+                return ps[0];
+            } else if (ps.length == 2) {
+                Predicate<Object[]> p0 = ps[0];
+                Predicate<Object[]> p1 = ps[1];
+                return and ? r -> p0.test(r) && p1.test(r) :
+                        r -> p0.test(r) || p1.test(r);
+            } else if (and) {
+                return r -> {
+                    for (Predicate<Object[]> p : ps) {
+                        if (!p.test(r)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            } else {
+                return r -> {
+                    for (Predicate<Object[]> p : ps) {
+                        if (p.test(r)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder("(");
+            for (int i = 0; i < filters.size(); i++) {
+                if (i > 0) {
+                    b.append(and ? " AND " : " OR ");
+                }
+                b.append(filters.get(i));
+            }
+            return b.append(")").toString();
+        }
+
+    }
+
+
+    /**
+     * Negation of a {@code Filter}
+     */
+    private static final class Not extends Filter {
+
+        private final Filter filter;
+
+        private Not(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public Predicate<Object[]> compile(List<Attribute> atts) {
+            return filter.compile(atts).negate();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + filter;
+        }
+
+    }
+
+}
@@ -82,7 +82,31 @@ public interface Fpc {
      *                the arrival of the data requested
      * @return {@link Task} object corresponding to the get operation
      */
-    public Task get(List<Attribute> atts, boolean strict, TaskHandler handler);
+    public default Task get(List<Attribute> atts, boolean strict,
+            TaskHandler handler) {
+        return get(atts, strict, TaskOptions.DEFAULT, handler);
+    }
+
+    /**
+     * Performs a single-shot sampling operation.
+     *
+     * @param atts attributes to be sampled
+     * @param strict strict scheduling policy flag. If set to true the
+     *               operation will be run only if the {@code Fpc} can
+     *               collect all the attributes requested by the user. If set
+     *               to false, the operation will be run as long as the
+     *               {@code Fpc} can collect at least one of the requested
+     *               attributes.
+     * @param opts additional {@link Task} options
+     * @param handler completion handler used by the {@code Fpc} to notify
+     *                the arrival of the data requested
+     * @return {@link Task} object corresponding to the get operation
+     * @throws IllegalArgumentException if the {@link TaskOptions} cannot be
+     * applied to the request, e.g. if processing stages are requested for
+     * attributes whose value is static
+     */
+    public Task get(List<Attribute> atts, boolean strict, TaskOptions opts,
+            TaskHandler handler);
 
     /**
      * Performs a single-shot sampling operation with non-strict scheduling
@@ -97,6 +121,45 @@ public interface Fpc {
         return get(atts, false, handler);
     }
 
+    /**
+     * Performs a single-shot sampling operation with non-strict scheduling
+     * policy, which is answered using the values recently sampled by other
+     * tasks if all of them are younger than {@code maxAge}. The device is
+     * sampled otherwise.
+     *
+     * @param atts attributes to be sampled
+     * @param maxAge maximum age of the values
+     * @param handler completion handler used by the {@code Fpc} to notify
+     *                the arrival of the data requested
+     * @return {@link Task} object corresponding to the get operation
+     */
+    public default Task getCached(List<Attribute> atts, Duration maxAge,
+            TaskHandler handler) {
+        TaskOptions opts = TaskOptions.newBuilder()
+                .maxAge(maxAge.toMillis()).build();
+        return get(atts, false, opts, handler);
+    }
+
+    /**
+     * Performs a periodic sampling operation.
+     *
+     * @param atts attributes to be sampled
+     * @param strict strict scheduling policy flag. If set to true the
+     *               operation will be run only if the {@code Fpc} can
+     *               collect all the attributes requested by the user. If set
+     *               to false, the operation will be run as long as the
+     *               {@code Fpc} can collect at least one of the requested
+     *               attributes.
+     * @param periodMs sampling period in milliseconds
+     * @param handler completion handler used by the {@code Fpc} to notify
+     *                the arrival of the data requested
+     * @return {@link Task} object corresponding to the get operation
+     */
+    public default Task get(List<Attribute> atts, boolean strict,
+            long periodMs, TaskHandler handler) {
+        return get(atts, strict, periodMs, TaskOptions.DEFAULT, handler);
+    }
+
     /**
      * Performs a periodic sampling operation.
      *
@@ -108,12 +171,16 @@ public interface Fpc {
      *               {@code Fpc} can collect at least one of the requested
      *               attributes.
      * @param periodMs sampling period in milliseconds
+     * @param opts additional {@link Task} options
      * @param handler completion handler used by the {@code Fpc} to notify
      *                the arrival of the data requested
      * @return {@link Task} object corresponding to the get operation
+     * @throws IllegalArgumentException if the {@link TaskOptions} cannot be
+     * applied to the request, e.g. if processing stages are requested for
+     * attributes whose value is static
      */
     public Task get(List<Attribute> atts, boolean strict, long periodMs,
-            TaskHandler handler);
+            TaskOptions opts, TaskHandler handler);
 
     /**
      * Performs a periodic sampling operation.
@@ -179,7 +246,27 @@ public interface Fpc {
      *                the occurrence of the desired events
      * @return {@link Task} object corresponding to the async operation
      */
-    public Task async(List<Attribute> atts, boolean strict,
+    public default Task async(List<Attribute> atts, boolean strict,
+            TaskHandler handler) {
+        return async(atts, strict, TaskOptions.DEFAULT, handler);
+    }
+
+    /**
+     * Starts an async request for a list of events.
+     *
+     * @param atts events
+     * @param strict strict scheduling policy flag. If set to true the
+     *               operation will be run only if the {@code Fpc} can
+     *               collect all the attributes requested by the user. If set
+     *               to false, the operation will be run as long as the
+     *               {@code Fpc} can collect at least one of the requested
+     *               attributes.
+     * @param opts additional {@link Task} options
+     * @param handler completion handler used by the {@code Fpc} to notify
+     *                the occurrence of the desired events
+     * @return {@link Task} object corresponding to the async operation
+     */
+    public Task async(List<Attribute> atts, boolean strict, TaskOptions opts,
             TaskHandler handler);
 
     /**
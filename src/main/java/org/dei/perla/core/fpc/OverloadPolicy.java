@@ -0,0 +1,32 @@
+package org.dei.perla.core.fpc;
+
+/**
+ * Policy applied by a {@link Task} delivery queue when new {@link Sample}s
+ * are produced faster than the {@link TaskHandler} is able to consume them.
+ */
+public enum OverloadPolicy {
+
+    /**
+     * The producer waits until there is room in the queue. Sampling is
+     * slowed down to match the speed of the {@link TaskHandler}.
+     */
+    BLOCK,
+
+    /**
+     * New {@link Sample}s are discarded when the queue is full.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest {@link Sample} in the queue is discarded to make room for
+     * the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Only the most recent {@link Sample} is kept, all pending
+     * {@link Sample}s are discarded whenever a new one is produced.
+     */
+    LATEST
+
+}
@@ -0,0 +1,48 @@
+package org.dei.perla.core.fpc;
+
+/**
+ * <p>
+ * Quality of service class of a {@link Task}, requested through the
+ * {@link TaskOptions} of the {@link Task}.
+ *
+ * <p>
+ * Every {@code QosClass} is served by a separate execution lane: the
+ * {@code Script}s run on behalf of a {@link Task} are executed by a thread
+ * pool reserved to its {@code QosClass}, and the I/O requests they submit
+ * are queued in the {@code Channel} according to their priority. Work of a
+ * higher {@code QosClass} never waits behind the work of a lower one.
+ *
+ * <p>
+ * {@code QosClass}es are declared in decreasing order of priority.
+ */
+public enum QosClass {
+
+    /**
+     * Latency-critical {@link Task}s (e.g., alarms), always served first.
+     */
+    CRITICAL,
+
+    /**
+     * Default {@code QosClass}.
+     */
+    NORMAL,
+
+    /**
+     * Throughput-oriented {@link Task}s (e.g., archiving), served by a
+     * bounded pool of threads after all other work.
+     */
+    BULK;
+
+    /**
+     * Indicates if this {@code QosClass} has a higher priority than the
+     * one passed as parameter.
+     *
+     * @param o {@code QosClass} to compare
+     * @return true if this {@code QosClass} has a higher priority, false
+     * otherwise
+     */
+    public boolean isHigherThan(QosClass o) {
+        return compareTo(o) < 0;
+    }
+
+}
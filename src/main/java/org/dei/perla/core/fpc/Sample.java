@@ -1,20 +1,40 @@
 package org.dei.perla.core.fpc;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 /**
  * A container of of {@link Attribute} values generated by the PerLa system.
  *
+ * <p>
+ * The list of fields contained in a {@code Sample} is described by a shared
+ * {@link SampleSchema}, which also provides constant time lookup of the
+ * field values by name.
+ *
  * @author Guido Rota (2014)
  */
 public final class Sample {
 
-    private final List<Attribute> fields;
+    private final SampleSchema schema;
     private final Object[] values;
 
+    /**
+     * Creates a new sample with the desired schema and field values.
+     *
+     * <p>
+     * The caller must ensure that there is a one-to-one positional
+     * correspondance between the attributes inside the {@code schema} and
+     * their values in the {@code values} array.
+     *
+     * @param schema schema of the sample
+     * @param values values of the fields
+     */
+    public Sample(SampleSchema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
     /**
      * Creates a new sample with the desired fields and field values.
      *
@@ -28,12 +48,17 @@ public final class Sample {
      * ensure that the {@code fields} list does not contain 2 attributes with
      * the same name.
      *
+     * <p>
+     * This constructor creates a new {@link SampleSchema} at every
+     * invocation. Components that create several samples with the same
+     * fields should obtain the {@link SampleSchema} once and use the
+     * {@code Sample(SampleSchema, Object[])} constructor instead.
+     *
      * @param fields list of fields that compose the sample
      * @param values values of the fields
      */
     public Sample(List<Attribute> fields, Object[] values) {
-        this.fields = Collections.unmodifiableList(fields);
-        this.values = values;
+        this(SampleSchema.of(fields), values);
     }
 
     /**
@@ -56,24 +81,17 @@ public final class Sample {
             i++;
         }
 
-        return new Sample(Arrays.asList(fields), values);
+        return new Sample(SampleSchema.of(Arrays.asList(fields)), values);
     }
 
     /**
-     * Returns the index of the given field
+     * Returns the {@link SampleSchema} describing the fields of this
+     * {@link Sample}.
      *
-     * @param name field name
-     * @return index of the field
+     * @return schema of the {@link Sample}
      */
-    private int getIndex(String name) {
-        int idx = 0;
-        for (Attribute a : fields) {
-            if (a.getId().equals(name)) {
-                return idx;
-            }
-            idx++;
-        }
-        return -1;
+    public SampleSchema getSchema() {
+        return schema;
     }
 
 	/**
@@ -83,7 +101,7 @@ public final class Sample {
 	 * @return true if the sample contains the field, false otherwise
 	 */
 	public boolean hasField(String name) {
-        return getIndex(name) != -1;
+        return schema.indexOf(name) != -1;
     }
 
     /**
@@ -96,7 +114,7 @@ public final class Sample {
      * @return list of all fields contained in the {@link Sample}
      */
     public List<Attribute> fields() {
-        return fields;
+        return schema.getAttributes();
     }
 
 	/**
@@ -116,7 +134,7 @@ public final class Sample {
 	 * @return field value
 	 */
 	public Object getValue(String name) {
-        int idx = getIndex(name);
+        int idx = schema.indexOf(name);
         if (idx == -1) {
             return null;
         }
@@ -130,11 +148,11 @@ public final class Sample {
      * @return field value
      */
     public DataType getType(String name) {
-        int idx = getIndex(name);
+        int idx = schema.indexOf(name);
         if (idx == -1) {
             return null;
         }
-        return fields.get(idx).getType();
+        return schema.get(idx).getType();
     }
 
 	/**
@@ -144,7 +162,7 @@ public final class Sample {
 	 *         otherwise
 	 */
 	public boolean isEmpty() {
-        return fields.isEmpty();
+        return schema.size() == 0;
     }
 
 }
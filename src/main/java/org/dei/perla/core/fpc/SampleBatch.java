@@ -0,0 +1,429 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.utils.Check;
+import org.dei.perla.core.utils.TimeSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A columnar container of {@link Sample}s sharing the same
+ * {@link SampleSchema}. Field values are stored in primitive arrays
+ * selected according to the {@link DataType} of each {@link Attribute}:
+ *
+ * <ul>
+ *     <li>{@code ID} and {@code INTEGER}: {@code int[]}</li>
+ *     <li>{@code FLOAT}: {@code float[]}</li>
+ *     <li>{@code TIMESTAMP}: {@code long[]}, nanoseconds since the epoch</li>
+ *     <li>{@code BOOLEAN}: bitset</li>
+ *     <li>{@code STRING} and any other type: {@code Object[]}</li>
+ * </ul>
+ *
+ * <p>
+ * Consumers that need to process large amounts of data can access the
+ * column arrays directly, thus avoiding the allocation of a boxed object for
+ * every field of every {@link Sample}. Missing values are tracked in a
+ * separate null bitset, and are stored as zero (or false) in the primitive
+ * columns.
+ *
+ * <p>
+ * {@code SampleBatch} objects are not thread safe.
+ */
+public final class SampleBatch {
+
+    private static final int INT = 0;
+    private static final int FLOAT = 1;
+    private static final int TIMESTAMP = 2;
+    private static final int BOOLEAN = 3;
+    private static final int OBJECT = 4;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final SampleSchema schema;
+    private final int[] kinds;
+    private final Object[] columns;
+    private final long[][] nulls;
+
+    private int capacity;
+    private int size = 0;
+
+    /**
+     * Creates a new empty {@code SampleBatch}.
+     *
+     * @param schema schema of the {@link Sample}s stored in the batch
+     * @param capacity initial capacity of the batch. The batch grows
+     *                 automatically when more {@link Sample}s are appended.
+     */
+    public SampleBatch(SampleSchema schema, int capacity) {
+        Check.notNull(schema, "schema");
+        Check.argument(capacity >= 0, "Capacity cannot be negative");
+        this.schema = schema;
+        this.capacity = capacity;
+
+        int n = schema.size();
+        kinds = new int[n];
+        columns = new Object[n];
+        nulls = new long[n][];
+        for (int i = 0; i < n; i++) {
+            kinds[i] = kindOf(schema.get(i).getType());
+            columns[i] = newColumn(kinds[i], capacity);
+            nulls[i] = new long[words(capacity)];
+        }
+    }
+
+    /**
+     * Creates a new {@code SampleBatch} containing the {@link Sample}s
+     * passed as parameter. All {@link Sample}s must have the same
+     * {@link SampleSchema}.
+     *
+     * @param samples {@link Sample}s to convert, must not be empty
+     * @return new {@code SampleBatch}
+     * @throws IllegalArgumentException if the list is empty or if the
+     * {@link Sample}s do not share the same {@link SampleSchema}
+     */
+    public static SampleBatch of(List<Sample> samples)
+            throws IllegalArgumentException {
+        Check.argument(!samples.isEmpty(), "Sample list cannot be empty");
+        SampleBatch b = new SampleBatch(samples.get(0).getSchema(),
+                samples.size());
+        for (Sample s : samples) {
+            b.append(s);
+        }
+        return b;
+    }
+
+    private static int kindOf(DataType type) {
+        if (type == DataType.ID || type == DataType.INTEGER) {
+            return INT;
+        } else if (type == DataType.FLOAT) {
+            return FLOAT;
+        } else if (type == DataType.TIMESTAMP) {
+            return TIMESTAMP;
+        } else if (type == DataType.BOOLEAN) {
+            return BOOLEAN;
+        } else {
+            return OBJECT;
+        }
+    }
+
+    private static Object newColumn(int kind, int capacity) {
+        switch (kind) {
+            case INT:
+                return new int[capacity];
+            case FLOAT:
+                return new float[capacity];
+            case TIMESTAMP:
+                return new long[capacity];
+            case BOOLEAN:
+                return new long[words(capacity)];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+    private static Object growColumn(int kind, Object col, int capacity) {
+        switch (kind) {
+            case INT:
+                return Arrays.copyOf((int[]) col, capacity);
+            case FLOAT:
+                return Arrays.copyOf((float[]) col, capacity);
+            case TIMESTAMP:
+                return Arrays.copyOf((long[]) col, capacity);
+            case BOOLEAN:
+                return Arrays.copyOf((long[]) col, words(capacity));
+            default:
+                return Arrays.copyOf((Object[]) col, capacity);
+        }
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean getBit(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void setBit(long[] bits, int i, boolean value) {
+        if (value) {
+            bits[i >>> 6] |= 1L << i;
+        } else {
+            bits[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    /**
+     * Returns the {@link SampleSchema} of the {@link Sample}s stored in this
+     * {@code SampleBatch}.
+     *
+     * @return schema of the batch
+     */
+    public SampleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the number of {@link Sample}s stored in this
+     * {@code SampleBatch}.
+     *
+     * @return number of rows in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates if this {@code SampleBatch} is empty.
+     *
+     * @return true if the batch does not contain any {@link Sample}
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all {@link Sample}s from this {@code SampleBatch}. The column
+     * arrays are retained and reused by successive appends.
+     */
+    public void clear() {
+        for (long[] n : nulls) {
+            Arrays.fill(n, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * Appends a new row to this {@code SampleBatch}. The caller must ensure
+     * that there is a one-to-one positional correspondance between the
+     * attributes of the {@link SampleSchema} and the values passed as
+     * parameter.
+     *
+     * @param values field values of the new row
+     */
+    public void append(Object[] values) {
+        if (size == capacity) {
+            grow();
+        }
+        int row = size;
+        for (int i = 0; i < kinds.length; i++) {
+            Object v = values[i];
+            setBit(nulls[i], row, v == null);
+            switch (kinds[i]) {
+                case INT:
+                    ((int[]) columns[i])[row] =
+                            v == null ? 0 : ((Number) v).intValue();
+                    break;
+                case FLOAT:
+                    ((float[]) columns[i])[row] =
+                            v == null ? 0 : ((Number) v).floatValue();
+                    break;
+                case TIMESTAMP:
+                    ((long[]) columns[i])[row] = v == null ? 0 :
+                            TimeSource.toEpochNanos((Instant) v);
+                    break;
+                case BOOLEAN:
+                    setBit((long[]) columns[i], row,
+                            v != null && (Boolean) v);
+                    break;
+                default:
+                    ((Object[]) columns[i])[row] = v;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Appends a {@link Sample} to this {@code SampleBatch}.
+     *
+     * @param s {@link Sample} to append
+     * @throws IllegalArgumentException if the {@link SampleSchema} of the
+     * {@link Sample} differs from the schema of the batch
+     */
+    public void append(Sample s) throws IllegalArgumentException {
+        Check.argument(s.getSchema().equals(schema),
+                "Sample schema does not match batch schema");
+        append(s.values());
+    }
+
+    private void grow() {
+        int newCap = Math.max(DEFAULT_CAPACITY, capacity * 2);
+        for (int i = 0; i < kinds.length; i++) {
+            columns[i] = growColumn(kinds[i], columns[i], newCap);
+            nulls[i] = Arrays.copyOf(nulls[i], words(newCap));
+        }
+        capacity = newCap;
+    }
+
+    private Object column(int col, int kind, String type) {
+        if (kinds[col] != kind) {
+            throw new IllegalArgumentException("Field '" +
+                    schema.get(col).getId() + "' is not of " + type + " type");
+        }
+        return columns[col];
+    }
+
+    /**
+     * Indicates if the value of a field is missing.
+     *
+     * @param col field position
+     * @param row row index
+     * @return true if the field value is null, false otherwise
+     */
+    public boolean isNull(int col, int row) {
+        return getBit(nulls[col], row);
+    }
+
+    /**
+     * Returns the column of an {@code ID} or {@code INTEGER} field. Only the
+     * first {@code size()} elements of the array are valid.
+     *
+     * @param col field position
+     * @return backing array of the column
+     * @throws IllegalArgumentException if the field is not an integer
+     */
+    public int[] intColumn(int col) throws IllegalArgumentException {
+        return (int[]) column(col, INT, "integer");
+    }
+
+    /**
+     * Returns the column of a {@code FLOAT} field. Only the first
+     * {@code size()} elements of the array are valid.
+     *
+     * @param col field position
+     * @return backing array of the column
+     * @throws IllegalArgumentException if the field is not a float
+     */
+    public float[] floatColumn(int col) throws IllegalArgumentException {
+        return (float[]) column(col, FLOAT, "float");
+    }
+
+    /**
+     * Returns the column of a {@code TIMESTAMP} field, expressed in
+     * nanoseconds since the epoch. Only the first {@code size()} elements
+     * of the array are valid.
+     *
+     * @param col field position
+     * @return backing array of the column
+     * @throws IllegalArgumentException if the field is not a timestamp
+     */
+    public long[] timestampColumn(int col) throws IllegalArgumentException {
+        return (long[]) column(col, TIMESTAMP, "timestamp");
+    }
+
+    /**
+     * Returns the value of an {@code ID} or {@code INTEGER} field.
+     *
+     * @param col field position
+     * @param row row index
+     * @return field value, 0 if the value is missing
+     * @throws IllegalArgumentException if the field is not an integer
+     */
+    public int getInt(int col, int row) throws IllegalArgumentException {
+        return intColumn(col)[row];
+    }
+
+    /**
+     * Returns the value of a {@code FLOAT} field.
+     *
+     * @param col field position
+     * @param row row index
+     * @return field value, 0 if the value is missing
+     * @throws IllegalArgumentException if the field is not a float
+     */
+    public float getFloat(int col, int row) throws IllegalArgumentException {
+        return floatColumn(col)[row];
+    }
+
+    /**
+     * Returns the value of a {@code TIMESTAMP} field, expressed in
+     * nanoseconds since the epoch.
+     *
+     * @param col field position
+     * @param row row index
+     * @return field value, 0 if the value is missing
+     * @throws IllegalArgumentException if the field is not a timestamp
+     */
+    public long getTimestamp(int col, int row)
+            throws IllegalArgumentException {
+        return timestampColumn(col)[row];
+    }
+
+    /**
+     * Returns the value of a {@code BOOLEAN} field.
+     *
+     * @param col field position
+     * @param row row index
+     * @return field value, false if the value is missing
+     * @throws IllegalArgumentException if the field is not a boolean
+     */
+    public boolean getBoolean(int col, int row)
+            throws IllegalArgumentException {
+        return getBit((long[]) column(col, BOOLEAN, "boolean"), row);
+    }
+
+    /**
+     * Returns the boxed value of a field. Values of {@code TIMESTAMP}
+     * fields are returned as {@link Instant} objects.
+     *
+     * @param col field position
+     * @param row row index
+     * @return field value, null if the value is missing
+     */
+    public Object getValue(int col, int row) {
+        if (isNull(col, row)) {
+            return null;
+        }
+        switch (kinds[col]) {
+            case INT:
+                return ((int[]) columns[col])[row];
+            case FLOAT:
+                return ((float[]) columns[col])[row];
+            case TIMESTAMP:
+                return TimeSource.fromEpochNanos(((long[]) columns[col])[row]);
+            case BOOLEAN:
+                return getBit((long[]) columns[col], row);
+            default:
+                return ((Object[]) columns[col])[row];
+        }
+    }
+
+    /**
+     * Converts a row of this {@code SampleBatch} into a {@link Sample}.
+     *
+     * @param row row index
+     * @return new {@link Sample} containing the values of the row
+     */
+    public Sample getSample(int row) {
+        Check.argument(row >= 0 && row < size, "Invalid row index " + row);
+        Object[] values = new Object[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            values[i] = getValue(i, row);
+        }
+        return new Sample(schema, values);
+    }
+
+    /**
+     * Converts the contents of this {@code SampleBatch} into a list of
+     * {@link Sample}s.
+     *
+     * @return {@link Sample}s stored in the batch
+     */
+    public List<Sample> toSamples() {
+        List<Sample> samples = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            samples.add(getSample(i));
+        }
+        return Collections.unmodifiableList(samples);
+    }
+
+    @Override
+    public String toString() {
+        return "SampleBatch[" + schema.getAttributes() + ", size=" +
+                size + "]";
+    }
+
+}
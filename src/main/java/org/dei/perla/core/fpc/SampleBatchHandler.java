@@ -0,0 +1,33 @@
+package org.dei.perla.core.fpc;
+
+/**
+ * <p>
+ * A {@link TaskHandler} that receives the data produced by a {@link Task} in
+ * columnar form. {@link Sample}s are accumulated in a {@link SampleBatch},
+ * whose primitive columns can be processed without boxing each field value.
+ *
+ * <p>
+ * Batch size and maximum batching delay are configured through the
+ * {@link TaskOptions} passed to the {@link Fpc}. When no batching options
+ * are specified, every {@link Sample} is delivered as a batch of one.
+ */
+public interface SampleBatchHandler extends TaskHandler {
+
+    /**
+     * Invoked when a new batch of {@link Sample}s is ready. Rows are
+     * ordered by creation time. The {@link SampleBatch} is owned by the
+     * handler, and is not reused by the {@link Task}.
+     *
+     * @param task {@link Task} that produced the new samples
+     * @param batch new samples, never empty
+     */
+    public void data(Task task, SampleBatch batch);
+
+    @Override
+    public default void data(Task task, Sample sample) {
+        SampleBatch b = new SampleBatch(sample.getSchema(), 1);
+        b.append(sample);
+        data(task, b);
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.dei.perla.core.fpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An immutable description of the fields contained in a {@link Sample}.
+ * {@code SampleSchema} objects are shared by all the {@link Sample}s that
+ * contain the same list of {@link Attribute}s, and provide constant time
+ * lookup of field positions by name.
+ *
+ * <p>
+ * {@code SampleSchema} objects are not interned. Components that produce
+ * {@link Sample}s (e.g., a {@code SamplePipeline}) create their
+ * {@code SampleSchema} once, and share it among all the {@link Sample}s they
+ * produce. Two {@code SampleSchema}s are equal if they describe the same
+ * list of {@link Attribute}s.
+ */
+public final class SampleSchema {
+
+    public static final SampleSchema EMPTY =
+            new SampleSchema(Collections.emptyList());
+
+    private final List<Attribute> atts;
+
+    // Open addressing hash table, maps attribute ids to field positions
+    private final String[] keys;
+    private final int[] index;
+    private final int mask;
+
+    private SampleSchema(List<Attribute> atts) {
+        this.atts = atts;
+
+        int cap = 2;
+        while (cap < atts.size() * 2) {
+            cap <<= 1;
+        }
+        keys = new String[cap];
+        index = new int[cap];
+        mask = cap - 1;
+
+        for (int i = 0; i < atts.size(); i++) {
+            String id = atts.get(i).getId();
+            int slot = id.hashCode() & mask;
+            while (keys[slot] != null && !keys[slot].equals(id)) {
+                slot = (slot + 1) & mask;
+            }
+            // Duplicate ids are resolved in favour of the first occurrence
+            if (keys[slot] == null) {
+                keys[slot] = id;
+                index[slot] = i;
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@code SampleSchema} describing the list of
+     * {@link Attribute}s passed as parameter. The shared {@code EMPTY}
+     * schema is returned for an empty list.
+     *
+     * @param atts {@link Attribute}s contained in the {@link Sample}
+     * @return {@code SampleSchema} for the {@link Attribute} list
+     */
+    public static SampleSchema of(List<Attribute> atts) {
+        if (atts.isEmpty()) {
+            return EMPTY;
+        }
+        return new SampleSchema(
+                Collections.unmodifiableList(new ArrayList<>(atts)));
+    }
+
+    /**
+     * Returns the list of {@link Attribute}s described by this
+     * {@code SampleSchema}.
+     *
+     * @return {@link Attribute}s contained in the {@link Sample}
+     */
+    public List<Attribute> getAttributes() {
+        return atts;
+    }
+
+    /**
+     * Returns the number of fields described by this {@code SampleSchema}.
+     *
+     * @return number of fields
+     */
+    public int size() {
+        return atts.size();
+    }
+
+    /**
+     * Returns the position of the field passed as parameter.
+     *
+     * @param name field name
+     * @return position of the field, -1 if the field is not present
+     */
+    public int indexOf(String name) {
+        int slot = name.hashCode() & mask;
+        String k;
+        while ((k = keys[slot]) != null) {
+            if (k.equals(name)) {
+                return index[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the {@link Attribute} at the specified position.
+     *
+     * @param idx field position
+     * @return {@link Attribute} at the specified position
+     */
+    public Attribute get(int idx) {
+        return atts.get(idx);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof SampleSchema)) {
+            return false;
+        }
+        return atts.equals(((SampleSchema) o).atts);
+    }
+
+    @Override
+    public int hashCode() {
+        return atts.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SampleSchema" + atts;
+    }
+
+}
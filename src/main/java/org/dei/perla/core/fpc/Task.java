@@ -40,4 +40,28 @@ public interface Task {
 	 */
 	public void stop();
 
+	/**
+	 * Returns the number of {@link Sample}s produced by the {@code Task}
+	 * that are still waiting to be delivered to the {@link TaskHandler}.
+	 * This value is always zero for {@code Task}s that do not employ a
+	 * delivery queue (see {@link TaskOptions}).
+	 *
+	 * @return number of {@link Sample}s waiting for delivery
+	 */
+	public default int getQueueSize() {
+		return 0;
+	}
+
+	/**
+	 * Returns the number of {@link Sample}s discarded by the delivery queue
+	 * of this {@code Task} due to its {@link OverloadPolicy}. This value is
+	 * always zero for {@code Task}s that do not employ a delivery queue
+	 * (see {@link TaskOptions}).
+	 *
+	 * @return number of {@link Sample}s discarded
+	 */
+	public default long getDroppedCount() {
+		return 0;
+	}
+
 }
@@ -0,0 +1,408 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.utils.Check;
+
+/**
+ * An immutable set of optional parameters that can be used to customize the
+ * behaviour of a {@link Task} created by an {@link Fpc}.
+ *
+ * <p>
+ * New {@code TaskOptions} objects are created using a {@link Builder},
+ * which can be obtained through the {@code TaskOptions.newBuilder()}
+ * method.
+ */
+public final class TaskOptions {
+
+    /**
+     * Default options: {@link Sample}s are delivered synchronously, directly
+     * from the thread that produced them.
+     */
+    public static final TaskOptions DEFAULT = newBuilder().build();
+
+    private final int queueCapacity;
+    private final OverloadPolicy overloadPolicy;
+    private final int batchSize;
+    private final long batchDelay;
+    private final Window window;
+    private final Deadband deadband;
+    private final Filter filter;
+    private final long maxAge;
+    private final long maxPeriod;
+    private final double tolerance;
+    private final QosClass qos;
+
+    private TaskOptions(Builder b) {
+        this.queueCapacity = b.queueCapacity;
+        this.overloadPolicy = b.overloadPolicy;
+        this.batchSize = b.batchSize;
+        this.batchDelay = b.batchDelay;
+        this.window = b.window;
+        this.deadband = b.deadband;
+        this.filter = b.filter;
+        this.maxAge = b.maxAge;
+        this.maxPeriod = b.maxPeriod;
+        this.tolerance = b.tolerance;
+        this.qos = b.qos;
+    }
+
+    /**
+     * Creates a new {@link Builder} for {@code TaskOptions} objects.
+     *
+     * @return new {@link Builder} instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Indicates if the {@link Task} must employ a bounded delivery queue to
+     * decouple the production of new {@link Sample}s from their delivery to
+     * the {@link TaskHandler}.
+     *
+     * @return true if a delivery queue is requested, false otherwise
+     */
+    public boolean isQueued() {
+        return queueCapacity > 0;
+    }
+
+    /**
+     * Returns the capacity of the delivery queue. A capacity of zero
+     * indicates that {@link Sample}s are delivered synchronously.
+     *
+     * @return maximum number of {@link Sample}s waiting for delivery
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the policy applied when the delivery queue is full.
+     *
+     * @return delivery queue {@link OverloadPolicy}
+     */
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    /**
+     * Indicates if {@link Sample}s must be delivered in batches. Batch
+     * delivery requires a {@link BatchTaskHandler}.
+     *
+     * @return true if batch delivery is requested, false otherwise
+     */
+    public boolean isBatched() {
+        return batchSize > 0;
+    }
+
+    /**
+     * Returns the maximum number of {@link Sample}s in a batch.
+     *
+     * @return maximum batch size, zero if batching is disabled
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the maximum time, in milliseconds, that a {@link Sample} can
+     * wait before its batch is delivered. A value of zero indicates that
+     * batches are delivered only when full.
+     *
+     * @return maximum batching delay in milliseconds
+     */
+    public long getBatchDelay() {
+        return batchDelay;
+    }
+
+    /**
+     * Indicates if the {@link Sample}s must be aggregated over a time-based
+     * {@link Window}.
+     *
+     * @return true if windowed aggregation is requested, false otherwise
+     */
+    public boolean isWindowed() {
+        return window != null;
+    }
+
+    /**
+     * Returns the {@link Window} over which the {@link Sample}s are
+     * aggregated.
+     *
+     * @return aggregation {@link Window}, null if no aggregation is
+     * requested
+     */
+    public Window getWindow() {
+        return window;
+    }
+
+    /**
+     * Indicates if the {@link Task} must only report {@link Sample}s whose
+     * values differ from the last reported ones.
+     *
+     * @return true if change-only reporting is requested, false otherwise
+     */
+    public boolean hasDeadband() {
+        return deadband != null;
+    }
+
+    /**
+     * Returns the change-only reporting policy.
+     *
+     * @return {@link Deadband} policy, null if every {@link Sample} has to
+     * be reported
+     */
+    public Deadband getDeadband() {
+        return deadband;
+    }
+
+    /**
+     * Indicates if the {@link Task} must only deliver the {@link Sample}s
+     * satisfying a {@link Filter}.
+     *
+     * @return true if a {@link Filter} is requested, false otherwise
+     */
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    /**
+     * Returns the {@link Filter} applied to the {@link Sample}s.
+     *
+     * @return {@link Filter} predicate, null if every {@link Sample} has to
+     * be delivered
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Indicates if the {@link Task} may be answered using recently sampled
+     * values instead of querying the device.
+     *
+     * @return true if cached values are accepted, false otherwise
+     */
+    public boolean acceptsCached() {
+        return maxAge >= 0;
+    }
+
+    /**
+     * Returns the maximum age of the cached values that can be used to
+     * answer the {@link Task}.
+     *
+     * @return maximum age in milliseconds, -1 if cached values are not
+     * accepted
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Indicates if the sampling period of the {@link Task} may be adapted
+     * to the dynamics of the sampled values.
+     *
+     * @return true if adaptive sampling is requested, false otherwise
+     */
+    public boolean isAdaptive() {
+        return maxPeriod > 0;
+    }
+
+    /**
+     * Returns the maximum sampling period of an adaptive {@link Task}.
+     *
+     * @return maximum sampling period in milliseconds, zero if adaptive
+     * sampling is disabled
+     */
+    public long getMaxPeriod() {
+        return maxPeriod;
+    }
+
+    /**
+     * Returns the maximum error tolerated by an adaptive {@link Task} when
+     * predicting the sampled values.
+     *
+     * @return error tolerance, in the unit of the sampled values
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Returns the {@link QosClass} of the {@link Task}.
+     *
+     * @return {@link QosClass} of the {@link Task}
+     */
+    public QosClass getQos() {
+        return qos;
+    }
+
+    /**
+     * Builder class for {@link TaskOptions} objects.
+     */
+    public static final class Builder {
+
+        private int queueCapacity = 0;
+        private OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+        private int batchSize = 0;
+        private long batchDelay = 0;
+        private Window window = null;
+        private Deadband deadband = null;
+        private Filter filter = null;
+        private long maxAge = -1;
+        private long maxPeriod = 0;
+        private double tolerance = 0;
+        private QosClass qos = QosClass.NORMAL;
+
+        private Builder() { }
+
+        /**
+         * Requests a bounded delivery queue. {@link Sample}s produced by the
+         * {@link Task} are relayed to the {@link TaskHandler} by a dedicated
+         * dispatcher, thus preventing a slow {@link TaskHandler} from
+         * stalling the sampling activity.
+         *
+         * @param capacity maximum number of {@link Sample}s waiting for
+         *                 delivery
+         * @param policy policy applied when the queue is full
+         * @return this {@code Builder}
+         */
+        public Builder queue(int capacity, OverloadPolicy policy) {
+            Check.argument(capacity > 0,
+                    "Queue capacity must be greater than zero");
+            this.queueCapacity = capacity;
+            this.overloadPolicy = Check.notNull(policy, "policy");
+            return this;
+        }
+
+        /**
+         * Requests batch delivery of the {@link Sample}s. A batch is
+         * delivered to the {@link BatchTaskHandler} as soon as it contains
+         * {@code size} {@link Sample}s, or when {@code maxDelayMs}
+         * milliseconds have elapsed since the arrival of its first
+         * {@link Sample}.
+         *
+         * @param size maximum number of {@link Sample}s in a batch
+         * @param maxDelayMs maximum batching delay in milliseconds, zero
+         *                   to deliver batches only when full
+         * @return this {@code Builder}
+         */
+        public Builder batch(int size, long maxDelayMs) {
+            Check.argument(size > 0,
+                    "Batch size must be greater than zero");
+            Check.argument(maxDelayMs >= 0,
+                    "Batch delay cannot be negative");
+            this.batchSize = size;
+            this.batchDelay = maxDelayMs;
+            return this;
+        }
+
+        /**
+         * Requests the aggregation of the {@link Sample}s over a time-based
+         * {@link Window}. The {@link Task} delivers a single {@link Sample}
+         * per window instead of every {@link Sample} produced by the
+         * device. Windowed aggregation is only available for periodic and
+         * asynchronous requests.
+         *
+         * @param window aggregation {@link Window}
+         * @return this {@code Builder}
+         */
+        public Builder window(Window window) {
+            this.window = Check.notNull(window, "window");
+            return this;
+        }
+
+        /**
+         * Requests change-only reporting. The {@link Task} only reports the
+         * {@link Sample}s whose monitored {@link Attribute}s changed by more
+         * than the {@link Deadband} thresholds. Change-only reporting is
+         * only available for periodic and asynchronous requests.
+         *
+         * @param deadband change-only reporting policy
+         * @return this {@code Builder}
+         */
+        public Builder deadband(Deadband deadband) {
+            this.deadband = Check.notNull(deadband, "deadband");
+            return this;
+        }
+
+        /**
+         * Requests the delivery of the {@link Sample}s that satisfy a
+         * {@link Filter}. The {@link Filter} may only reference
+         * {@link Attribute}s sampled from the device.
+         *
+         * @param filter {@link Filter} predicate
+         * @return this {@code Builder}
+         */
+        public Builder filter(Filter filter) {
+            this.filter = Check.notNull(filter, "filter");
+            return this;
+        }
+
+        /**
+         * Allows the {@link Task} to be answered with the most recent values
+         * sampled by any other {@link Task} of the same {@link Fpc}, as long
+         * as all the requested {@link Attribute}s were sampled less than
+         * {@code maxAgeMs} milliseconds ago. The device is queried when a
+         * value is missing or too old. Cached answers are only available
+         * for one-off requests.
+         *
+         * @param maxAgeMs maximum age of the cached values, in milliseconds
+         * @return this {@code Builder}
+         */
+        public Builder maxAge(long maxAgeMs) {
+            Check.argument(maxAgeMs >= 0, "Maximum age cannot be negative");
+            this.maxAge = maxAgeMs;
+            return this;
+        }
+
+        /**
+         * Requests adaptive sampling. The sampling period is lengthened,
+         * up to {@code maxPeriodMs} milliseconds, while the numeric
+         * {@link Attribute}s requested by the user vary slowly enough to be
+         * predicted within {@code tolerance}, and is brought back to the
+         * requested period as soon as the prediction error exceeds the
+         * tolerance. Adaptive sampling is only available for periodic
+         * requests.
+         *
+         * @param maxPeriodMs maximum sampling period in milliseconds, must
+         *                    not be shorter than the requested period
+         * @param tolerance maximum prediction error, in the unit of the
+         *                  sampled values
+         * @return this {@code Builder}
+         */
+        public Builder adaptive(long maxPeriodMs, double tolerance) {
+            Check.argument(maxPeriodMs > 0,
+                    "Maximum sampling period must be greater than zero");
+            Check.argument(tolerance >= 0,
+                    "Error tolerance cannot be negative");
+            this.maxPeriod = maxPeriodMs;
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Sets the {@link QosClass} of the {@link Task}. The {@code Script}s
+         * and I/O requests executed on behalf of the {@link Task} are
+         * scheduled according to the priority of its {@link QosClass}.
+         * Defaults to {@code QosClass.NORMAL}.
+         *
+         * @param qos {@link QosClass} of the {@link Task}
+         * @return this {@code Builder}
+         */
+        public Builder qos(QosClass qos) {
+            Check.notNull(qos, "qos");
+            this.qos = qos;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link TaskOptions} object.
+         *
+         * @return new {@link TaskOptions} instance
+         */
+        public TaskOptions build() {
+            return new TaskOptions(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.utils.Check;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An immutable description of a time-based window over which the PerLa core
+ * aggregates the {@link Sample}s of a {@link Task}. A {@link Task} with a
+ * {@code Window} delivers a single {@link Sample} per window, containing the
+ * result of each requested {@link Aggregate} function and the
+ * {@code timestamp} of the end of the window.
+ *
+ * <p>
+ * Windows are aligned to multiples of the slide interval since the epoch.
+ * Tumbling windows have a slide equal to their length, while sliding windows
+ * advance by a fraction of their length. Windows that do not contain any
+ * {@link Sample} are not delivered.
+ *
+ * <p>
+ * Window boundaries are computed from the {@code timestamp} of the
+ * {@link Sample}s, hence windows are closed by the data and not by a timer:
+ * a window is delivered when the first {@link Sample} past its end is
+ * produced, or when the {@link Task} stops. A {@link Task} whose device
+ * stops producing {@link Sample}s does not deliver its last window until
+ * it is stopped.
+ *
+ * <p>
+ * New {@code Window} objects are created using a {@link Builder}, which can
+ * be obtained through the {@code Window.newBuilder()} method.
+ */
+public final class Window {
+
+    private final long length;
+    private final long slide;
+    private final List<Aggregation> aggregations;
+
+    private Window(Builder b) {
+        this.length = b.length;
+        this.slide = b.slide == 0 ? b.length : b.slide;
+        this.aggregations = Collections.unmodifiableList(
+                new ArrayList<>(b.aggregations));
+    }
+
+    /**
+     * Creates a new {@link Builder} for {@code Window} objects.
+     *
+     * @param lengthMs length of the window in milliseconds
+     * @return new {@link Builder} instance
+     */
+    public static Builder newBuilder(long lengthMs) {
+        return new Builder(lengthMs);
+    }
+
+    /**
+     * Returns the length of the window.
+     *
+     * @return window length in milliseconds
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the interval between the end of two consecutive windows.
+     *
+     * @return window slide in milliseconds
+     */
+    public long getSlide() {
+        return slide;
+    }
+
+    /**
+     * Indicates if the window is tumbling (i.e., consecutive windows do not
+     * overlap).
+     *
+     * @return true if the window is tumbling, false if it is sliding
+     */
+    public boolean isTumbling() {
+        return slide == length;
+    }
+
+    /**
+     * Returns the aggregations computed over the window.
+     *
+     * @return list of aggregations
+     */
+    public List<Aggregation> getAggregations() {
+        return aggregations;
+    }
+
+
+    /**
+     * A single {@link Aggregate} function applied to an {@link Attribute}.
+     */
+    public static final class Aggregation {
+
+        private final Aggregate function;
+        private final String attributeId;
+
+        private Aggregation(Aggregate function, String attributeId) {
+            this.function = function;
+            this.attributeId = attributeId;
+        }
+
+        /**
+         * Returns the aggregation function.
+         *
+         * @return aggregation function
+         */
+        public Aggregate getFunction() {
+            return function;
+        }
+
+        /**
+         * Returns the identifier of the aggregated {@link Attribute}.
+         *
+         * @return aggregated {@link Attribute} identifier
+         */
+        public String getAttributeId() {
+            return attributeId;
+        }
+
+    }
+
+
+    /**
+     * Builder class for {@link Window} objects.
+     */
+    public static final class Builder {
+
+        private final long length;
+        private long slide = 0;
+        private final List<Aggregation> aggregations = new ArrayList<>();
+
+        private Builder(long length) {
+            Check.argument(length > 0,
+                    "Window length must be greater than zero");
+            this.length = length;
+        }
+
+        /**
+         * Turns the window into a sliding window. The window length must be
+         * a multiple of the slide interval.
+         *
+         * @param slideMs interval between the end of two consecutive
+         *                windows, in milliseconds
+         * @return this {@code Builder}
+         */
+        public Builder slide(long slideMs) {
+            Check.argument(slideMs > 0 && slideMs <= length &&
+                    length % slideMs == 0, "Window length must be a " +
+                    "positive multiple of the slide interval");
+            this.slide = slideMs;
+            return this;
+        }
+
+        /**
+         * Adds a new aggregation to the window.
+         *
+         * @param function aggregation function
+         * @param attributeId identifier of the aggregated {@link Attribute}
+         * @return this {@code Builder}
+         */
+        public Builder aggregate(Aggregate function, String attributeId) {
+            Check.notNull(function, "function");
+            Check.notNull(attributeId, "attributeId");
+            aggregations.add(new Aggregation(function, attributeId));
+            return this;
+        }
+
+        /**
+         * Creates a new {@link Window} object.
+         *
+         * @return new {@link Window} instance
+         * @throws IllegalStateException if no aggregation was specified
+         */
+        public Window build() throws IllegalStateException {
+            if (aggregations.isEmpty()) {
+                throw new IllegalStateException(
+                        "A window requires at least one aggregation");
+            }
+            return new Window(this);
+        }
+
+    }
+
+}
@@ -1,7 +1,7 @@
 package org.dei.perla.core.fpc.base;
 
 import org.dei.perla.core.fpc.TaskHandler;
-import org.dei.perla.core.utils.AsyncUtils;
+import org.dei.perla.core.utils.Dispatcher;
 
 import java.util.Map;
 import java.util.function.Consumer;
@@ -32,9 +32,7 @@ public final class AsyncOneoffOperation extends BaseOperation<BaseTask> {
     @Override
     protected void doStop(Consumer<Operation> handler) {
         // Invoke in new thread to preserve asynchronous locking semantics
-        AsyncUtils.runInNewThread(() -> {
-            handler.accept(this);
-        });
+        dispatch(() -> handler.accept(this));
     }
 
     /**
@@ -52,11 +50,10 @@ public final class AsyncOneoffOperation extends BaseOperation<BaseTask> {
 
         @Override
         protected synchronized void doStart() {
-            AsyncUtils.runInNewThread(() -> {
-                Object[] sample = op.getSampleCopy();
+            Dispatcher.getDefault().execute(() -> op.latestSample(sample -> {
                 this.processSample(sample);
                 this.notifyComplete();
-            });
+            }));
         }
 
     }
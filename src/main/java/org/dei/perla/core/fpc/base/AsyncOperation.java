@@ -4,16 +4,18 @@ import org.dei.perla.core.engine.Executor;
 import org.dei.perla.core.engine.Script;
 import org.dei.perla.core.engine.ScriptHandler;
 import org.dei.perla.core.engine.ScriptParameter;
+import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
 import org.dei.perla.core.message.FpcMessage;
 import org.dei.perla.core.message.Mapper;
 import org.dei.perla.core.fpc.Attribute;
-import org.dei.perla.core.utils.AsyncUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public final class AsyncOperation
@@ -23,21 +25,26 @@ public final class AsyncOperation
     private static final int SUSPENDED = 1;
     private static final int STARTED = 2;
 
-    // Thread pool for simulated periodic Operation
-    private static final ScheduledThreadPoolExecutor executor;
-    static {
-        executor = new ScheduledThreadPoolExecutor(10);
-        executor.setRemoveOnCancelPolicy(true);
-    }
-
     private final Script startScript;
 
     private int state;
 
     private final AsyncMessageHandler asyncHandler;
-    private final OnHandler onHandler = new OnHandler();
 
-    private volatile Object[] sample;
+    // Most recent sample and sequence number of the message it was
+    // created from, guarded by the operation monitor
+    private Object[] sample;
+    private long sampleSeq = -1;
+
+    // Most recent message not yet processed, run only when its content is
+    // requested (see the latestSample method)
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+    private final AtomicLong messageSeq = new AtomicLong(0);
+
+    // Consumers waiting for the on-demand processing in progress, null if
+    // no message is being processed on demand. Guarded by decodeLock
+    private final Object decodeLock = new Object();
+    private List<Consumer<Object[]>> waiting = null;
 
     protected AsyncOperation(String id, List<Attribute> atts,
             Script startScript, AsyncMessageHandler handler,
@@ -58,7 +65,8 @@ public final class AsyncOperation
 
     private void runStartScript() {
         if (startScript != null) {
-            Executor.execute(startScript, new StartHandler());
+            Executor.execute(startScript, Executor.EMPTY_PARAMETER_ARRAY,
+                    new StartHandler(), getQos());
         }
     }
 
@@ -66,6 +74,84 @@ public final class AsyncOperation
         return Arrays.copyOf(sample, sample.length);
     }
 
+    /**
+     * Retrieves a copy of the most recent sample. If the last message
+     * received from the device has not been processed yet, the 'on'
+     * {@link Script} is run before passing the sample to the consumer.
+     *
+     * <p>
+     * Consumers are invoked one at a time, in request order. Requests
+     * issued while a message is being processed on demand wait for the
+     * processing to complete, and receive the resulting sample.
+     *
+     * @param c consumer of the most recent sample
+     */
+    protected void latestSample(Consumer<Object[]> c) {
+        Pending p;
+        synchronized (decodeLock) {
+            if (waiting != null) {
+                waiting.add(c);
+                return;
+            }
+            p = pending.getAndSet(null);
+            if (p != null) {
+                waiting = new ArrayList<>();
+                waiting.add(c);
+            }
+        }
+        if (p == null) {
+            c.accept(getSampleCopy());
+            return;
+        }
+
+        runOnScript(p.message, new OnHandler(p.seq, false) {
+
+            @Override
+            public void complete(Script script, List<Object[]> samples) {
+                super.complete(script, samples);
+                releaseWaiting();
+            }
+
+            @Override
+            public void error(Script script, Throwable cause) {
+                super.error(script, cause);
+                releaseWaiting();
+            }
+
+        });
+    }
+
+    /**
+     * Passes the most recent sample to the consumers waiting for the
+     * on-demand processing of a message. Consumers that request a sample
+     * in the meantime are served by this same loop, so that they are never
+     * invoked concurrently with the ones already waiting.
+     */
+    private void releaseWaiting() {
+        while (true) {
+            List<Consumer<Object[]>> cs;
+            synchronized (decodeLock) {
+                cs = waiting;
+                if (cs.isEmpty()) {
+                    waiting = null;
+                    return;
+                }
+                waiting = new ArrayList<>();
+            }
+            cs.forEach(c -> c.accept(getSampleCopy()));
+        }
+    }
+
+    private synchronized boolean setSample(Object[] s, long seq) {
+        // Messages processed on demand may complete after newer messages
+        if (seq <= sampleSeq) {
+            return false;
+        }
+        sample = s;
+        sampleSeq = seq;
+        return true;
+    }
+
     @Override
     public AsyncTask doSchedule(Map<String, Object> parameterMap,
             TaskHandler handler, SamplePipeline pipeline)
@@ -75,11 +161,38 @@ public final class AsyncOperation
         return task;
     }
 
+    /**
+     * Processes a message received from the device. The 'on' {@link Script}
+     * is only run if a {@link Task} is going to receive the resulting
+     * sample. Otherwise the message is stored, and processed only if the
+     * most recent sample is requested before a new message arrives.
+     *
+     * @param message message received from the device
+     */
     public void handleMessage(FpcMessage message) {
+        long seq = messageSeq.getAndIncrement();
+        if (taskCount() == 0) {
+            pending.set(new Pending(message, seq));
+            return;
+        }
+
+        pending.set(null);
+        runOnScript(message, new OnHandler(seq, true));
+    }
+
+    private void runOnScript(FpcMessage message, OnHandler h) {
         ScriptParameter paramArray[] = new ScriptParameter[1];
         paramArray[0] = new ScriptParameter(asyncHandler.variable, message);
 
-        Executor.execute(asyncHandler.script, paramArray, onHandler);
+        try {
+            Executor.execute(asyncHandler.script, paramArray, h, getQos());
+        } catch (Exception e) {
+            // The handler is never invoked if the script cannot be started.
+            // Reporting the error here also releases the consumers waiting
+            // for the on-demand processing of the message
+            h.error(asyncHandler.script, new RuntimeException("Unexpected " +
+                    "error while running 'on' script", e));
+        }
     }
 
     @Override
@@ -91,9 +204,7 @@ public final class AsyncOperation
     public void doStop(Consumer<Operation> handler) {
         doStop();
         // Invoke in new thread to preserve asynchronous locking semantics
-        AsyncUtils.runInNewThread(() -> {
-            handler.accept(this);
-        });
+        dispatch(() -> handler.accept(this));
     }
 
     /**
@@ -131,12 +242,30 @@ public final class AsyncOperation
      */
     private class OnHandler implements ScriptHandler {
 
+        private final long seq;
+        private final boolean distribute;
+
+        private OnHandler(long seq, boolean distribute) {
+            this.seq = seq;
+            this.distribute = distribute;
+        }
+
         @Override
         public void complete(Script script, List<Object[]> samples) {
-            synchronized (AsyncOperation.this) {
-                samples.forEach(s -> forEachTask(t -> t.processSample(s)));
-                int last = samples.size() - 1;
-                sample = samples.get(last);
+            if (samples.isEmpty()) {
+                return;
+            }
+            if (distribute) {
+                samples.forEach(s -> {
+                    cache(s);
+                    forEachTask(t -> t.processSample(s));
+                });
+            }
+            Object[] last = samples.get(samples.size() - 1);
+            if (setSample(last, seq) && !distribute) {
+                // Samples processed on demand are cached as well, unless a
+                // newer message was processed in the meantime
+                cache(last);
             }
         }
 
@@ -165,6 +294,21 @@ public final class AsyncOperation
 
     }
 
+    /**
+     * Message received from the device and not processed yet
+     */
+    private static final class Pending {
+
+        private final FpcMessage message;
+        private final long seq;
+
+        private Pending(FpcMessage message, long seq) {
+            this.message = message;
+            this.seq = seq;
+        }
+
+    }
+
     /**
      * Simple container class for managing the association between {@link
      * Script}s and {@link Mapper}s.
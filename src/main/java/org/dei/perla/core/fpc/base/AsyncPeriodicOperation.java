@@ -1,9 +1,8 @@
 package org.dei.perla.core.fpc.base;
 
-import org.dei.perla.core.utils.AsyncUtils;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -12,29 +11,18 @@ import java.util.function.Consumer;
  */
 public final class AsyncPeriodicOperation extends PeriodicOperation {
 
-    private final ScheduledThreadPoolExecutor executor;
-
     private final AsyncOperation op;
-    private ScheduledFuture<?> timerFuture = null;
+    private Timeout timerFuture = null;
 
     public AsyncPeriodicOperation(AsyncOperation op) {
         super("Simulated one-off (async) " + op.getId(), op.getAttributes());
         this.op = op;
-
-        // A single executor thread, combined with the synchronous script
-        // execution model (see the sample method), ensures that all script
-        // invocations are executed sequentially. If multiple threads were
-        // used instead the Java scheduler could reorder or aggregate
-        // the single script executions, causing a more or less severe
-        // alteration of the effective sampling period.
-        executor = new ScheduledThreadPoolExecutor(1);
-        executor.setRemoveOnCancelPolicy(true);
     }
 
     @Override
     protected void setSamplingPeriod(long period) {
         if (timerFuture != null) {
-            timerFuture.cancel(false);
+            timerFuture.cancel();
         }
         if (period == 0) {
             currentPeriod = 0;
@@ -43,21 +31,29 @@ public final class AsyncPeriodicOperation extends PeriodicOperation {
 
         currentPeriod = period;
         forEachTask(t -> t.setInputPeriod(period));
-        timerFuture = executor.scheduleAtFixedRate(this::sample,
-                period, period, TimeUnit.MILLISECONDS);
+        // The timer wheel never runs a periodic activity concurrently with
+        // itself, and the AsyncOperation serves the consumers of messages
+        // processed on demand in request order, without overlapping with
+        // the following ticks. Samples are therefore distributed
+        // sequentially
+        long delay = initialDelay(period);
+        startTicks(delay, period);
+        timerFuture = TimerWheel.getDefault().scheduleAtFixedRate(
+                this::sample, delay, period, TimeUnit.MILLISECONDS);
     }
 
-    private synchronized void sample() {
-        Object[] sample = op.getSampleCopy();
-        forEachTask(t -> t.newSample(sample));
+    private void sample() {
+        long tick = tick();
+        if (!nextSampleNeeded()) {
+            return;
+        }
+        op.latestSample(s -> distribute(s, tick));
     }
 
     @Override
     protected void doStop(Consumer<Operation> handler) {
         // Invoke in new thread to preserve asynchronous locking semantics
-        AsyncUtils.runInNewThread(() -> {
-            handler.accept(this);
-        });
+        dispatch(() -> handler.accept(this));
     }
 
 
@@ -1,10 +1,13 @@
 package org.dei.perla.core.fpc.base;
 
 import org.dei.perla.core.fpc.*;
-import org.dei.perla.core.utils.AsyncUtils;
 import org.dei.perla.core.utils.Check;
+import org.dei.perla.core.utils.Dispatcher;
+import org.dei.perla.core.utils.TimerWheel;
 
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -14,22 +17,36 @@ import java.util.function.Consumer;
  */
 public final class BaseFpc implements Fpc {
 
+    // Maximum number of request plans cached by every Fpc
+    private static final int PLAN_CACHE_SIZE = 256;
+
     private final int id;
     private final String type;
     private final Set<Attribute> atts;
     private final Map<Attribute, Object> staticAtts;
     private final ChannelManager cmgr;
     private final Scheduler sched;
+    private final LastValueCache cache;
+    private final PlanCache plans = new PlanCache(PLAN_CACHE_SIZE);
+
+    // Write-combining window in milliseconds, 0 if disabled
+    private volatile long combineWindow = 0;
+    private final Map<Operation, PendingWrite> pendingWrites = new HashMap<>();
+
+    // Executor of the asynchronous notifications, null to use the default
+    // Dispatcher
+    private volatile Executor callbacks = null;
 
     protected BaseFpc(int id, String type, Set<Attribute> atts,
             Map<Attribute, Object> staticAtts, ChannelManager cmgr,
-            Scheduler sched) {
+            Scheduler sched, LastValueCache cache) {
         this.id = id;
         this.type = type;
         this.atts = atts;
         this.staticAtts = staticAtts;
         this.cmgr = cmgr;
         this.sched = sched;
+        this.cache = cache;
     }
 
     @Override
@@ -51,6 +68,114 @@ public final class BaseFpc implements Fpc {
         return sched;
     }
 
+    protected PlanCache getPlanCache() {
+        return plans;
+    }
+
+    /**
+     * Resolves the {@link Request}, the {@link Operation} and the
+     * {@link SamplePipeline} required to answer a request. Since the
+     * operations of an {@code Fpc} never change, the result is cached.
+     *
+     * @param requestAtts requested {@link Attribute}s
+     * @param strict strict scheduling policy flag
+     * @param mode type of request
+     * @return resolved request plan
+     */
+    private PlanCache.Plan plan(List<Attribute> requestAtts, boolean strict,
+            PlanCache.Mode mode) {
+        return plans.get(requestAtts, strict, mode, ra -> {
+            Request req = new Request(ra, staticAtts);
+            if (!req.isSampled()) {
+                return new PlanCache.Plan(req, null, null);
+            }
+
+            Operation op;
+            switch (mode) {
+                case GET:
+                    op = sched.get(req.getSampled(), strict);
+                    break;
+                case PERIODIC:
+                    op = sched.periodic(req.getSampled(), strict);
+                    break;
+                default:
+                    op = sched.async(req.getSampled(), strict);
+                    break;
+            }
+            if (op == null) {
+                return new PlanCache.Plan(req, null, null);
+            }
+            return new PlanCache.Plan(req, op,
+                    req.createPipeline(op.getAttributes()));
+        });
+    }
+
+    /**
+     * <p>
+     * Sets the write-combining window of this {@code Fpc}. When the window
+     * is enabled, the values of all the {@code set} requests that target
+     * the same operation within the window are merged (the most recent
+     * value of each {@link Attribute} wins) and written to the device with
+     * a single {@code set} operation. The {@link Task} of every request
+     * completes when the combined write is complete.
+     *
+     * <p>
+     * A request whose {@link Task} is stopped before the window expires is
+     * withdrawn, and its values are not written. Stopping the {@link Task}
+     * after the window expired does not cancel the combined write.
+     *
+     * <p>
+     * Write-combining is disabled by default.
+     *
+     * @param windowMs write-combining window in milliseconds, 0 to disable
+     */
+    public void setWriteCombining(long windowMs) {
+        Check.argument(windowMs >= 0, "Write-combining window cannot be " +
+                "negative");
+        combineWindow = windowMs;
+    }
+
+    /**
+     * <p>
+     * Enables or disables the ordered delivery of the asynchronous
+     * notifications of this {@code Fpc}. When enabled, the completion of
+     * the static and cached {@code get} requests and the stop notifications
+     * of the {@link Task}s and operations of this {@code Fpc} are run one
+     * at a time, in the order in which they were issued. Notifications of
+     * different {@code Fpc}s are independent of each other.
+     *
+     * <p>
+     * {@link Task}s with a delivery queue (see
+     * {@link TaskOptions.Builder#queue}) notify their termination from
+     * their delivery thread, after the last queued sample. Ordered delivery
+     * is disabled by default.
+     *
+     * @param ordered true to enable ordered delivery, false to disable it
+     */
+    public void setOrderedCallbacks(boolean ordered) {
+        Executor e = ordered ? Dispatcher.getDefault().newSequence() : null;
+        callbacks = e;
+        sched.forEach(op -> {
+            if (op instanceof BaseOperation) {
+                ((BaseOperation<?>) op).setCallbackExecutor(e);
+            }
+        });
+    }
+
+    /**
+     * Runs an asynchronous notification in a thread different than the
+     * current one.
+     *
+     * @param notification notification to run
+     */
+    private void dispatch(Runnable notification) {
+        Executor e = callbacks;
+        if (e == null) {
+            e = Dispatcher.getDefault();
+        }
+        e.execute(notification);
+    }
+
     @Override
     public Task set(Map<Attribute, Object> values, boolean strict,
             TaskHandler handler) {
@@ -63,57 +188,157 @@ public final class BaseFpc implements Fpc {
         values.entrySet().forEach(
                 e -> pm.put(e.getKey().getId(), e.getValue()));
 
+        long window = combineWindow;
+        if (window > 0) {
+            return combine(op, pm, handler, window);
+        }
+
         BaseTask t = op.schedule(pm, handler);
         t.start();
         return t;
     }
 
+    /**
+     * Adds the values of a {@code set} request to the pending write of the
+     * target operation. The pending write is flushed when the
+     * write-combining window expires.
+     */
+    private Task combine(Operation op, Map<String, Object> values,
+            TaskHandler handler, long window) {
+        CombinedTask t = new CombinedTask(op.getAttributes(), values,
+                handler);
+        synchronized (pendingWrites) {
+            PendingWrite w = pendingWrites.get(op);
+            if (w == null) {
+                w = new PendingWrite(op);
+                pendingWrites.put(op, w);
+                TimerWheel.getDefault().schedule(w::flush, window,
+                        TimeUnit.MILLISECONDS);
+            }
+            w.tasks.add(t);
+        }
+        return t;
+    }
+
     @Override
     public Task get(List<Attribute> requestAtts, boolean strict,
-            TaskHandler handler) {
+            TaskOptions opts, TaskHandler handler) {
         if (Check.nullOrEmpty(atts)) {
             throw new RuntimeException(
                     "Cannot sample, attribute list is null or empty");
         }
-        Request req = new Request(requestAtts, staticAtts);
+        Check.argument(!opts.isWindowed(), "Windowed aggregation is not " +
+                "available for one-off requests");
+        Check.argument(!opts.hasDeadband(), "Change-only reporting is not " +
+                "available for one-off requests");
+        Check.argument(!opts.isAdaptive(), "Adaptive sampling is not " +
+                "available for one-off requests");
+        PlanCache.Plan plan = plan(requestAtts, strict, PlanCache.Mode.GET);
+        Request req = plan.request;
 
         if (!req.isSampled()) {
+            checkStatic(opts);
             Task t = new CompletedTask(req.getGenerated());
             // Running in a new thread to preserve asynchronous semantics
-            AsyncUtils.runInNewThread(() -> {
+            dispatch(() -> {
                 handler.data(t, req.generateSample());
                 handler.complete(t);
             });
             return t;
-        } else {
-            Operation op = sched.get(req.getSampled(), strict);
-            if (op == null) {
-                return null;
+        }
+
+        if (opts.acceptsCached()) {
+            Task t = getCached(plan, opts, handler);
+            if (t != null) {
+                return t;
             }
+        }
 
-            SamplePipeline pipe = req.createPipeline(op.getAttributes());
-            BaseTask t = op.schedule(Collections.emptyMap(), handler, pipe);
-            t.start();
-            return t;
+        Operation op = plan.op;
+        if (op == null) {
+            return null;
         }
+
+        BaseTask t = op.schedule(Collections.emptyMap(), handler,
+                plan.pipeline, opts);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Answers a one-off request using the values stored in the
+     * {@link LastValueCache}. The {@link SamplePipeline} and the compiled
+     * {@link Filter} are kept in the {@link PlanCache.Plan}, and are not
+     * created again for every request.
+     *
+     * @param plan resolved request to answer
+     * @param opts {@link TaskOptions} requested by the user
+     * @param handler {@link TaskHandler} to notify
+     * @return completed {@link Task}, null if the cache does not contain
+     * fresh values for all the sampled attributes
+     */
+    private Task getCached(PlanCache.Plan plan, TaskOptions opts,
+            TaskHandler handler) {
+        Object[] values = cache.lookup(plan.request.getSampled(),
+                TimeUnit.MILLISECONDS.toNanos(opts.getMaxAge()));
+        if (values == null) {
+            return null;
+        }
+
+        boolean accept = !opts.isFiltered() ||
+                plan.compileCached(opts.getFilter()).test(values);
+        SamplePipeline pipe = plan.getCachedPipeline();
+        Task t = new CompletedTask(pipe.getAttributes());
+        // Running in a new thread to preserve asynchronous semantics
+        dispatch(() -> {
+            if (accept) {
+                handler.data(t, pipe.run(values));
+            }
+            handler.complete(t);
+        });
+        return t;
+    }
+
+    /**
+     * Checks the {@link TaskOptions} of a request answered using only
+     * static attributes. Static samples are generated directly by the
+     * {@code BaseFpc}, without the processing stages of a {@link BaseTask}.
+     * The execution lane and the maximum age of the values are irrelevant,
+     * as no {@code Script} is run and static values never change.
+     *
+     * @param opts {@link TaskOptions} requested by the user
+     * @throws IllegalArgumentException if the {@link TaskOptions} require a
+     * processing stage
+     */
+    private static void checkStatic(TaskOptions opts)
+            throws IllegalArgumentException {
+        Check.argument(!opts.isQueued() && !opts.isBatched() &&
+                !opts.isFiltered() && !opts.isWindowed() &&
+                !opts.hasDeadband() && !opts.isAdaptive(),
+                "Delivery queues, batching, filters, windows, deadbands " +
+                "and adaptive sampling are not available for requests " +
+                "of static attributes");
     }
 
     @Override
     public Task get(List<Attribute> requestAtts, boolean strict, long ms,
-            TaskHandler handler) {
+            TaskOptions opts, TaskHandler handler) {
         if (Check.nullOrEmpty(atts)) {
             throw new RuntimeException(
                     "Cannot sample, attribute list is null or empty");
         }
-        Request req = new Request(requestAtts, staticAtts);
+        PlanCache.Plan plan = plan(requestAtts, strict,
+                PlanCache.Mode.PERIODIC);
+        Request req = plan.request;
 
         if (!req.isSampled()) {
+            checkStatic(opts);
             StaticPeriodicTask t = new StaticPeriodicTask(req, ms, handler);
             t.start();
             return t;
 
         } else {
-            Operation op = sched.periodic(req.getSampled(), strict);
+            Operation op = plan.op;
             if (op == null) {
                 return null;
             }
@@ -121,8 +346,7 @@ public final class BaseFpc implements Fpc {
             Map<String, Object> pm = new HashMap<>();
             pm.put("period", ms);
 
-            SamplePipeline pipe = req.createPipeline(op.getAttributes());
-            BaseTask t = op.schedule(pm, handler, pipe);
+            BaseTask t = op.schedule(pm, handler, plan.pipeline, opts);
             t.start();
             return t;
         }
@@ -130,35 +354,146 @@ public final class BaseFpc implements Fpc {
 
     @Override
     public Task async(List<Attribute> requestAtts, boolean strict,
-            TaskHandler handler) {
+            TaskOptions opts, TaskHandler handler) {
         if (Check.nullOrEmpty(atts)) {
             throw new RuntimeException(
                     "Cannot sample, attribute list is null or empty");
         }
-        Request req = new Request(requestAtts, staticAtts);
-
-        if (!req.isSampled()) {
-            return null;
-        }
-
-        Operation op = sched.async(req.getSampled(), strict);
+        Check.argument(!opts.isAdaptive(), "Adaptive sampling is not " +
+                "available for async requests");
+        PlanCache.Plan plan = plan(requestAtts, strict, PlanCache.Mode.ASYNC);
+        Operation op = plan.op;
         if (op == null) {
             return null;
         }
-        SamplePipeline pipe = req.createPipeline(op.getAttributes());
-        BaseTask t = op.schedule(Collections.emptyMap(), handler, pipe);
+        BaseTask t = op.schedule(Collections.emptyMap(), handler,
+                plan.pipeline, opts);
         t.start();
         return t;
     }
 
     @Override
     public void stop(final Consumer<Fpc> handler) {
+        plans.clear();
         sched.stop((Void) -> {
             cmgr.stop();
             handler.accept(this);
         });
     }
 
+    /**
+     * Values of the {@code set} requests received within the same
+     * write-combining window for the same operation
+     */
+    private final class PendingWrite implements TaskHandler {
+
+        private final Operation op;
+        // Guarded by the pendingWrites lock
+        private final List<CombinedTask> tasks = new ArrayList<>();
+
+        private PendingWrite(Operation op) {
+            this.op = op;
+        }
+
+        private void flush() {
+            synchronized (pendingWrites) {
+                pendingWrites.remove(op);
+            }
+
+            // Values of the requests withdrawn before the window expired
+            // are dropped, later requests override the earlier ones
+            Map<String, Object> values = new HashMap<>();
+            for (CombinedTask t : tasks) {
+                if (t.isRunning()) {
+                    values.putAll(t.values);
+                }
+            }
+            if (values.isEmpty()) {
+                return;
+            }
+
+            try {
+                op.schedule(values, this).start();
+            } catch (RuntimeException e) {
+                error(null, e);
+            }
+        }
+
+        @Override
+        public void complete(Task task) {
+            tasks.forEach(CombinedTask::complete);
+        }
+
+        @Override
+        public void data(Task task, Sample sample) { }
+
+        @Override
+        public void error(Task task, Throwable cause) {
+            tasks.forEach(t -> t.error(cause));
+        }
+
+    }
+
+    /**
+     * {@link Task} returned to the callers of a combined {@code set}
+     * request. The {@link Task} terminates when the combined write
+     * completes.
+     */
+    private final class CombinedTask implements Task {
+
+        private final List<Attribute> atts;
+        private final Map<String, Object> values;
+        private final TaskHandler handler;
+        private boolean running = true;
+
+        private CombinedTask(List<Attribute> atts, Map<String, Object> values,
+                TaskHandler handler) {
+            this.atts = atts;
+            this.values = values;
+            this.handler = handler;
+        }
+
+        @Override
+        public synchronized boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public List<Attribute> getAttributes() {
+            return atts;
+        }
+
+        @Override
+        public void stop() {
+            // Values not yet collected by the combined write are dropped.
+            // Once collected, the write cannot be cancelled, and the Task
+            // only stops waiting for its completion
+            if (terminate()) {
+                // Running in a new thread to preserve asynchronous semantics
+                dispatch(() -> handler.complete(this));
+            }
+        }
+
+        private synchronized boolean terminate() {
+            boolean r = running;
+            running = false;
+            return r;
+        }
+
+        private void complete() {
+            if (terminate()) {
+                handler.complete(this);
+            }
+        }
+
+        private void error(Throwable cause) {
+            if (terminate()) {
+                handler.error(this, cause);
+            }
+        }
+
+    }
+
     /**
      * Implementation of a {@link Task} that terminates immediately. This class is
      * mainly used as a return value for 'get' requests that only return static
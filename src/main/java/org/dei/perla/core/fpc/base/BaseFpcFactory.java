@@ -38,6 +38,10 @@ public final class BaseFpcFactory implements FpcFactory {
     private final Map<Class<? extends IORequestDescriptor>, IORequestBuilderFactory>
             reqFcts = new HashMap<>();
 
+    // Sampling periods learned from the devices created by this factory
+    private final PeriodTable.Registry periodTables =
+            new PeriodTable.Registry();
+
     public BaseFpcFactory(List<MapperFactory> mapFcts, List<ChannelFactory> chanFcts,
             List<IORequestBuilderFactory> reqFcts) {
         Check.notNull(mapFcts, "mapperFactoryList");
@@ -73,10 +77,24 @@ public final class BaseFpcFactory implements FpcFactory {
             throw new FpcCreationException(err.asString());
         }
 
+        // All operations feed the same last value cache
+        LastValueCache cache = new LastValueCache();
+        ctx.getOpList.forEach(op -> op.setLastValueCache(cache));
+        ctx.periodicOpList.forEach(op -> op.setLastValueCache(cache));
+        ctx.asyncOpList.forEach(op -> op.setLastValueCache(cache));
+
+        // Sampling periods supported by the device are shared by all the
+        // devices of the same type created by this factory
+        ctx.periodicOpList.stream()
+                .filter(op -> op instanceof NativePeriodicOperation)
+                .map(op -> (NativePeriodicOperation) op)
+                .forEach(op -> op.setPeriodTable(periodTables.acquire(
+                        desc.getType(), op.getId())));
+
         Scheduler sched = new Scheduler(ctx.getOpList, ctx.setOpList,
                 ctx.periodicOpList, ctx.asyncOpList);
         return new BaseFpc(ctx.id, desc.getType(), ctx.atts, ctx.staticAtts,
-                ctx.channelMgr, sched);
+                ctx.channelMgr, sched, cache);
     }
 
     /**
@@ -420,17 +438,22 @@ public final class BaseFpcFactory implements FpcFactory {
             ParsingContext ctx, Errors err) {
         Script start;
         Script stop;
+        Script change = null;
 
         try {
             start = compileScript(o.getStartScript(), "_start", ctx);
             stop = compileScript(o.getStopScript(), "_stop", ctx);
+            if (!Check.nullOrEmpty(o.getChangeScript())) {
+                change = compileScript(o.getChangeScript(), "_change", ctx);
+            }
         } catch (InvalidDeviceDescriptorException e) {
             err.addError(e.getMessage());
             return;
         }
 
         if (!start.getEmit().isEmpty()
-                || !stop.getEmit().isEmpty()) {
+                || !stop.getEmit().isEmpty()
+                || (change != null && !change.getEmit().isEmpty())) {
             err.addError(EMIT_NOT_ALLOWED_START_STOP);
             return;
         }
@@ -444,7 +467,7 @@ public final class BaseFpcFactory implements FpcFactory {
         }
 
         ctx.periodicOpList.add(new NativePeriodicOperation(o.getId(),
-                emitAtts, start, stop,
+                emitAtts, start, stop, change,
                 msgs, ctx.channelMgr));
     }
 
@@ -661,9 +684,10 @@ public final class BaseFpcFactory implements FpcFactory {
         private final List<String> onMsgHandlerList = new ArrayList<>();
 
         // Operations
-        private final List<Operation> getOpList = new ArrayList<>();
-        private final List<Operation> setOpList = new ArrayList<>();
-        private final List<Operation> periodicOpList = new ArrayList<>();
+        private final List<BaseOperation<?>> getOpList = new ArrayList<>();
+        private final List<BaseOperation<?>> setOpList = new ArrayList<>();
+        private final List<BaseOperation<?>> periodicOpList =
+                new ArrayList<>();
         private final List<AsyncOperation> asyncOpList = new ArrayList<>();
 
         private ParsingContext(int id) {
@@ -755,7 +779,7 @@ public final class BaseFpcFactory implements FpcFactory {
     private static final String MISSING_ON_SYNC = "No synchronizing event set";
     private static final String DUPLICATE_ON_HANDLER_SAMPLE = "Duplicate 'on' handler for message '%s'";
     private static final String UNSUPPORTED_OPERATION_TYPE = "Usupported operation '%s'";
-    private static final String EMIT_NOT_ALLOWED_START_STOP = "Emit instruction not allowed in start and stop blocks";
+    private static final String EMIT_NOT_ALLOWED_START_STOP = "Emit instruction not allowed in start, stop and change blocks";
     private static final String EMIT_NOT_ALLOWED_SET = "Emit instruction not allowed in set operation";
 
 }
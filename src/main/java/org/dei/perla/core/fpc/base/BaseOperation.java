@@ -3,14 +3,19 @@ package org.dei.perla.core.fpc.base;
 import org.apache.log4j.Logger;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.FpcException;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
 import org.dei.perla.core.utils.Check;
+import org.dei.perla.core.utils.Dispatcher;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * <p>
@@ -24,6 +29,13 @@ import java.util.function.Consumer;
  * {@link org.dei.perla.core.fpc.Task}s using the {@code add()} and
  * {@code remove()} methods.
  *
+ * <p>
+ * The task list is stored as an immutable array snapshot, which is replaced
+ * every time a task is added or removed. Modifications are serialized
+ * through the operation monitor, while {@link org.dei.perla.core.fpc.Sample}
+ * distribution (see the {@code forEachTask()} method) only reads the
+ * current snapshot and does not need to acquire any lock.
+ *
  * @author Guido Rota (2014)
  */
 public abstract class BaseOperation<T extends BaseTask>
@@ -36,9 +48,25 @@ public abstract class BaseOperation<T extends BaseTask>
 
     private final SamplePipeline defPipeline;
 
+    private static final BaseTask[] NO_TASKS = new BaseTask[0];
+
     private boolean schedulable;
 
-    private volatile List<T> tasks = new ArrayList<>();
+    // Copy-on-write task snapshot. Arrays referenced by this field are never
+    // modified after being published.
+    private volatile BaseTask[] tasks = NO_TASKS;
+
+    // Last value cache slots of the operation attributes, null if the
+    // operation is not attached to a cache
+    private volatile LastValueCache.Slot[] cacheSlots = null;
+
+    // Executor of the asynchronous notifications, null to use the default
+    // Dispatcher
+    private volatile Executor callbacks = null;
+
+    // Options of the task being scheduled, only set while the schedule()
+    // method is running. Guarded by this.
+    private TaskOptions scheduling = null;
 
     /**
      * {@code BaseOperation} constructor.
@@ -79,10 +107,19 @@ public abstract class BaseOperation<T extends BaseTask>
     }
 
     @Override
-    public final synchronized BaseTask schedule(
+    public final BaseTask schedule(
             Map<String, Object> params, TaskHandler h, SamplePipeline p)
             throws IllegalArgumentException, IllegalStateException {
+        return schedule(params, h, p, TaskOptions.DEFAULT);
+    }
+
+    @Override
+    public final synchronized BaseTask schedule(
+            Map<String, Object> params, TaskHandler h, SamplePipeline p,
+            TaskOptions opts)
+            throws IllegalArgumentException, IllegalStateException {
         Check.notNull(h, "handler");
+        Check.notNull(opts, "opts");
         if (!schedulable) {
             throw new IllegalStateException(
                     "Operation '" + id + "' is not schedulable");
@@ -92,7 +129,17 @@ public abstract class BaseOperation<T extends BaseTask>
         // operations are run in mutual exclusion with all other methods
         // that may modify the internal task list or the operating status of
         // this operation
-        return doSchedule(params, h, p);
+        scheduling = opts;
+        try {
+            T task = doSchedule(params, h, p);
+            if (scheduling != null) {
+                // Task not registered by doSchedule()
+                task.configure(opts);
+            }
+            return task;
+        } finally {
+            scheduling = null;
+        }
     }
 
     /**
@@ -129,8 +176,11 @@ public abstract class BaseOperation<T extends BaseTask>
             return;
         }
 
-        tasks.forEach(T::operationStopped);
-        tasks.clear();
+        BaseTask[] stopped = tasks;
+        tasks = NO_TASKS;
+        for (BaseTask t : stopped) {
+            t.operationStopped();
+        }
         doStop(h);
         schedulable = false;
     }
@@ -166,11 +216,30 @@ public abstract class BaseOperation<T extends BaseTask>
      * may change the task list content or the internal state of this
      * {@link BaseOperation}.
      *
+     * <p>
+     * When invoked by {@code doSchedule()}, this method applies the
+     * {@link TaskOptions} requested by the user to the new task before
+     * adding it. Implementations should therefore add new tasks before
+     * changing the state of the operation (e.g., the sampling period).
+     *
      * @param task
      *            {@link BaseTask} to be added
+     * @throws IllegalArgumentException if the {@link TaskOptions} cannot be
+     * applied to the task
      */
     protected final synchronized void add(T task) {
-        tasks.add(task);
+        // Tasks added while being scheduled are configured before becoming
+        // visible, rejected options leave the task list untouched
+        TaskOptions opts = scheduling;
+        if (opts != null) {
+            scheduling = null;
+            task.configure(opts);
+        }
+
+        BaseTask[] old = tasks;
+        BaseTask[] upd = Arrays.copyOf(old, old.length + 1);
+        upd[old.length] = task;
+        tasks = upd;
     }
 
     /**
@@ -187,17 +256,29 @@ public abstract class BaseOperation<T extends BaseTask>
      *            {@link BaseTask} to be removed
      */
     protected final synchronized void remove(BaseTask task) {
-        if (!tasks.contains(task)) {
+        BaseTask[] old = tasks;
+        int idx = -1;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == task) {
+                idx = i;
+                break;
+            }
+        }
+        if (idx == -1) {
             return;
         }
-        tasks.remove(task);
 
-        if (tasks.isEmpty()) {
+        BaseTask[] upd = new BaseTask[old.length - 1];
+        System.arraycopy(old, 0, upd, 0, idx);
+        System.arraycopy(old, idx + 1, upd, idx, upd.length - idx);
+        tasks = upd;
+
+        if (upd.length == 0) {
             doStop();
             return;
         }
 
-        postRemove(Collections.unmodifiableList(tasks));
+        postRemove(asList(upd));
     }
 
     /**
@@ -234,8 +315,11 @@ public abstract class BaseOperation<T extends BaseTask>
             Throwable cause) {
         log.error("Unexpected error, stopping operation", cause);
         FpcException e = new FpcException(msg, cause);
-        tasks.forEach(t -> t.operationError(e));
-        tasks.clear();
+        BaseTask[] failed = tasks;
+        tasks = NO_TASKS;
+        for (BaseTask t : failed) {
+            t.operationError(e);
+        }
         doStop();
     }
 
@@ -243,29 +327,159 @@ public abstract class BaseOperation<T extends BaseTask>
     // Utility methods
     ///////////////////
 
+    /**
+     * Attaches this {@code BaseOperation} to the {@link LastValueCache} of
+     * its {@link org.dei.perla.core.fpc.Fpc}. Samples passed to the
+     * {@code cache()} method will be stored in the {@link LastValueCache}.
+     *
+     * @param c {@link LastValueCache} to feed
+     */
+    protected final void setLastValueCache(LastValueCache c) {
+        cacheSlots = c.slots(atts);
+    }
+
+    /**
+     * Sets the {@link Executor} used to run the asynchronous notifications
+     * of this {@code BaseOperation} and of its {@link BaseTask}s (see the
+     * {@code dispatch()} method).
+     *
+     * @param callbacks notification {@link Executor}, null to use the
+     *                  default {@link Dispatcher}
+     */
+    protected final void setCallbackExecutor(Executor callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * Runs an asynchronous notification (e.g., the stop handler of the
+     * {@code BaseOperation} or of one of its {@link BaseTask}s) in a thread
+     * different than the current one. Notifications can therefore be
+     * dispatched while holding a lock.
+     *
+     * @param notification notification to run
+     */
+    protected final void dispatch(Runnable notification) {
+        Executor e = callbacks;
+        if (e == null) {
+            e = Dispatcher.getDefault();
+        }
+        e.execute(notification);
+    }
+
+    /**
+     * Stores a sample produced by this {@code BaseOperation} in the
+     * {@link LastValueCache}.
+     *
+     * @param sample sample to store, with the same layout of the
+     *               {@code BaseOperation} attributes
+     */
+    protected final void cache(Object[] sample) {
+        cache(sample, 0);
+    }
+
+    /**
+     * Stores a partial sample produced by this {@code BaseOperation} in the
+     * {@link LastValueCache}.
+     *
+     * @param values values to store
+     * @param base position of the first value in the {@code BaseOperation}
+     *             attribute list
+     */
+    protected final void cache(Object[] values, int base) {
+        LastValueCache.Slot[] s = cacheSlots;
+        if (s != null) {
+            LastValueCache.update(s, values, base);
+        }
+    }
+
+    /**
+     * Returns the {@link QosClass} of the work shared by all the
+     * {@link BaseTask}s of this {@code BaseOperation}, i.e. the highest
+     * {@link QosClass} of the registered {@link BaseTask}s. Like
+     * {@code forEachTask()}, this method operates on an immutable snapshot
+     * of the task list and does not need to acquire any lock.
+     *
+     * @return {@link QosClass} of the shared work, {@code NORMAL} if no
+     * task is registered
+     */
+    protected final QosClass getQos() {
+        BaseTask[] ts = tasks;
+        if (ts.length == 0) {
+            return QosClass.NORMAL;
+        }
+        QosClass q = QosClass.BULK;
+        for (BaseTask t : ts) {
+            if (t.getQos().isHigherThan(q)) {
+                q = t.getQos();
+            }
+        }
+        return q;
+    }
+
     /**
      * Returns the number of {@link org.dei.perla.core.fpc.Task}s currently
      * scheduled on this {@code BaseOperation}
      *
      * @return Number of scheduled {@link org.dei.perla.core.fpc.Task}s
      */
-    protected final synchronized int taskCount() {
-        return tasks.size();
+    protected final int taskCount() {
+        return tasks.length;
     }
 
     /**
      * <p>
      * Performs the operation passed as parameter for all registered
-     * {@link PeriodicTask}s
+     * {@link BaseTask}s
+     *
+     * <p>
+     * This method iterates over an immutable snapshot of the task list, and
+     * can therefore be invoked without holding a lock to the
+     * {@code BaseOperation}. Tasks added or removed while the iteration is
+     * in progress will not be visible until the next invocation.
      *
      * <p>
-     * NOTE: This function is not thread-safe. For proper synchronization, a
-     * lock to the Operation object must be acquired.
+     * Each task is processed independently: an unexpected exception thrown
+     * while processing a single task is logged and does not prevent the
+     * remaining tasks from being processed.
      *
      * @param op Operation to execute
      */
+    @SuppressWarnings("unchecked")
     public final void forEachTask(Consumer<T> op) {
-        tasks.forEach(op);
+        for (BaseTask t : tasks) {
+            try {
+                op.accept((T) t);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error while processing task", e);
+            }
+        }
+    }
+
+    /**
+     * Indicates if at least one of the registered {@link BaseTask}s
+     * satisfies the predicate passed as parameter. Like
+     * {@code forEachTask()}, this method operates on an immutable snapshot
+     * of the task list and does not need to acquire any lock.
+     *
+     * @param p predicate to evaluate
+     * @return true if at least one task satisfies the predicate, false
+     * otherwise
+     */
+    @SuppressWarnings("unchecked")
+    protected final boolean anyTask(Predicate<T> p) {
+        for (BaseTask t : tasks) {
+            if (p.test((T) t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The task snapshot only ever contains tasks of type T, as enforced by
+    // the add() method
+    @SuppressWarnings("unchecked")
+    private List<T> asList(BaseTask[] snapshot) {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(snapshot));
     }
 
 }
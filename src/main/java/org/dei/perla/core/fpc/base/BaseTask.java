@@ -1,14 +1,27 @@
 package org.dei.perla.core.fpc.base;
 
 import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.BatchTaskHandler;
+import org.dei.perla.core.fpc.Deadband;
+import org.dei.perla.core.fpc.Filter;
 import org.dei.perla.core.fpc.FpcException;
+import org.dei.perla.core.fpc.OverloadPolicy;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
+import org.dei.perla.core.fpc.Window;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.Sample;
-import org.dei.perla.core.utils.AsyncUtils;
+import org.dei.perla.core.fpc.SampleBatch;
+import org.dei.perla.core.fpc.SampleBatchHandler;
+import org.dei.perla.core.utils.Check;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * An abstract implementation of the {@link Task} interface. It is the base
@@ -23,11 +36,44 @@ public abstract class BaseTask implements Task {
     protected final Logger log;
 
     private boolean hasStarted = false;
-    private boolean running = false;
+    private volatile boolean running = false;
+
+    // Serializes sample delivery with the asynchronous completion
+    // notifications, to guarantee that no sample reaches the TaskHandler
+    // after the Task has stopped. This lock is never held while acquiring
+    // the Operation or Task monitors.
+    private final Lock deliveryLock = new ReentrantLock();
+    // Completion notification waiting for the delivery in progress, run by
+    // the thread that releases the delivery lock
+    private final AtomicReference<Runnable> chained = new AtomicReference<>();
+
+    // Optional delivery queue, decouples the Operation from the TaskHandler
+    private volatile DeliveryQueue queue = null;
+    // Serializes the processing stages preceding the delivery queue, so
+    // that concurrent producers update the deadband reference and the
+    // window in order. This lock is never held while waiting for the queue
+    // or while invoking the TaskHandler.
+    private final Object stageLock = new Object();
+
+    // Optional batch accumulator, only used with BatchTaskHandlers and
+    // SampleBatchHandlers
+    private volatile SampleBatcher batcher = null;
+
+    // Optional windowed aggregation stage
+    private volatile WindowAggregator window = null;
+
+    // Optional compiled filter predicate
+    private volatile Predicate<Object[]> filter = null;
+
+    // Optional change-only reporting stage
+    private volatile DeadbandFilter deadband = null;
+
+    // Execution lane of the work performed on behalf of this task
+    private volatile QosClass qos = QosClass.NORMAL;
 
     private final BaseOperation<? extends BaseTask> op;
     private final SamplePipeline pipeline;
-    private final List<Attribute> atts;
+    private volatile List<Attribute> atts;
     private final TaskHandler handler;
 
     /**
@@ -59,10 +105,251 @@ public abstract class BaseTask implements Task {
     }
 
     @Override
-    public final synchronized boolean isRunning() {
+    public final boolean isRunning() {
         return running;
     }
 
+    @Override
+    public final int getQueueSize() {
+        DeliveryQueue q = queue;
+        return q == null ? 0 : q.size();
+    }
+
+    @Override
+    public final long getDroppedCount() {
+        DeliveryQueue q = queue;
+        return q == null ? 0 : q.dropped();
+    }
+
+    /**
+     * Applies the {@link TaskOptions} requested by the user to this
+     * {@code BaseTask}. All processing stages are built (and their
+     * configuration validated) by this method.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param opts {@link TaskOptions} to apply
+     * @throws IllegalArgumentException if the {@link TaskOptions} cannot be
+     * applied to this {@code BaseTask}
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void configure(TaskOptions opts)
+            throws IllegalArgumentException, IllegalStateException {
+        // The QosClass must be visible before the task is registered, as
+        // the Operation may run its first Script while scheduling the task
+        setQos(opts.getQos());
+        if (opts.isQueued()) {
+            setDeliveryQueue(opts.getQueueCapacity(),
+                    opts.getOverloadPolicy());
+        }
+        if (opts.isFiltered()) {
+            setFilter(opts.getFilter());
+        }
+        if (opts.hasDeadband()) {
+            setDeadband(opts.getDeadband());
+        }
+        if (opts.isAdaptive()) {
+            setAdaptive(opts.getMaxPeriod(), opts.getTolerance());
+        }
+        // The window must be set before batching, as it changes the
+        // attributes delivered to the batch accumulator
+        if (opts.isWindowed()) {
+            setWindow(opts.getWindow());
+        }
+        if (opts.isBatched()) {
+            setBatching(opts.getBatchSize(), opts.getBatchDelay());
+        }
+    }
+
+    /**
+     * Configures a bounded delivery queue for this {@code BaseTask}. Once
+     * the queue is set, new {@link Sample}s are relayed to the
+     * {@link TaskHandler} by a dedicated dispatcher instead of the thread
+     * that produced them.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param capacity maximum number of {@link Sample}s waiting for delivery
+     * @param policy policy applied when the queue is full
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setDeliveryQueue(int capacity,
+            OverloadPolicy policy) throws IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set delivery queue, " +
+                    "BaseTask has already been started");
+        }
+        queue = new DeliveryQueue(capacity, policy, this::deliver);
+    }
+
+    /**
+     * Configures this {@code BaseTask} to deliver {@link Sample}s in
+     * batches. A batch is delivered when it reaches the maximum size, or
+     * when the maximum delay expires after the arrival of its first
+     * {@link Sample}. {@link SampleBatchHandler}s receive their data in
+     * columnar form, appended directly by the {@link SamplePipeline}.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param size maximum number of {@link Sample}s in a batch
+     * @param maxDelay maximum batching delay in milliseconds, zero to
+     *                 disable the batch timer
+     * @throws IllegalArgumentException if the {@link TaskHandler} of this
+     * {@code BaseTask} is neither a {@link BatchTaskHandler} nor a
+     * {@link SampleBatchHandler}
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setBatching(int size, long maxDelay)
+            throws IllegalArgumentException, IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set batching, " +
+                    "BaseTask has already been started");
+        }
+        if (handler instanceof SampleBatchHandler) {
+            // Batches share the schema of the Samples they collect
+            WindowAggregator w = window;
+            batcher = new SampleBatcher(size, maxDelay, this::flushBatch,
+                    w != null ? w.getSchema() : pipeline.getSchema());
+        } else if (handler instanceof BatchTaskHandler) {
+            batcher = new SampleBatcher(size, maxDelay, this::flushBatch);
+        } else {
+            throw new IllegalArgumentException("Batch delivery requires a " +
+                    "BatchTaskHandler or a SampleBatchHandler");
+        }
+    }
+
+    /**
+     * Configures this {@code BaseTask} to aggregate the output of its
+     * {@link SamplePipeline} over a time-based {@link Window}. Once the
+     * window is set, the {@link TaskHandler} receives a single
+     * {@link Sample} per window, and the {@link Attribute}s of this
+     * {@code BaseTask} are replaced by the aggregate {@link Attribute}s.
+     * Windows are closed by the arrival of new {@link Sample}s; the last,
+     * possibly partial, window is delivered when the {@code BaseTask} stops.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param w {@link Window} to compute
+     * @throws IllegalArgumentException if the {@link Window} aggregates
+     * {@link Attribute}s that are not produced by this {@code BaseTask}
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setWindow(Window w)
+            throws IllegalArgumentException, IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set window, " +
+                    "BaseTask has already been started");
+        } else if (batcher != null) {
+            throw new IllegalStateException("Cannot set window, " +
+                    "window must be set before batching");
+        }
+        WindowAggregator wa = new WindowAggregator(w, pipeline.getAttributes());
+        atts = wa.getAttributes();
+        window = wa;
+    }
+
+    /**
+     * Configures this {@code BaseTask} to deliver only the {@link Sample}s
+     * that satisfy a {@link Filter}. The {@link Filter} is compiled once,
+     * and is evaluated on the raw data produced by the {@link Operation},
+     * before any {@link Sample} is created.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param f {@link Filter} predicate
+     * @throws IllegalArgumentException if the {@link Filter} references
+     * {@link Attribute}s that are not sampled by this {@code BaseTask}
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setFilter(Filter f)
+            throws IllegalArgumentException, IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set filter, " +
+                    "BaseTask has already been started");
+        }
+        filter = f.compile(pipeline.getInputAttributes());
+    }
+
+    /**
+     * Configures this {@code BaseTask} to report new {@link Sample}s only
+     * when the monitored {@link Attribute}s change by more than the
+     * {@link Deadband} thresholds. Suppressed samples are discarded before
+     * entering the {@link SamplePipeline}.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param d {@link Deadband} policy
+     * @throws IllegalArgumentException if the {@link Deadband} monitors
+     * {@link Attribute}s that are not sampled by this {@code BaseTask}
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setDeadband(Deadband d)
+            throws IllegalArgumentException, IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set deadband, " +
+                    "BaseTask has already been started");
+        }
+        deadband = new DeadbandFilter(d, pipeline.getInputAttributes());
+    }
+
+    /**
+     * Enables adaptive sampling. Adaptive sampling is only supported by
+     * periodic tasks, this implementation always throws an
+     * {@code IllegalArgumentException}.
+     *
+     * @param maxPeriod maximum sampling period in milliseconds
+     * @param tolerance maximum prediction error
+     * @throws IllegalArgumentException if adaptive sampling is not
+     * supported, or if its parameters are invalid
+     */
+    protected void setAdaptive(long maxPeriod, double tolerance)
+            throws IllegalArgumentException {
+        throw new IllegalArgumentException("Adaptive sampling is only " +
+                "available for periodic tasks");
+    }
+
+    /**
+     * Sets the {@link QosClass} of this {@code BaseTask}. The
+     * {@link org.dei.perla.core.engine.Script}s run on behalf of this
+     * {@code BaseTask} are executed in the lane of its {@link QosClass}.
+     *
+     * <p>
+     * This method must be invoked before the {@code BaseTask} is started.
+     *
+     * @param qos {@link QosClass} of the task
+     * @throws IllegalStateException if the {@code BaseTask} was already
+     * started
+     */
+    protected final synchronized void setQos(QosClass qos)
+            throws IllegalStateException {
+        if (hasStarted) {
+            throw new IllegalStateException("Cannot set QoS class, " +
+                    "BaseTask has already been started");
+        }
+        this.qos = Check.notNull(qos, "qos");
+    }
+
+    /**
+     * Returns the {@link QosClass} of this {@code BaseTask}.
+     *
+     * @return {@link QosClass} of the task
+     */
+    public final QosClass getQos() {
+        return qos;
+    }
+
     /**
      * Returns the {@link Operation} used to schedule this {@link Task}
      *
@@ -106,7 +393,7 @@ public abstract class BaseTask implements Task {
                 doStop();
                 op.remove(this);
                 // Invoke in new thread to preserve asynchronous locking semantics
-                AsyncUtils.runInNewThread(() -> handler.complete(this));
+                notifyAfterDelivery(() -> handler.complete(this));
             }
         }
     }
@@ -146,7 +433,7 @@ public abstract class BaseTask implements Task {
         }
         running = false;
         doStop();
-        handler.error(this, cause);
+        notifyAfterDelivery(() -> handler.error(this, cause));
     }
 
     /**
@@ -168,7 +455,165 @@ public abstract class BaseTask implements Task {
         }
         running = false;
         doStop();
-        handler.complete(this);
+        notifyAfterDelivery(() -> handler.complete(this));
+    }
+
+    /**
+     * Runs a {@link TaskHandler} notification in a new thread, once any
+     * {@link Sample} delivery still in progress on this {@code BaseTask} has
+     * terminated. This preserves the asynchronous locking semantics of the
+     * {@link Operation}, and ensures that the {@link TaskHandler} does not
+     * receive any new {@link Sample} after being notified of the
+     * {@code BaseTask} termination.
+     *
+     * <p>
+     * The notification never waits for the delivery lock: if a delivery is
+     * in progress, the notification is chained behind it and dispatched
+     * again when the delivery lock is released.
+     *
+     * @param notification notification to run
+     */
+    private void notifyAfterDelivery(Runnable notification) {
+        DeliveryQueue q = queue;
+        if (q != null) {
+            // Pending samples are discarded, the task has been stopped
+            q.close(afterBatch(notification), true);
+            return;
+        }
+        chained.set(afterBatch(notification));
+        op.dispatch(this::runChained);
+    }
+
+    /**
+     * Runs the chained notification, if any, provided that no delivery is
+     * in progress. Otherwise the notification is left in place, and is
+     * dispatched by the thread holding the delivery lock once it is done.
+     */
+    private void runChained() {
+        while (chained.get() != null && deliveryLock.tryLock()) {
+            try {
+                Runnable r = chained.getAndSet(null);
+                if (r != null) {
+                    r.run();
+                }
+            } finally {
+                deliveryLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases the delivery lock, and dispatches the notification chained
+     * behind the delivery that just ended (if any).
+     */
+    private void unlockDelivery() {
+        deliveryLock.unlock();
+        if (chained.get() != null) {
+            op.dispatch(this::runChained);
+        }
+    }
+
+    /**
+     * Returns a {@link Runnable} that delivers the last window and the last
+     * batch of {@link Sample}s (if any) before running the notification passed as
+     * parameter.
+     *
+     * @param notification notification to run
+     * @return notification preceded by the delivery of the last batch
+     */
+    private Runnable afterBatch(Runnable notification) {
+        return () -> {
+            closeWindow();
+            closeBatch();
+            notification.run();
+        };
+    }
+
+    /**
+     * Hands over a processed {@link Sample} to the {@link TaskHandler},
+     * either immediately or through the batch accumulator.
+     *
+     * @param s {@link Sample} to deliver
+     */
+    private void deliver(Sample s) {
+        SampleBatcher b = batcher;
+        if (b == null) {
+            handler.data(this, s);
+        } else if (b.add(s)) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Delivers the current batch of {@link Sample}s to the
+     * {@link BatchTaskHandler}. Holding the delivery lock guarantees that
+     * batches are delivered in order, regardless of the thread that
+     * triggered the flush (size limit or delay timer).
+     */
+    private void flushBatch() {
+        deliveryLock.lock();
+        try {
+            deliverBatch(batcher, false);
+        } finally {
+            unlockDelivery();
+        }
+    }
+
+    /**
+     * Delivers the aggregate of the current, possibly partial, window and
+     * stops aggregating. The aggregate goes through the batch accumulator,
+     * hence this method must be invoked before {@code closeBatch()}.
+     */
+    private void closeWindow() {
+        WindowAggregator w = window;
+        if (w == null) {
+            return;
+        }
+        deliveryLock.lock();
+        try {
+            w.close(this::deliver);
+        } finally {
+            unlockDelivery();
+        }
+    }
+
+    /**
+     * Delivers the last batch of {@link Sample}s and stops batching. Timers
+     * expiring after this method has been invoked will not produce any new
+     * delivery.
+     */
+    private void closeBatch() {
+        SampleBatcher b = batcher;
+        if (b == null) {
+            return;
+        }
+        deliveryLock.lock();
+        try {
+            deliverBatch(b, true);
+        } finally {
+            unlockDelivery();
+        }
+    }
+
+    /**
+     * Drains the {@link SampleBatcher} and hands over its contents to the
+     * {@link TaskHandler}. Must be invoked while holding the delivery lock.
+     *
+     * @param b {@link SampleBatcher} to drain
+     * @param close closes the {@link SampleBatcher} if set to true
+     */
+    private void deliverBatch(SampleBatcher b, boolean close) {
+        if (b.isColumnar()) {
+            SampleBatch columns = close ? b.closeColumns() : b.drainColumns();
+            if (columns != null) {
+                ((SampleBatchHandler) handler).data(this, columns);
+            }
+        } else {
+            List<Sample> samples = close ? b.close() : b.drain();
+            if (!samples.isEmpty()) {
+                ((BatchTaskHandler) handler).data(this, samples);
+            }
+        }
     }
 
 
@@ -183,18 +628,83 @@ public abstract class BaseTask implements Task {
      * produced by the remote device.
      *
      * <p>
+     * The {@link TaskHandler} is invoked without holding any lock to the
+     * {@code BaseTask} or to its parent {@link BaseOperation}. Hence, a slow
+     * {@link TaskHandler} only delays the delivery of the {@link Sample}s
+     * destined to its own {@code BaseTask}.
+     *
+     * <p>
      * Invoking this method does not produce any effect if the
      * {@code BaseTask} is stopped
      *
      * @param sample
      *            sample to be processed
      */
-    protected final synchronized void processSample(Object[] sample) {
-        if (!running) {
+    protected final void processSample(Object[] sample) {
+        Predicate<Object[]> f = filter;
+        if (f != null && !f.test(sample)) {
             return;
         }
-        Sample output = pipeline.run(sample);
-        handler.data(this, output);
+
+        // The deadband reference is committed only once the sample has
+        // been handed over, samples dropped by a stopped task or by the
+        // delivery queue must not suppress the following ones
+        DeadbandFilter d = deadband;
+        WindowAggregator w = window;
+        DeliveryQueue q = queue;
+        if (q != null) {
+            while (true) {
+                synchronized (stageLock) {
+                    if (!running) {
+                        return;
+                    }
+                    // A full queue never blocks the offer while the lock is
+                    // held, only this method adds samples to the queue
+                    if (!q.wouldBlock()) {
+                        if (d != null && !d.accept(sample)) {
+                            return;
+                        }
+                        boolean delivered = true;
+                        if (w != null) {
+                            w.add(pipeline.process(sample), q::offer);
+                        } else {
+                            delivered = q.offer(pipeline.run(sample));
+                        }
+                        if (d != null && delivered) {
+                            d.commit(sample);
+                        }
+                        return;
+                    }
+                }
+                // Wait for the consumer outside of the lock, then check the
+                // deadband again, as the reference may have changed
+                if (!q.awaitSpace()) {
+                    return;
+                }
+            }
+        }
+
+        deliveryLock.lock();
+        try {
+            if (!running || (d != null && !d.accept(sample))) {
+                return;
+            }
+            if (w != null) {
+                w.add(pipeline.process(sample), this::deliver);
+            } else {
+                SampleBatcher b = batcher;
+                if (b == null) {
+                    handler.data(this, pipeline.run(sample));
+                } else if (b.add(pipeline, sample)) {
+                    flushBatch();
+                }
+            }
+            if (d != null) {
+                d.commit(sample);
+            }
+        } finally {
+            unlockDelivery();
+        }
     }
 
     /**
@@ -210,6 +720,14 @@ public abstract class BaseTask implements Task {
      * {@code BaseTask} is stopped
      */
     protected final void notifyComplete() {
+        if (queue == null) {
+            // Without a delivery queue all samples produced so far are
+            // already in the window or in the batch, flush them outside of
+            // the locks
+            closeWindow();
+            closeBatch();
+        }
+
         // Acquiring locks in the same order as they are acquired in the
         // corresponding Operation (Operation first, then Task) to avoid
         // deadlock
@@ -220,7 +738,13 @@ public abstract class BaseTask implements Task {
                 }
                 running = false;
                 op.remove(this);
-                handler.complete(this);
+                DeliveryQueue q = queue;
+                if (q != null) {
+                    // Complete after all pending samples are delivered
+                    q.close(afterBatch(() -> handler.complete(this)), false);
+                } else {
+                    handler.complete(this);
+                }
             }
         }
     }
@@ -244,6 +768,11 @@ public abstract class BaseTask implements Task {
      *            Stops the {@link BaseTask} if set to true
      */
     protected final void notifyError(Throwable cause, boolean stop) {
+        if (stop && queue == null) {
+            closeWindow();
+            closeBatch();
+        }
+
         // Acquiring locks in the same order as they are acquired in the
         // corresponding Operation (Operation first, then Task) to avoid
         // deadlock
@@ -252,11 +781,17 @@ public abstract class BaseTask implements Task {
                 if (!running) {
                     return;
                 }
+                DeliveryQueue q = queue;
                 if (stop) {
                     running = false;
                     op.remove(this);
                 }
-                handler.error(this, cause);
+                if (stop && q != null) {
+                    q.close(afterBatch(() -> handler.error(this, cause)),
+                            false);
+                } else {
+                    handler.error(this, cause);
+                }
             }
         }
     }
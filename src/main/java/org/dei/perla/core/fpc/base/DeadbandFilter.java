@@ -0,0 +1,132 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Deadband;
+import org.dei.perla.core.fpc.Deadband.Threshold;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Change-only reporting stage of a {@link BaseTask}. The
+ * {@code DeadbandFilter} inspects the raw data produced by the
+ * {@link Operation}, before it is processed by the {@link SamplePipeline},
+ * so that suppressed samples never allocate a new
+ * {@link org.dei.perla.core.fpc.Sample}.
+ *
+ * <p>
+ * The last reported values of the monitored attributes are kept in a
+ * primitive array.
+ */
+final class DeadbandFilter {
+
+    private final int[] src;
+    private final double[] threshold;
+    private final boolean[] relative;
+    private final int heartbeat;
+
+    private final double[] last;
+    private final boolean[] missing;
+    private boolean first = true;
+    private int suppressed = 0;
+
+    /**
+     * Creates a new {@code DeadbandFilter}
+     *
+     * @param d {@link Deadband} policy
+     * @param in {@link Attribute}s of the raw data
+     * @throws IllegalArgumentException if a monitored {@link Attribute} is
+     * missing or is not numeric
+     */
+    protected DeadbandFilter(Deadband d, List<Attribute> in)
+            throws IllegalArgumentException {
+        List<Threshold> ts = d.getThresholds();
+        int n = ts.size();
+        src = new int[n];
+        threshold = new double[n];
+        relative = new boolean[n];
+        last = new double[n];
+        missing = new boolean[n];
+        heartbeat = d.getHeartbeat();
+
+        for (int i = 0; i < n; i++) {
+            Threshold t = ts.get(i);
+            src[i] = indexOf(in, t.getAttributeId());
+            if (src[i] == -1) {
+                throw new IllegalArgumentException("Cannot monitor " +
+                        "attribute '" + t.getAttributeId() + "', attribute " +
+                        "is not sampled by the task");
+            }
+            if (!DataType.NUMERIC.match(in.get(src[i]).getType())) {
+                throw new IllegalArgumentException("Cannot apply deadband " +
+                        "to non-numeric attribute '" + t.getAttributeId() +
+                        "'");
+            }
+            threshold[i] = t.getValue();
+            relative[i] = t.isRelative();
+        }
+    }
+
+    private static int indexOf(List<Attribute> atts, String id) {
+        for (int i = 0; i < atts.size(); i++) {
+            if (atts.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decides whether the raw sample passed as parameter has to be
+     * reported. The reference values are not modified: samples that are
+     * actually handed over to the consumer must be registered through the
+     * {@code commit()} method, so that a sample accepted by the
+     * {@code DeadbandFilter} and then dropped by the {@link BaseTask} does
+     * not become the reference for the following decisions.
+     *
+     * @param sample raw sample produced by the {@link Operation}
+     * @return true if the sample has to be reported, false if it has to be
+     * suppressed
+     */
+    public synchronized boolean accept(Object[] sample) {
+        boolean report = first ||
+                (heartbeat > 0 && suppressed + 1 >= heartbeat);
+        for (int i = 0; !report && i < src.length; i++) {
+            report = changed(i, sample[src[i]]);
+        }
+
+        if (!report) {
+            suppressed++;
+        }
+        return report;
+    }
+
+    /**
+     * Registers a reported sample as the new reference for the following
+     * decisions.
+     *
+     * @param sample raw sample handed over to the consumer
+     */
+    public synchronized void commit(Object[] sample) {
+        for (int i = 0; i < src.length; i++) {
+            Object o = sample[src[i]];
+            missing[i] = o == null;
+            last[i] = o == null ? 0 : ((Number) o).doubleValue();
+        }
+        first = false;
+        suppressed = 0;
+    }
+
+    private boolean changed(int i, Object o) {
+        if (o == null || missing[i]) {
+            return (o == null) != missing[i];
+        }
+        double delta = Math.abs(((Number) o).doubleValue() - last[i]);
+        if (relative[i]) {
+            return delta > threshold[i] * Math.abs(last[i]);
+        }
+        return delta > threshold[i];
+    }
+
+}
@@ -0,0 +1,249 @@
+package org.dei.perla.core.fpc.base;
+
+import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.OverloadPolicy;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.utils.Dispatcher;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A bounded queue employed to decouple the production of new {@link Sample}s
+ * from their consumption. {@link Sample}s are relayed to the consumer
+ * function sequentially, in the same order in which they were produced.
+ *
+ * <p>
+ * Delivery is performed by a drain job submitted to a shared thread pool
+ * only when the queue contains some {@link Sample}s. This allows the
+ * creation of a large number of {@code DeliveryQueue}s without requiring a
+ * dedicated {@link Thread} for each one of them.
+ *
+ * <p>
+ * The drain pool is a bounded {@link Dispatcher}, separate from the one
+ * used for the callbacks and from the pool of the
+ * {@link org.dei.perla.core.utils.TimerWheel}: producers waiting for a
+ * full queue under the {@code BLOCK} policy never occupy the threads of
+ * the drain they are waiting for. A drain job relays at most
+ * {@code DRAIN_BATCH} {@link Sample}s before yielding its thread to the
+ * other queues, hence a slow consumer only delays the delivery of its own
+ * {@link Sample}s. Consumers must not wait for other
+ * {@code DeliveryQueue}s, as they would occupy a drain thread.
+ */
+final class DeliveryQueue {
+
+    private static final Logger log = Logger.getLogger(DeliveryQueue.class);
+
+    // Maximum number of samples relayed by a drain job before yielding
+    private static final int DRAIN_BATCH = 64;
+
+    private static final Dispatcher drains =
+            new Dispatcher(Dispatcher.DEFAULT_THREADS, "DeliveryQueue_");
+
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final Consumer<Sample> consumer;
+
+    private final Deque<Sample> queue = new ArrayDeque<>();
+
+    private boolean draining = false;
+    private boolean closed = false;
+    private Runnable last = null;
+    private long dropped = 0;
+
+    /**
+     * Creates a new {@code DeliveryQueue}
+     *
+     * @param capacity maximum number of {@link Sample}s in the queue
+     * @param policy policy applied when the queue is full
+     * @param consumer function invoked to consume the queued {@link Sample}s
+     */
+    protected DeliveryQueue(int capacity, OverloadPolicy policy,
+            Consumer<Sample> consumer) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Returns the number of {@link Sample}s waiting to be consumed
+     *
+     * @return number of queued {@link Sample}s
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of {@link Sample}s discarded due to the
+     * {@link OverloadPolicy} of this queue
+     *
+     * @return number of discarded {@link Sample}s
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Adds a new {@link Sample} to the queue, enforcing the
+     * {@link OverloadPolicy}. This method has no effect if the queue is
+     * closed.
+     *
+     * @param s {@link Sample} to add
+     * @return true if the {@link Sample} was added to the queue, false if
+     * it was discarded
+     */
+    public synchronized boolean offer(Sample s) {
+        if (closed) {
+            return false;
+        }
+
+        switch (policy) {
+            case BLOCK:
+                while (queue.size() >= capacity && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped++;
+                        return false;
+                    }
+                }
+                if (closed) {
+                    return false;
+                }
+                break;
+            case DROP_NEWEST:
+                if (queue.size() >= capacity) {
+                    dropped++;
+                    return false;
+                }
+                break;
+            case DROP_OLDEST:
+                if (queue.size() >= capacity) {
+                    queue.poll();
+                    dropped++;
+                }
+                break;
+            case LATEST:
+                dropped += queue.size();
+                queue.clear();
+                break;
+            default:
+                throw new RuntimeException("Unknown overload policy " + policy);
+        }
+
+        queue.add(s);
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * Indicates if the {@code offer()} method would block, i.e., if the
+     * queue is full and its {@link OverloadPolicy} is {@code BLOCK}.
+     *
+     * @return true if a new {@link Sample} cannot be added without waiting
+     */
+    public synchronized boolean wouldBlock() {
+        return policy == OverloadPolicy.BLOCK && !closed &&
+                queue.size() >= capacity;
+    }
+
+    /**
+     * Waits until a new {@link Sample} can be added to the queue without
+     * blocking. Producers use this method to wait for the consumer without
+     * holding any lock.
+     *
+     * @return true if the queue can accept a new {@link Sample}, false if
+     * the queue was closed or if the thread was interrupted while waiting
+     */
+    public synchronized boolean awaitSpace() {
+        while (wouldBlock()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped++;
+                return false;
+            }
+        }
+        return !closed;
+    }
+
+    /**
+     * Closes the queue. The {@link Runnable} passed as parameter is run
+     * after all {@link Sample}s still in the queue have been consumed. All
+     * {@link Sample}s offered after the queue is closed are ignored.
+     *
+     * @param last final action to run once the queue is empty, may be null
+     * @param discard discards the {@link Sample}s still in the queue if set
+     *                to true
+     */
+    public synchronized void close(Runnable last, boolean discard) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (discard) {
+            queue.clear();
+        }
+        this.last = last;
+        // Wake up producers blocked on a full queue
+        notifyAll();
+        scheduleDrain();
+    }
+
+    /**
+     * Returns the {@link Dispatcher} running the drain jobs of all
+     * {@code DeliveryQueue}s, mainly for monitoring purposes.
+     *
+     * @return drain {@link Dispatcher}
+     */
+    static Dispatcher getDrainDispatcher() {
+        return drains;
+    }
+
+    private void scheduleDrain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        drains.execute(this::drain);
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Sample s;
+            Runnable fin = null;
+            synchronized (this) {
+                s = queue.poll();
+                if (s == null) {
+                    draining = false;
+                    fin = last;
+                    last = null;
+                } else {
+                    notifyAll();
+                }
+            }
+
+            if (s == null) {
+                if (fin != null) {
+                    fin.run();
+                }
+                return;
+            }
+
+            try {
+                consumer.accept(s);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error while consuming sample", e);
+            }
+        }
+
+        // Yield to the other queues, the draining flag is still set
+        drains.execute(this::drain);
+    }
+
+}
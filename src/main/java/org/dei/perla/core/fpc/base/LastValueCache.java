@@ -0,0 +1,109 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Per-{@link org.dei.perla.core.fpc.Fpc} cache of the most recent value
+ * sampled for every {@link Attribute}, fed by all the {@link BaseOperation}s
+ * of the {@link org.dei.perla.core.fpc.Fpc}.
+ *
+ * <p>
+ * Every {@link Attribute} is associated with a {@link Slot}, which stores
+ * the last value and the time at which it was sampled. Operations resolve
+ * their slots once, when they are attached to the cache, so that updates
+ * do not require any lookup or lock.
+ */
+final class LastValueCache {
+
+    private final Map<Attribute, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@link Slot}s of the {@link Attribute}s passed as
+     * parameter, in the same order.
+     *
+     * @param atts {@link Attribute}s
+     * @return {@link Slot} array
+     */
+    protected Slot[] slots(List<Attribute> atts) {
+        Slot[] s = new Slot[atts.size()];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = slots.computeIfAbsent(atts.get(i), a -> new Slot());
+        }
+        return s;
+    }
+
+    /**
+     * Stores the non-null values passed as parameter.
+     *
+     * @param slots destination {@link Slot}s
+     * @param values values to store
+     * @param base position of the first value in the {@link Slot} array
+     */
+    protected static void update(Slot[] slots, Object[] values, int base) {
+        long now = System.nanoTime();
+        int n = Math.min(values.length, slots.length - base);
+        for (int i = 0; i < n; i++) {
+            if (values[i] != null) {
+                slots[base + i].set(values[i], now);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the cached values of the {@link Attribute}s passed as
+     * parameter.
+     *
+     * @param atts {@link Attribute}s to retrieve
+     * @param maxAge maximum age of the values, in nanoseconds
+     * @return cached values, in the same order of the {@link Attribute}s,
+     * or null if at least one value is missing or older than
+     * {@code maxAge}
+     */
+    protected Object[] lookup(List<Attribute> atts, long maxAge) {
+        long now = System.nanoTime();
+        Object[] values = new Object[atts.size()];
+        for (int i = 0; i < values.length; i++) {
+            Slot s = slots.get(atts.get(i));
+            if (s == null) {
+                return null;
+            }
+            values[i] = s.get(now, maxAge);
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Most recent value of an {@link Attribute}. The value is written
+     * before the timestamp, and read after it: a reader that observes a
+     * fresh timestamp also observes a value at least as recent.
+     */
+    protected static final class Slot {
+
+        private volatile Object value = null;
+        private volatile long time = 0;
+
+        private void set(Object value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+
+        private Object get(long now, long maxAge) {
+            long t = time;
+            Object v = value;
+            if (v == null || now - t > maxAge) {
+                return null;
+            }
+            return v;
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ import org.dei.perla.core.engine.Executor;
 import org.dei.perla.core.engine.Script;
 import org.dei.perla.core.engine.ScriptHandler;
 import org.dei.perla.core.engine.ScriptParameter;
+import org.dei.perla.core.engine.UnsupportedPeriodException;
 import org.dei.perla.core.fpc.FpcException;
 import org.dei.perla.core.message.FpcMessage;
 import org.dei.perla.core.fpc.Attribute;
@@ -12,19 +13,45 @@ import org.dei.perla.core.utils.Check;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+/**
+ * <p>
+ * {@link PeriodicOperation} that relies on the native sampling capabilities
+ * of the device. The sampling activity is controlled with a start and a stop
+ * {@link Script}, while the samples are extracted from the messages pushed
+ * by the device.
+ *
+ * <p>
+ * Devices that can change their sampling rate while sampling may also
+ * provide an optional change {@link Script}. When available, the sampling
+ * period is changed in place, without interrupting the data stream for the
+ * {@link PeriodicTask}s already running. Otherwise, the sampling activity is
+ * restarted by running the stop and the start {@link Script}s.
+ *
+ * <p>
+ * Sampling periods rejected by the device are recorded in a
+ * {@link PeriodTable} along with the period suggested by the device. Known
+ * unsupported periods are replaced with the suggested ones before running
+ * the start or change {@link Script}s.
+ */
 public final class NativePeriodicOperation extends PeriodicOperation {
 
     // Operation states
     private static final int STOPPED = 0;
     private static final int STARTING = 1;
     private static final int RUNNING = 2;
+    private static final int CHANGING = 3;
 
     private final Script start;
     private final Script stop;
+    // Optional, null if the device cannot change the period while sampling
+    private final Script change;
 
     private final ChannelManager chanMgr;
+    private volatile PeriodTable periods = new PeriodTable();
     private final Map<String, OnScriptHandler> handlers = new HashMap<>();
 
     // Operation state
@@ -32,15 +59,17 @@ public final class NativePeriodicOperation extends PeriodicOperation {
 
     // Current sample, used to merge the results from different async messages
     // The currentSample contains an up-to-date view on the most recent value
-    // of all attributes managed by the Operation
-    private final Object[] currentSample;
+    // of all attributes managed by the Operation. Every merge publishes a
+    // new version of the array, published arrays are never modified.
+    private final AtomicReference<Object[]> currentSample;
 
     public NativePeriodicOperation(String id, List<Attribute> atts,
-            Script start, Script stop, List<MessageScript> msgs,
-            ChannelManager chanMgr) {
+            Script start, Script stop, Script change,
+            List<MessageScript> msgs, ChannelManager chanMgr) {
         super(id, atts);
         this.start = start;
         this.stop = stop;
+        this.change = change;
         this.chanMgr = chanMgr;
 
         int nAtt = 0;
@@ -49,7 +78,22 @@ public final class NativePeriodicOperation extends PeriodicOperation {
             handlers.put(m.getMapper().getMessageId(), osh);
             nAtt += m.getScript().getEmit().size();
         }
-        currentSample = new Object[nAtt];
+        currentSample = new AtomicReference<>(new Object[nAtt]);
+    }
+
+    /**
+     * Sets the {@link PeriodTable} used to negotiate the sampling period
+     * with the device. The {@link PeriodTable} is released when the
+     * operation is stopped.
+     *
+     * @param t {@link PeriodTable}
+     */
+    protected void setPeriodTable(PeriodTable t) {
+        periods = Check.notNull(t, "periods");
+    }
+
+    protected PeriodTable getPeriodTable() {
+        return periods;
     }
 
     public Script getStartScript() {
@@ -60,6 +104,17 @@ public final class NativePeriodicOperation extends PeriodicOperation {
         return stop;
     }
 
+    /**
+     * Returns the {@link Script} used to change the sampling period while
+     * the device is sampling.
+     *
+     * @return change {@link Script}, null if the sampling period can only
+     * be changed by restarting the sampling activity
+     */
+    public Script getChangeScript() {
+        return change;
+    }
+
     /**
      * <p>
      * Sets the sampling period of the current {@link Operation}. This method is
@@ -69,7 +124,10 @@ public final class NativePeriodicOperation extends PeriodicOperation {
      * <p>
      * The {@code STARTING} state guarantees that only a single start
      * {@link Script} may be running at any given time, even when multiple
-     * sampling tasks are requested concurrently.
+     * sampling tasks are requested concurrently. Similarly, the
+     * {@code CHANGING} state guarantees that a single change {@link Script}
+     * is running; the device keeps sampling at the previous rate until the
+     * change is complete.
      *
      * @param period
      *            sampling period to be set
@@ -81,10 +139,22 @@ public final class NativePeriodicOperation extends PeriodicOperation {
             return;
         } else if (period == 0 && currentPeriod != 0) {
             currentPeriod = 0;
+            if (state == CHANGING) {
+                // Let the stop handler settle the final state
+                state = STARTING;
+            }
             runStopScript();
             return;
         }
 
+        long negotiated = periods.negotiate(period);
+        if (state == RUNNING && negotiated == currentPeriod) {
+            // The device is already sampling at the closest supported rate
+            forEachTask(t -> t.setInputPeriod(negotiated));
+            return;
+        }
+        period = negotiated;
+
         switch (state) {
             case STOPPED:
                 state = STARTING;
@@ -92,14 +162,21 @@ public final class NativePeriodicOperation extends PeriodicOperation {
                 currentPeriod = period;
                 break;
             case STARTING:
-                // Operation is still starting, just change the currentPeriod so
-                // that the starting handler can update the sampling
+            case CHANGING:
+                // Operation is still starting or changing period, just change
+                // the currentPeriod so that the handler can update the
+                // sampling
                 currentPeriod = period;
                 break;
             case RUNNING:
-                state = STARTING;
                 currentPeriod = period;
-                runStopScript(); // stop handler will update the sampling period
+                if (change != null) {
+                    state = CHANGING;
+                    runChangeScript(period);
+                } else {
+                    state = STARTING;
+                    runStopScript(); // stop handler will update the period
+                }
                 break;
             default:
                 throw new RuntimeException("Unknown state " + state);
@@ -108,29 +185,83 @@ public final class NativePeriodicOperation extends PeriodicOperation {
 
     @Override
     protected void doStop(Consumer<Operation> handler) {
-        Executor.execute(stop, new StopScriptHandler(handler));
+        periods.release();
+        Executor.execute(stop, Executor.EMPTY_PARAMETER_ARRAY,
+                new StopScriptHandler(handler), getQos());
     }
 
     // Convenience method for running the start script
     private void runStartScript(long period) {
         ScriptParameter[] paramArray = new ScriptParameter[1];
         paramArray[0] = new ScriptParameter("period", period);
-        Executor.execute(start, paramArray, new StartScriptHandler(period));
+        Executor.execute(start, paramArray, new StartScriptHandler(period),
+                getQos());
     }
 
     // Convenience method for running the stop script
     private void runStopScript() {
-        Executor.execute(stop, new StopScriptHandler());
+        Executor.execute(stop, Executor.EMPTY_PARAMETER_ARRAY,
+                new StopScriptHandler(), getQos());
     }
 
+    /**
+     * Records a sampling period rejected by the device, and returns the
+     * period that should be requested instead of the current one.
+     *
+     * @param rejected sampling period rejected by the device
+     * @param e exception raised by the device {@link Script}
+     * @return sampling period to request, -1 if no supported period is
+     * known
+     */
+    private long negotiate(long rejected, UnsupportedPeriodException e) {
+        periods.rejected(rejected, e.getSuggested());
+        long next = periods.negotiate(currentPeriod);
+        if (next == rejected || periods.isRejected(next)) {
+            return -1;
+        }
+        return next;
+    }
+
+    // Convenience method for running the change script
+    private void runChangeScript(long period) {
+        ScriptParameter[] paramArray = new ScriptParameter[1];
+        paramArray[0] = new ScriptParameter("period", period);
+        Executor.execute(change, paramArray, new ChangeScriptHandler(period),
+                getQos());
+    }
+
+    /**
+     * Processes a message received from the device. The 'on'
+     * {@link Script} of messages that are directly distributed to the
+     * {@link PeriodicTask}s is only run if at least one {@link PeriodicTask}
+     * is going to relay the resulting sample. Synchronous messages that no
+     * {@link PeriodicTask} is going to relay are only merged with the
+     * current sample. Messages are never skipped until their 'on'
+     * {@link Script} has been observed to emit a single record, and are
+     * always processed once it emits more than one.
+     *
+     * @param message message received from the device
+     */
     public void handleMessage(FpcMessage message) {
         OnScriptHandler h = handlers.get(message.getId());
         MessageScript ms = h.msgs;
 
+        // Skipping a message advances the downsampling of the tasks by a
+        // single sample, only messages whose script is known to emit a
+        // single record can be skipped
+        if ((handlers.size() == 1 || ms.isSync()) && h.isSingleRecord()) {
+            if (!nextSampleNeeded()) {
+                if (handlers.size() == 1) {
+                    return;
+                }
+                h = h.mergeOnly;
+            }
+        }
+
         ScriptParameter paramArray[] = new ScriptParameter[1];
         paramArray[0] = new ScriptParameter(ms.getVariable(), message);
 
-        Executor.execute(ms.getScript(), paramArray, h);
+        Executor.execute(ms.getScript(), paramArray, h, getQos());
     }
 
     /**
@@ -153,9 +284,18 @@ public final class NativePeriodicOperation extends PeriodicOperation {
         @Override
         public void complete(Script script, List<Object[]> samples) {
             synchronized (NativePeriodicOperation.this) {
+                periods.accepted(requestedPeriod);
                 state = RUNNING;
 
-                if (currentPeriod < requestedPeriod) {
+                if (change != null && currentPeriod != requestedPeriod &&
+                        currentPeriod != 0) {
+                    // Start sampling, and change the period in place
+                    addAsyncCallback();
+                    forEachTask(t -> t.setInputPeriod(requestedPeriod));
+                    state = CHANGING;
+                    runChangeScript(currentPeriod);
+
+                } else if (currentPeriod < requestedPeriod) {
                     // Stop the current sampling operation and let the stop
                     // handler recognize that it has to restart the sampling
                     // operation with a different sampling period
@@ -178,6 +318,19 @@ public final class NativePeriodicOperation extends PeriodicOperation {
         @Override
         public void error(Script script, Throwable cause) {
             synchronized (NativePeriodicOperation.this) {
+                if (cause instanceof UnsupportedPeriodException) {
+                    if (currentPeriod == 0) {
+                        // The operation is being stopped
+                        return;
+                    }
+                    long next = negotiate(requestedPeriod,
+                            (UnsupportedPeriodException) cause);
+                    if (next != -1) {
+                        currentPeriod = next;
+                        runStartScript(next);
+                        return;
+                    }
+                }
                 unrecoverableError("Cannot start operation '" + getId() + "'",
                         cause);
             }
@@ -185,6 +338,63 @@ public final class NativePeriodicOperation extends PeriodicOperation {
 
     }
 
+    /**
+     * Handler for managing the {@link Script} that changes the sampling
+     * period of a running operation. This handler checks for sampling rate
+     * changes requested while the change script was still being executed.
+     * If the device rejects the new period, the sampling operation is
+     * restarted with the stop and start {@link Script}s.
+     */
+    private class ChangeScriptHandler implements ScriptHandler {
+
+        private final long requestedPeriod;
+
+        private ChangeScriptHandler(long period) {
+            this.requestedPeriod = period;
+        }
+
+        @Override
+        public void complete(Script script, List<Object[]> samples) {
+            synchronized (NativePeriodicOperation.this) {
+                if (state != CHANGING) {
+                    // The operation is being stopped
+                    return;
+                }
+
+                periods.accepted(requestedPeriod);
+                if (currentPeriod != requestedPeriod) {
+                    runChangeScript(currentPeriod);
+                } else {
+                    state = RUNNING;
+                    forEachTask(t -> t.setInputPeriod(currentPeriod));
+                }
+            }
+        }
+
+        @Override
+        public void error(Script script, Throwable cause) {
+            synchronized (NativePeriodicOperation.this) {
+                if (state != CHANGING) {
+                    return;
+                }
+                if (cause instanceof UnsupportedPeriodException) {
+                    long next = negotiate(requestedPeriod,
+                            (UnsupportedPeriodException) cause);
+                    if (next != -1) {
+                        currentPeriod = next;
+                        runChangeScript(next);
+                        return;
+                    }
+                }
+                log.warn("Cannot change sampling period of operation '" +
+                        getId() + "' in place, restarting", cause);
+                state = STARTING;
+                runStopScript();
+            }
+        }
+
+    }
+
     /**
      * <p>
      * Handler for managing the {@link Script} that stops this operation. This
@@ -262,9 +472,36 @@ public final class NativePeriodicOperation extends PeriodicOperation {
     private class OnScriptHandler implements ScriptHandler {
 
         private final MessageScript msgs;
+        private final boolean distribute;
+        // Handler variant that only merges the samples
+        private final OnScriptHandler mergeOnly;
+        // Maximum number of records emitted by a single run of the 'on'
+        // script, shared with the merge only variant
+        private final AtomicInteger records;
 
         private OnScriptHandler(MessageScript msgs) {
             this.msgs = msgs;
+            this.distribute = true;
+            this.records = new AtomicInteger(0);
+            this.mergeOnly = new OnScriptHandler(msgs, records);
+        }
+
+        private OnScriptHandler(MessageScript msgs, AtomicInteger records) {
+            this.msgs = msgs;
+            this.distribute = false;
+            this.records = records;
+            this.mergeOnly = this;
+        }
+
+        /**
+         * Indicates if the 'on' {@link Script} is known to emit a single
+         * record per message.
+         *
+         * @return true if every run of the 'on' {@link Script} observed so
+         * far emitted a single record, false otherwise
+         */
+        private boolean isSingleRecord() {
+            return records.get() == 1;
         }
 
         @Override
@@ -272,56 +509,66 @@ public final class NativePeriodicOperation extends PeriodicOperation {
             if (Check.nullOrEmpty(samples)) {
                 return;
             }
-
-            // Merge only short-circuit: don't even acquire a lock to the
-            // Operation if the only thing that needs to be done is merging
-            // the data
-            if (handlers.size() != 1 && !msgs.isSync()) {
-                synchronized (currentSample) {
-                    // We only care about the last sample when merging
-                    int lastIndex = samples.size() - 1;
-                    Object[] last = samples.get(lastIndex);
-                    merge(last);
-                }
+            records.accumulateAndGet(samples.size(), Math::max);
+            // Samples are pushed by the device, the sampling activity
+            // starts when the message is processed
+            long tick = System.nanoTime();
+
+            // Merge only short-circuit: only the last sample is relevant if
+            // the only thing that needs to be done is merging the data
+            if (handlers.size() != 1 && (!msgs.isSync() || !distribute)) {
+                // We only care about the last sample when merging
+                int lastIndex = samples.size() - 1;
+                merge(samples.get(lastIndex));
                 return;
             }
 
-            synchronized (NativePeriodicOperation.this) {
-                if (handlers.size() == 1) {
-                    // Distribute immediately to the Tasks if the operation only
-                    // receives one message type. Doing so avoids the cost of
-                    // merging with the current sample
-                    for (Object[] s : samples) {
-                        forEachTask(t -> t.newSample(s));
-                    }
+            if (handlers.size() == 1) {
+                // Distribute immediately to the Tasks if the operation only
+                // receives one message type. Doing so avoids the cost of
+                // merging with the current sample
+                for (Object[] s : samples) {
+                    cache(s);
+                    distribute(s, tick);
+                }
 
-                } else if (msgs.isSync()) {
-                    synchronized (currentSample) {
-                        // Merge with the current sample and distribute
-                        for (Object[] s : samples) {
-                            merge(s);
-                            forEachTask(t -> t.newSample(currentSample));
-                        }
-                    }
+            } else if (msgs.isSync()) {
+                // Merge with the current sample and distribute the version
+                // resulting from the merge. Published versions are
+                // immutable, no copy is required.
+                for (Object[] s : samples) {
+                    distribute(merge(s), tick);
                 }
             }
         }
 
         /**
          * Merges the samples received from the {@link Script} with the
-         * currentSample.
+         * currentSample. A new version of the currentSample is created and
+         * published atomically; the merge is retried if a concurrent merge
+         * published a different version in the meantime. Message handlers
+         * never block each other.
          *
          * @param s sample to merge
+         * @return version of the currentSample containing the merged values
          */
-        private void merge(Object[] s) {
-            System.arraycopy(s, 0, currentSample, msgs.getBase(), s.length);
+        private Object[] merge(Object[] s) {
+            cache(s, msgs.getBase());
+            Object[] cur;
+            Object[] next;
+            do {
+                cur = currentSample.get();
+                next = cur.clone();
+                System.arraycopy(s, 0, next, msgs.getBase(), s.length);
+            } while (!currentSample.compareAndSet(cur, next));
+            return next;
         }
 
         @Override
         public void error(Script script, Throwable cause) {
             synchronized (NativePeriodicOperation.this) {
                 Exception e = new FpcException(cause);
-                forEachTask(t -> error(script, e));
+                forEachTask(t -> t.notifyError(e, false));
             }
         }
 
@@ -1,21 +1,47 @@
 package org.dei.perla.core.fpc.base;
 
+import org.dei.perla.core.engine.Executor;
+import org.dei.perla.core.engine.Runner;
 import org.dei.perla.core.engine.Script;
+import org.dei.perla.core.engine.ScriptHandler;
+import org.dei.perla.core.engine.ScriptParameter;
 import org.dei.perla.core.fpc.TaskHandler;
 import org.dei.perla.core.fpc.Attribute;
-import org.dei.perla.core.utils.AsyncUtils;
+import org.dei.perla.core.fpc.QosClass;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
+/**
+ * <p>
+ * An {@link Operation} that runs a {@link Script} once for every
+ * {@link ScriptTask}.
+ *
+ * <p>
+ * Concurrent requests for the same sampling {@link Script} are coalesced:
+ * a {@link ScriptTask} started while a previous execution is still in
+ * flight joins that execution instead of starting a new one, and receives
+ * the same results through its own {@link SamplePipeline}. This bounds the
+ * number of requests sent to the device when many clients query the same
+ * attributes at the same time. {@link Script}s that do not emit any
+ * {@link Attribute} (e.g., those used to set device parameters) and
+ * executions with parameters are never coalesced.
+ */
 public final class OneoffOperation extends BaseOperation<BaseTask> {
 
     private final Script script;
+    private final boolean coalesce;
+
+    // Execution currently joinable by new tasks, guarded by flightLock
+    private final Object flightLock = new Object();
+    private Flight current = null;
 
     public OneoffOperation(String id, List<Attribute> atts, Script script) {
         super(id, atts);
         this.script = script;
+        this.coalesce = !script.getEmit().isEmpty();
     }
 
     protected Script getScript() {
@@ -25,7 +51,86 @@ public final class OneoffOperation extends BaseOperation<BaseTask> {
     @Override
     public BaseTask doSchedule(Map<String, Object> parameterMap,
             TaskHandler handler, SamplePipeline pipeline) {
-        return new ScriptTask(this, handler, pipeline);
+        ScriptParameter[] params = new ScriptParameter[parameterMap.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> e : parameterMap.entrySet()) {
+            params[i++] = new ScriptParameter(e.getKey(), e.getValue());
+        }
+        return new ScriptTask(this, handler, pipeline, params);
+    }
+
+    /**
+     * Runs the {@link Script} on behalf of a {@link ScriptTask}, or joins
+     * the execution already in flight. Executions with parameters are
+     * never shared.
+     *
+     * @param t {@link ScriptTask} requesting the execution
+     * @param params {@link Script} parameters
+     * @return execution joined by the {@link ScriptTask}
+     */
+    protected Flight run(ScriptTask t, ScriptParameter[] params) {
+        boolean share = coalesce && params.length == 0;
+        Flight f;
+        boolean start = false;
+        synchronized (flightLock) {
+            f = share ? current : null;
+            // Tasks never join an execution running in a lower lane
+            if (f == null || t.getQos().isHigherThan(f.qos)) {
+                f = new Flight(t.getQos());
+                start = true;
+                if (share) {
+                    current = f;
+                }
+            }
+            f.tasks.add(t);
+        }
+
+        if (start) {
+            Runner r;
+            try {
+                r = Executor.execute(script, params, f, f.qos);
+            } catch (RuntimeException e) {
+                f.close();
+                throw e;
+            }
+            boolean cancel;
+            synchronized (flightLock) {
+                f.runner = r;
+                cancel = f.cancelled;
+            }
+            // All tasks left before the runner was available
+            if (cancel) {
+                r.cancel();
+            }
+        }
+        return f;
+    }
+
+    /**
+     * Removes a {@link ScriptTask} from the execution it joined. The
+     * execution is cancelled when no {@link ScriptTask} is left. An
+     * execution whose {@link Runner} is not available yet is cancelled as
+     * soon as the {@link Runner} is assigned.
+     *
+     * @param t {@link ScriptTask} to remove
+     * @param f execution joined by the {@link ScriptTask}
+     */
+    protected void leave(ScriptTask t, Flight f) {
+        Runner r;
+        synchronized (flightLock) {
+            f.tasks.remove(t);
+            if (!f.tasks.isEmpty() || f.done) {
+                return;
+            }
+            if (current == f) {
+                current = null;
+            }
+            f.cancelled = true;
+            r = f.runner;
+        }
+        if (r != null) {
+            r.cancel();
+        }
     }
 
     @Override
@@ -34,9 +139,50 @@ public final class OneoffOperation extends BaseOperation<BaseTask> {
     @Override
     protected void doStop(Consumer<Operation> handler) {
         // Invoke in new thread to preserve asynchronous locking semantics
-        AsyncUtils.runInNewThread(() -> {
-            handler.accept(this);
-        });
+        dispatch(() -> handler.accept(this));
+    }
+
+    /**
+     * A single {@link Script} execution, shared by all the
+     * {@link ScriptTask}s that joined it.
+     */
+    protected final class Flight implements ScriptHandler {
+
+        private final QosClass qos;
+
+        // Guarded by flightLock
+        private final List<ScriptTask> tasks = new ArrayList<>();
+        private Runner runner = null;
+        private boolean done = false;
+        private boolean cancelled = false;
+
+        private Flight(QosClass qos) {
+            this.qos = qos;
+        }
+
+        // Closes the execution, new tasks will start a new one
+        private List<ScriptTask> close() {
+            synchronized (flightLock) {
+                done = true;
+                if (current == this) {
+                    current = null;
+                }
+                return new ArrayList<>(tasks);
+            }
+        }
+
+        @Override
+        public void complete(Script script, List<Object[]> samples) {
+            List<ScriptTask> ts = close();
+            samples.forEach(OneoffOperation.this::cache);
+            ts.forEach(t -> t.scriptComplete(samples));
+        }
+
+        @Override
+        public void error(Script script, Throwable cause) {
+            close().forEach(t -> t.scriptError(cause));
+        }
+
     }
 
 }
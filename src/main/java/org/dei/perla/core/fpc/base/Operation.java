@@ -1,6 +1,7 @@
 package org.dei.perla.core.fpc.base;
 
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
 import org.dei.perla.core.fpc.Attribute;
 
 import java.util.List;
@@ -105,6 +106,43 @@ public interface Operation {
 			TaskHandler handler, SamplePipeline pipeline)
 			throws IllegalArgumentException, IllegalStateException;
 
+	/**
+	 * <p>
+	 * Schedules a new {@code Operation} instance configured with the
+	 * {@link TaskOptions} requested by the user.
+	 *
+	 * <p>
+	 * The {@link TaskOptions} are validated and applied before the new
+	 * {@link org.dei.perla.core.fpc.Task} is registered with the
+	 * {@code Operation}. If the {@link TaskOptions} are rejected, the
+	 * {@code Operation} is left untouched (e.g., the sampling period of
+	 * the device is not changed).
+	 *
+	 * @param parameterMap
+	 *            Parameters to be passed
+	 * @param handler
+	 *            {@link TaskHandler} object used to asynchronously collect the
+	 *            {@code Operation} output
+	 * @param pipeline
+	 *            {@link SamplePipeline} object used to modify the samples
+	 *            produced by this operation
+	 * @param opts
+	 *            {@link TaskOptions} of the new
+	 *            {@link org.dei.perla.core.fpc.Task}
+	 * @return {@link org.dei.perla.core.fpc.Task} object for controlling the
+	 * {@code Operation} execution
+	 * @throws IllegalArgumentException
+	 *             When the parameters required to run this operation are
+	 *             notfound in the parameterMap, or when the
+	 *             {@link TaskOptions} cannot be applied
+	 * @throws IllegalStateException
+	 *             If the {@code schedule} method is invoked when the
+	 *             {@code Operation} is not running
+	 */
+	public BaseTask schedule(Map<String, Object> parameterMap,
+			TaskHandler handler, SamplePipeline pipeline, TaskOptions opts)
+			throws IllegalArgumentException, IllegalStateException;
+
 	/**
 	 * Indicates if this {@code Operation} can be used to schedule new
 	 * {@link org.dei.perla.core.fpc.Task}s or not. An {@code Operation} may
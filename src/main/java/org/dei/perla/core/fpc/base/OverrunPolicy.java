@@ -0,0 +1,123 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.utils.Check;
+
+/**
+ * <p>
+ * Policy applied by a {@link SimulatedPeriodicOperation} when a sampling
+ * period expires while the previous sampling {@code Script} is still
+ * running (e.g., because the device is slower than the requested sampling
+ * rate).
+ *
+ * <p>
+ * Without any limitation, the executions of a slow {@code Script} overlap
+ * and accumulate in the request queue of the {@code Channel}, further
+ * increasing the load of a device that is already unable to keep up with
+ * the sampling rate. An {@code OverrunPolicy} can bound the number of
+ * concurrent executions, and decides what to do with the ticks that exceed
+ * the bound.
+ *
+ * <p>
+ * Operations are created with the {@code UNBOUNDED} policy, which starts an
+ * execution at every tick. The {@code OverrunPolicy} of newly created
+ * operations can be changed through the {@code OverrunPolicy.setDefault()}
+ * method.
+ */
+public final class OverrunPolicy {
+
+    /**
+     * An execution is started at every tick, regardless of the number of
+     * executions still running.
+     */
+    public static final OverrunPolicy UNBOUNDED =
+            new OverrunPolicy(Integer.MAX_VALUE, false);
+
+    /**
+     * Ticks occurring while the previous execution is still running are
+     * discarded.
+     */
+    public static final OverrunPolicy SKIP = new OverrunPolicy(1, false);
+
+    /**
+     * Ticks occurring while the previous execution is still running are
+     * coalesced in a single pending execution, started as soon as the
+     * running one terminates.
+     */
+    public static final OverrunPolicy COALESCE = new OverrunPolicy(1, true);
+
+    private static volatile OverrunPolicy defaultPolicy = UNBOUNDED;
+
+    private final int maxRuns;
+    private final boolean coalesce;
+
+    private OverrunPolicy(int maxRuns, boolean coalesce) {
+        this.maxRuns = maxRuns;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Returns an {@code OverrunPolicy} that allows up to {@code maxRuns}
+     * concurrent executions. Ticks occurring when the maximum number of
+     * executions is running are discarded.
+     *
+     * @param maxRuns maximum number of concurrent executions
+     * @return new {@code OverrunPolicy}
+     */
+    public static OverrunPolicy concurrent(int maxRuns) {
+        Check.argument(maxRuns > 0, "Maximum number of concurrent runs " +
+                "must be greater than zero");
+        return new OverrunPolicy(maxRuns, false);
+    }
+
+    /**
+     * Returns the {@code OverrunPolicy} assigned to new operations.
+     *
+     * @return default {@code OverrunPolicy}
+     */
+    public static OverrunPolicy getDefault() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Sets the {@code OverrunPolicy} assigned to new operations. Operations
+     * that have already been created are not affected.
+     *
+     * @param policy new default {@code OverrunPolicy}
+     */
+    public static void setDefault(OverrunPolicy policy) {
+        defaultPolicy = Check.notNull(policy, "policy");
+    }
+
+    /**
+     * Returns the maximum number of concurrent executions.
+     *
+     * @return maximum number of concurrent executions
+     */
+    public int getMaxRuns() {
+        return maxRuns;
+    }
+
+    /**
+     * Indicates if the ticks exceeding the maximum number of concurrent
+     * executions are coalesced in a pending execution.
+     *
+     * @return true if overrun ticks are coalesced, false if they are
+     * discarded
+     */
+    public boolean isCoalescing() {
+        return coalesce;
+    }
+
+    @Override
+    public String toString() {
+        if (coalesce) {
+            return "COALESCE";
+        } else if (maxRuns == 1) {
+            return "SKIP";
+        } else if (maxRuns == Integer.MAX_VALUE) {
+            return "UNBOUNDED";
+        }
+        return "CONCURRENT(" + maxRuns + ")";
+    }
+
+}
@@ -0,0 +1,157 @@
+package org.dei.perla.core.fpc.base;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Table of the sampling periods accepted and rejected by a device, learned
+ * from the outcome of the {@link NativePeriodicOperation} start and change
+ * {@code Script}s. Rejected periods are stored together with the period
+ * suggested by the device (see
+ * {@link org.dei.perla.core.engine.UnsupportedPeriodException}), so that
+ * subsequent requests can be negotiated to a supported period without
+ * querying the device again.
+ *
+ * <p>
+ * Devices of the same type support the same sampling periods. For this
+ * reason, the operations created by the same {@link BaseFpcFactory} from
+ * the same device descriptor share their {@code PeriodTable}, which is
+ * obtained from the {@link Registry} of the factory. A shared
+ * {@code PeriodTable} is discarded when all its operations have stopped.
+ */
+final class PeriodTable {
+
+    // Maximum number of periods stored by every table
+    private static final int MAX_ENTRIES = 1024;
+
+    // Maximum number of suggestions followed when negotiating a period
+    private static final int MAX_HOPS = 8;
+
+    // Rejected period -> suggested period
+    private final Map<Long, Long> rejected = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> accepted = new ConcurrentHashMap<>();
+
+    // Registry sharing this table, null if the table is not shared
+    private final Registry registry;
+    private final String key;
+    // Number of operations using the table, guarded by the registry
+    private int users = 0;
+
+    protected PeriodTable() {
+        this(null, null);
+    }
+
+    private PeriodTable(Registry registry, String key) {
+        this.registry = registry;
+        this.key = key;
+    }
+
+    /**
+     * Releases this {@code PeriodTable}. This method is invoked by every
+     * operation that obtained the table from a {@link Registry} when it
+     * stops.
+     */
+    protected void release() {
+        if (registry != null) {
+            registry.release(this);
+        }
+    }
+
+    /**
+     * Returns the sampling period that should be requested to the device in
+     * place of the period passed as parameter. The suggestions previously
+     * received from the device are followed until a period that was not
+     * rejected is found.
+     *
+     * @param period desired sampling period in milliseconds
+     * @return sampling period to request, which may still be rejected if
+     * the device never suggested a supported alternative (see the
+     * {@code isRejected()} method)
+     */
+    protected long negotiate(long period) {
+        long p = period;
+        for (int i = 0; i < MAX_HOPS; i++) {
+            Long s = rejected.get(p);
+            if (s == null || s == p) {
+                return p;
+            }
+            p = s;
+        }
+        return p;
+    }
+
+    /**
+     * Records a sampling period accepted by the device.
+     *
+     * @param period accepted sampling period in milliseconds
+     */
+    protected void accepted(long period) {
+        rejected.remove(period);
+        if (accepted.size() < MAX_ENTRIES) {
+            accepted.put(period, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Records a sampling period rejected by the device.
+     *
+     * @param period rejected sampling period in milliseconds
+     * @param suggested period suggested by the device
+     */
+    protected void rejected(long period, long suggested) {
+        accepted.remove(period);
+        if (rejected.size() < MAX_ENTRIES) {
+            rejected.put(period, suggested);
+        }
+    }
+
+    protected boolean isAccepted(long period) {
+        return accepted.containsKey(period);
+    }
+
+    protected boolean isRejected(long period) {
+        return rejected.containsKey(period);
+    }
+
+    /**
+     * {@code PeriodTable}s shared by the operations created from the same
+     * device descriptor. Every table is kept as long as at least one of
+     * the operations that acquired it is running.
+     */
+    static final class Registry {
+
+        // Guarded by this
+        private final Map<String, PeriodTable> tables = new HashMap<>();
+
+        /**
+         * Returns the {@code PeriodTable} shared by all the operations with
+         * the same identifier created for the same device type. Every
+         * invocation must be matched by a {@code PeriodTable.release()}.
+         *
+         * @param deviceType device type
+         * @param opId operation identifier
+         * @return shared {@code PeriodTable}
+         */
+        protected synchronized PeriodTable acquire(String deviceType,
+                String opId) {
+            PeriodTable t = tables.computeIfAbsent(deviceType + "/" + opId,
+                    k -> new PeriodTable(this, k));
+            t.users++;
+            return t;
+        }
+
+        private synchronized void release(PeriodTable t) {
+            if (t.users > 0 && --t.users == 0) {
+                tables.remove(t.key);
+            }
+        }
+
+        protected synchronized int size() {
+            return tables.size();
+        }
+
+    }
+
+}
@@ -3,10 +3,30 @@ package org.dei.perla.core.fpc.base;
 import org.dei.perla.core.fpc.TaskHandler;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.utils.Check;
+import org.dei.perla.core.utils.Histogram;
+import org.dei.perla.core.utils.PhasePolicy;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * <p>
+ * Base class for all {@link Operation}s that sample the device periodically.
+ *
+ * <p>
+ * {@code PeriodicOperation}s keep track of the fidelity of the sampling
+ * process. The actual interval between consecutive samples is recorded for
+ * all operations. Timer-driven operations (see the {@code tick()} method)
+ * also record the scheduling lag, i.e. the delay between the ideal sampling
+ * time and the time at which the sampling actually started, and the number
+ * of sampling periods missed entirely.
+ *
+ * <p>
+ * The sampling period is the shortest output period of the
+ * {@link PeriodicTask}s. Adaptive tasks may change their output period at
+ * runtime (see the {@code periodChanged()} method).
+ */
 public abstract class PeriodicOperation extends BaseOperation<PeriodicTask> {
 
 	private static final String SAMPLING_PERIOD = "period";
@@ -14,6 +34,15 @@ public abstract class PeriodicOperation extends BaseOperation<PeriodicTask> {
 	// Global sampling period expressed in milliseconds
 	protected long currentPeriod;
 
+	// Sampling instrumentation, all times in nanoseconds
+	private final Histogram periodHist = new Histogram();
+	private final Histogram lagHist = new Histogram();
+	private final Object tickLock = new Object();
+	private long nextTick = 0;
+	private long tickPeriod = 0;
+	private long lastSample = -1;
+	private long missed = 0;
+
 	public PeriodicOperation(String id, List<Attribute> atts) {
 		super(id, atts);
 		this.currentPeriod = 0;
@@ -92,11 +121,162 @@ public abstract class PeriodicOperation extends BaseOperation<PeriodicTask> {
 		return min;
 	}
 
+	/**
+	 * Updates the sampling period after the output period of an adaptive
+	 * {@link PeriodicTask} changed. The sampling period always matches the
+	 * shortest period of the running tasks.
+	 *
+	 * @param task {@link PeriodicTask} whose period changed
+	 */
+	protected final synchronized void periodChanged(PeriodicTask task) {
+		if (currentPeriod == 0 || !task.isRunning()) {
+			return;
+		}
+
+		long[] min = { Long.MAX_VALUE };
+		forEachTask(t -> {
+			if (t.isRunning()) {
+				min[0] = Math.min(min[0], t.getPeriod());
+			}
+		});
+		if (min[0] != currentPeriod && min[0] != Long.MAX_VALUE) {
+			setSamplingPeriod(min[0]);
+		} else {
+			task.updateRatio();
+		}
+	}
+
 	@Override
 	protected void doStop() {
 		setSamplingPeriod(0);
 	}
 
+	/**
+	 * Returns the delay before the first sampling of a timer-driven
+	 * {@code PeriodicOperation}, computed according to the default
+	 * {@link PhasePolicy}. Unaligned operations start one period after
+	 * being scheduled.
+	 *
+	 * @param period sampling period in milliseconds
+	 * @return initial sampling delay in milliseconds
+	 */
+	protected final long initialDelay(long period) {
+		return PhasePolicy.getDefault().initialDelay(period, period);
+	}
+
+	/**
+	 * Returns the histogram of the actual interval between consecutive
+	 * samples produced by this {@code PeriodicOperation}.
+	 *
+	 * @return sampling period histogram, in nanoseconds
+	 */
+	public final Histogram getPeriodHistogram() {
+		return periodHist;
+	}
+
+	/**
+	 * Returns the histogram of the delay between the ideal sampling time and
+	 * the time at which the sampling actually started. Only timer-driven
+	 * operations record the scheduling lag.
+	 *
+	 * @return scheduling lag histogram, in nanoseconds
+	 */
+	public final Histogram getSchedulerLagHistogram() {
+		return lagHist;
+	}
+
+	/**
+	 * Returns the number of sampling periods that elapsed without any
+	 * sampling activity being started. Only timer-driven operations record
+	 * the missed periods.
+	 *
+	 * @return number of missed sampling periods
+	 */
+	public final long getMissedTicks() {
+		synchronized (tickLock) {
+			return missed;
+		}
+	}
+
+	/**
+	 * Sets the ideal sampling schedule of a timer-driven
+	 * {@code PeriodicOperation}. This method has to be invoked every time
+	 * the sampling timer is started.
+	 *
+	 * @param delay delay before the first sampling, in milliseconds
+	 * @param period sampling period in milliseconds
+	 */
+	protected final void startTicks(long delay, long period) {
+		synchronized (tickLock) {
+			tickPeriod = TimeUnit.MILLISECONDS.toNanos(period);
+			nextTick = System.nanoTime() +
+					TimeUnit.MILLISECONDS.toNanos(delay);
+			lastSample = -1;
+		}
+	}
+
+	/**
+	 * Marks the start of a sampling activity of a timer-driven
+	 * {@code PeriodicOperation}, and records the scheduling lag with
+	 * respect to the schedule set with {@code startTicks()}.
+	 *
+	 * @return tick time, as returned by {@code System.nanoTime()}
+	 */
+	protected final long tick() {
+		long now = System.nanoTime();
+		synchronized (tickLock) {
+			if (tickPeriod == 0) {
+				return now;
+			}
+			long lag = now - nextTick;
+			long skip = lag <= 0 ? 0 : lag / tickPeriod;
+			lagHist.record(lag - skip * tickPeriod);
+			missed += skip;
+			nextTick += (skip + 1) * tickPeriod;
+		}
+		return now;
+	}
+
+	/**
+	 * Distributes a new sample to all the {@link PeriodicTask}s of this
+	 * {@code PeriodicOperation}.
+	 *
+	 * @param sample sample to distribute
+	 * @param tick time at which the sampling activity started, as returned
+	 *             by {@code System.nanoTime()}
+	 */
+	protected final void distribute(Object[] sample, long tick) {
+		long now = System.nanoTime();
+		synchronized (tickLock) {
+			if (lastSample != -1) {
+				periodHist.record(now - lastSample);
+			}
+			lastSample = now;
+		}
+		forEachTask(t -> t.newSample(sample, tick));
+	}
+
+	/**
+	 * Indicates if the next sample produced by this
+	 * {@code PeriodicOperation} will be relayed by at least one
+	 * {@link PeriodicTask}. When no task is interested, the downsampling of
+	 * all tasks is advanced as if the sample had been distributed, and the
+	 * operation may skip the creation of the sample altogether.
+	 *
+	 * <p>
+	 * This method assumes that every sampling activity produces a single
+	 * sample.
+	 *
+	 * @return true if the next sample is needed, false if it can be skipped
+	 */
+	protected final boolean nextSampleNeeded() {
+		if (anyTask(PeriodicTask::acceptsNext)) {
+			return true;
+		}
+		forEachTask(PeriodicTask::skipSample);
+		return false;
+	}
+
 	protected abstract void setSamplingPeriod(long period);
 
 }
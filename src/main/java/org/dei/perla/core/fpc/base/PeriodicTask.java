@@ -1,6 +1,7 @@
 package org.dei.perla.core.fpc.base;
 
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.utils.Histogram;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,23 +14,69 @@ import java.math.RoundingMode;
  * This class can downsample the data coming from the sensing device in order
  * to obtain the output sampling period requested by the user.
  *
+ * <p>
+ * The actual interval between consecutive samples relayed to the user, and
+ * the latency between the start of the sampling activity and the completion
+ * of the delivery, are recorded in two histograms.
+ *
+ * <p>
+ * An adaptive {@code PeriodicTask} (see the {@code setAdaptive()} method)
+ * lengthens its period up to a user-defined maximum while the requested
+ * values vary slowly, and asks the {@link PeriodicOperation} to update the
+ * sampling period of the device accordingly.
+ *
  * @author Guido Rota (2014)
  */
 public final class PeriodicTask extends BaseTask {
 
-	// Downsampling data
-	private long ratio = 0;
+	// Downsampling data. Every sample is relayed until the input period is
+	// known (e.g., while the operation is changing its sampling period)
+	private long ratio = 1;
 	private int error = 0;
 	private long count = 0;
 
 	private final long outputPeriod;
+	private long inputPeriod = 0;
+
+	// Optional adaptive sampling stage, guarded by the task lock
+	private RateAdapter adapter = null;
+
+	private final PeriodicOperation op;
+	private final SamplePipeline pipeline;
+
+	// Delivery instrumentation, all times in nanoseconds
+	private final Histogram periodHist = new Histogram();
+	private final Histogram latencyHist = new Histogram();
+	private long lastRelay = -1;
 
 	protected PeriodicTask(PeriodicOperation operation, TaskHandler handler,
 			long outputPeriod, SamplePipeline pipeline) {
 		super(operation, handler, pipeline);
+		this.op = operation;
+		this.pipeline = pipeline;
 		this.outputPeriod = outputPeriod;
 	}
 
+	/**
+	 * Enables adaptive sampling. The period of the {@code PeriodicTask} is
+	 * allowed to grow up to {@code maxPeriod} as long as the numeric
+	 * attributes requested by the user can be predicted with an error
+	 * smaller than {@code tolerance}. This method must be invoked before
+	 * the {@code PeriodicTask} is started.
+	 *
+	 * @param maxPeriod maximum output period in milliseconds
+	 * @param tolerance maximum prediction error
+	 * @throws IllegalArgumentException if the maximum period is shorter
+	 * than the requested output period, or if the task does not sample any
+	 * numeric attribute
+	 */
+	@Override
+	protected final synchronized void setAdaptive(long maxPeriod,
+			double tolerance) throws IllegalArgumentException {
+		adapter = new RateAdapter(outputPeriod, maxPeriod, tolerance,
+				pipeline.getInputAttributes(), pipeline.attributes);
+	}
+
 	/**
 	 * Returns the downsampling error, the ratio between the desired output
 	 * data rate and the actual output data rate resulting from the
@@ -42,7 +89,9 @@ public final class PeriodicTask extends BaseTask {
 	}
 
 	/**
-	 * Returns the output period requested by the user.
+	 * Returns the output period of this {@code PeriodicTask}. The output
+	 * period is the one requested by the user, unless adaptive sampling is
+	 * enabled.
 	 *
 	 * <p>
 	 * It is important to note that the actual output period of the data relayed
@@ -51,8 +100,33 @@ public final class PeriodicTask extends BaseTask {
 	 *
 	 * @return output period in milliseconds
 	 */
-	protected final long getPeriod() {
-		return outputPeriod;
+	protected final synchronized long getPeriod() {
+		if (adapter == null) {
+			return outputPeriod;
+		}
+		return adapter.getPeriod();
+	}
+
+	/**
+	 * Returns the histogram of the actual interval between consecutive
+	 * samples relayed by this {@code PeriodicTask}.
+	 *
+	 * @return output period histogram, in nanoseconds
+	 */
+	public final Histogram getPeriodHistogram() {
+		return periodHist;
+	}
+
+	/**
+	 * Returns the histogram of the latency between the start of the
+	 * sampling activity and the completion of the delivery of the sample.
+	 * The delivery is complete when the {@link TaskHandler} returns, or when
+	 * the sample is added to the delivery queue or batch of the task.
+	 *
+	 * @return tick-to-handler latency histogram, in nanoseconds
+	 */
+	public final Histogram getLatencyHistogram() {
+		return latencyHist;
 	}
 
 	/**
@@ -64,16 +138,55 @@ public final class PeriodicTask extends BaseTask {
 	 *                       sensing device
 	 */
 	protected final synchronized void setInputPeriod(long inputPeriod) {
+		this.inputPeriod = inputPeriod;
+		long period = getPeriod();
 		BigDecimal ipBig = BigDecimal.valueOf(inputPeriod);
-		BigDecimal opBig = BigDecimal.valueOf(outputPeriod);
-		ratio = opBig.divide(ipBig, RoundingMode.HALF_EVEN).longValue();
+		BigDecimal opBig = BigDecimal.valueOf(period);
+		// The input period may be longer than the output period when the
+		// device does not support the requested rate
+		ratio = Math.max(1,
+				opBig.divide(ipBig, RoundingMode.HALF_EVEN).longValue());
 		count = 0;
 
-		if (outputPeriod % inputPeriod == 0) {
+		if (period % inputPeriod == 0) {
 			error = 0;
 		} else {
-			error = (int) ((ratio * ((float) inputPeriod / outputPeriod) - 1) * 100);
+			error = (int) ((ratio * ((float) inputPeriod / period) - 1) * 100);
+		}
+	}
+
+	/**
+	 * Recomputes the downsampling ratio after a change of the output
+	 * period, when the input period is not affected.
+	 */
+	protected final synchronized void updateRatio() {
+		if (inputPeriod != 0) {
+			setInputPeriod(inputPeriod);
+		}
+	}
+
+	/**
+	 * Indicates if the next data sample fed into this {@code PeriodicTask}
+	 * will be relayed to the {@link TaskHandler}, or if it will be discarded
+	 * by the downsampling operation.
+	 *
+	 * @return true if the next sample will be relayed, false otherwise
+	 */
+	protected final synchronized boolean acceptsNext() {
+		return isRunning() && count == 0;
+	}
+
+	/**
+	 * Advances the downsampling operation as if a new data sample had been
+	 * fed into this {@code PeriodicTask} and discarded. This method allows
+	 * the {@link PeriodicOperation} to skip the creation of samples that
+	 * no task is going to relay.
+	 */
+	protected final synchronized void skipSample() {
+		if (!isRunning()) {
+			return;
 		}
+		count = (count + 1) % ratio;
 	}
 
 	/**
@@ -86,15 +199,49 @@ public final class PeriodicTask extends BaseTask {
 	 *
 	 * @param sample data sample
 	 */
-	protected final synchronized void newSample(Object[] sample) {
-		if (!isRunning()) {
-			return;
+	protected final void newSample(Object[] sample) {
+		newSample(sample, System.nanoTime());
+	}
+
+	/**
+	 * Process a new data sample through the
+	 * {@link org.dei.perla.core.fpc.Task}, recording the delivery latency.
+	 *
+	 * @param sample data sample
+	 * @param tick time at which the sampling activity started, as returned
+	 *             by {@code System.nanoTime()}
+	 */
+	protected final void newSample(Object[] sample, long tick) {
+		boolean adapted = false;
+		synchronized (this) {
+			if (!isRunning()) {
+				return;
+			}
+
+			boolean relay = count == 0;
+			count = (count + 1) % ratio;
+			if (!relay) {
+				return;
+			}
+
+			long now = System.nanoTime();
+			if (lastRelay != -1) {
+				periodHist.record(now - lastRelay);
+			}
+			lastRelay = now;
+			if (adapter != null) {
+				adapted = adapter.update(sample, tick);
+			}
 		}
 
-		if (count == 0) {
-			processSample(sample);
+		// The TaskHandler is invoked outside of the Task lock
+		processSample(sample);
+		latencyHist.record(System.nanoTime() - tick);
+
+		// The Operation lock must be acquired before the Task lock
+		if (adapted) {
+			op.periodChanged(this);
 		}
-		count = (count + 1) % ratio;
 	}
 
 }
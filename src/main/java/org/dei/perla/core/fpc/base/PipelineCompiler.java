@@ -0,0 +1,169 @@
+package org.dei.perla.core.fpc.base;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.base.SamplePipeline.FusedStage;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Generates the {@link FusedStage} implementation of a
+ * {@link SamplePipeline}. The generated code performs the copy of the
+ * sampled values, the addition of the static values and of the timestamp in
+ * a single straight-line pass, without any loop or {@code Modifier}
+ * invocation.
+ *
+ * <p>
+ * A new class is generated for every distinct pipeline shape (output size,
+ * copy order, static value and timestamp positions). {@link SamplePipeline}s
+ * with the same shape share the same class, and only differ in the static
+ * values passed to the constructor.
+ */
+final class PipelineCompiler {
+
+    private static final Logger log = Logger.getLogger(PipelineCompiler.class);
+
+    private static final String STAGE_PREFIX =
+            "org.dei.perla.core.fpc.base.FusedStage$";
+
+    private static final ClassPool pool;
+    private static final StageLoader loader;
+    static {
+        ClassLoader parent = PipelineCompiler.class.getClassLoader();
+        pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(parent));
+        loader = new StageLoader(parent);
+    }
+
+    private static final Map<String, Constructor<?>> cache =
+            new ConcurrentHashMap<>();
+    private static int classSeq = 0;
+
+    private PipelineCompiler() { }
+
+    /**
+     * Creates a new {@link FusedStage}.
+     *
+     * @param size size of the output array
+     * @param order position of each input value in the output array, -1 if
+     *              the input value is discarded
+     * @param statics static values, indexed by output position. Only
+     *                non-null values are added to the output.
+     * @param tsIdx position of the timestamp, -1 if no timestamp has to be
+     *              added
+     * @return new {@link FusedStage}, null if the code generation failed
+     */
+    protected static FusedStage compile(int size, int[] order,
+            Object[] statics, int tsIdx) {
+        StringBuilder key = new StringBuilder();
+        key.append(size).append('|');
+        for (int o : order) {
+            key.append(o).append(',');
+        }
+        key.append('|');
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; statics != null && i < statics.length; i++) {
+            if (statics[i] != null) {
+                key.append(i).append(',');
+                values.add(statics[i]);
+            }
+        }
+        key.append('|').append(tsIdx);
+
+        try {
+            Constructor<?> c = cache.get(key.toString());
+            if (c == null) {
+                c = generate(key.toString(), size, order, statics, tsIdx);
+            }
+            return (FusedStage) c.newInstance((Object) values.toArray());
+        } catch (Exception e) {
+            log.warn("Cannot generate fused pipeline stage, falling back " +
+                    "to sample modifiers", e);
+            return null;
+        }
+    }
+
+    private static synchronized Constructor<?> generate(String key,
+            int size, int[] order, Object[] statics, int tsIdx)
+            throws CannotCompileException, NotFoundException, IOException,
+            NoSuchMethodException {
+        Constructor<?> c = cache.get(key);
+        if (c != null) {
+            return c;
+        }
+
+        StringBuilder body = new StringBuilder();
+        body.append("{ Object[] out = new Object[").append(size).append("];");
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != -1) {
+                body.append("out[").append(order[i]).append("] = $1[")
+                        .append(i).append("];");
+            }
+        }
+        int s = 0;
+        for (int i = 0; statics != null && i < statics.length; i++) {
+            if (statics[i] != null) {
+                body.append("out[").append(i).append("] = statics[")
+                        .append(s++).append("];");
+            }
+        }
+        if (tsIdx != -1) {
+            body.append("out[").append(tsIdx)
+                    .append("] = org.dei.perla.core.utils.TimeSource" +
+                            ".getDefault().now();");
+        }
+        body.append("return out; }");
+
+        String name = STAGE_PREFIX + classSeq++;
+        CtClass cc = pool.makeClass(name);
+        cc.addInterface(pool.get(FusedStage.class.getName()));
+        cc.addField(CtField.make("private final Object[] statics;", cc));
+        CtConstructor cons = CtNewConstructor.make(
+                "public Stage(Object[] statics) { this.statics = statics; }",
+                cc);
+        cc.addConstructor(cons);
+        CtMethod run = CtNewMethod.make(
+                "public Object[] run(Object[] in) " + body, cc);
+        cc.addMethod(run);
+
+        byte[] bytecode = cc.toBytecode();
+        cc.detach();
+        c = loader.define(name, bytecode).getConstructor(Object[].class);
+        cache.put(key, c);
+        return c;
+    }
+
+    /**
+     * {@link ClassLoader} for the generated {@link FusedStage} classes.
+     * Classes are defined directly through the protected
+     * {@code defineClass} method, which does not require any reflective
+     * access to the parent {@link ClassLoader}.
+     */
+    private static final class StageLoader extends ClassLoader {
+
+        private StageLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+
+    }
+
+}
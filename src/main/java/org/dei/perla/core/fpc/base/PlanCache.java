@@ -0,0 +1,219 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.Filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * Bounded cache of the {@link Plan}s resolved by a {@link BaseFpc}, i.e. the
+ * {@link Request}, the {@link Operation} and the {@link SamplePipeline}
+ * selected for a request.
+ *
+ * <p>
+ * The result of the scheduling process only depends on the requested
+ * {@link Attribute}s, on the scheduling policy and on the operations of the
+ * {@link org.dei.perla.core.fpc.Fpc}. The operations do not change during
+ * the lifetime of an {@link org.dei.perla.core.fpc.Fpc}, hence cached plans
+ * are only discarded when the {@link org.dei.perla.core.fpc.Fpc} is stopped,
+ * or when the cache is full (least recently used first).
+ */
+final class PlanCache {
+
+    /**
+     * Type of request served by a {@link Plan}
+     */
+    protected enum Mode {
+        GET, PERIODIC, ASYNC
+    }
+
+    private final Map<Key, Plan> plans;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new {@code PlanCache}
+     *
+     * @param capacity maximum number of cached {@link Plan}s
+     */
+    protected PlanCache(int capacity) {
+        plans = new LinkedHashMap<Key, Plan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Plan> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the {@link Plan} of the request passed as parameter, resolving
+     * it with the function passed as parameter if not already cached.
+     *
+     * @param atts requested {@link Attribute}s
+     * @param strict strict scheduling policy flag
+     * @param mode type of request
+     * @param resolver function used to resolve the {@link Plan}, invoked
+     *                 with a private copy of the requested {@link Attribute}s
+     * @return {@link Plan} of the request
+     */
+    protected Plan get(List<Attribute> atts, boolean strict, Mode mode,
+            Function<List<Attribute>, Plan> resolver) {
+        Key k = new Key(new ArrayList<>(atts), strict, mode);
+        synchronized (this) {
+            Plan p = plans.get(k);
+            if (p != null) {
+                hits++;
+                return p;
+            }
+            misses++;
+        }
+
+        // Resolution is performed outside of the lock. Concurrent misses
+        // for the same request resolve identical plans, the last one wins.
+        Plan p = resolver.apply(k.atts);
+        synchronized (this) {
+            plans.put(k, p);
+        }
+        return p;
+    }
+
+    /**
+     * Discards all cached {@link Plan}s.
+     */
+    protected synchronized void clear() {
+        plans.clear();
+    }
+
+    protected synchronized int size() {
+        return plans.size();
+    }
+
+    protected synchronized long getHits() {
+        return hits;
+    }
+
+    protected synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Resolved request. The {@link Operation} and the
+     * {@link SamplePipeline} are null if the {@link Request} can be answered
+     * without sampling the device, or if no {@link Operation} is able to
+     * answer it.
+     */
+    protected static final class Plan {
+
+        protected final Request request;
+        protected final Operation op;
+        protected final SamplePipeline pipeline;
+
+        // Pipeline and last compiled filter used to answer the request with
+        // the values of the LastValueCache, created on first use
+        private volatile SamplePipeline cachedPipeline = null;
+        private volatile CompiledFilter cachedFilter = null;
+
+        protected Plan(Request request, Operation op,
+                SamplePipeline pipeline) {
+            this.request = request;
+            this.op = op;
+            this.pipeline = pipeline;
+        }
+
+        /**
+         * Returns the {@link SamplePipeline} that processes the values of
+         * the sampled {@link Attribute}s, in the order returned by the
+         * {@code Request.getSampled()} method.
+         *
+         * @return {@link SamplePipeline} for cached values
+         */
+        protected SamplePipeline getCachedPipeline() {
+            SamplePipeline p = cachedPipeline;
+            if (p == null) {
+                p = request.createPipeline(request.getSampled());
+                cachedPipeline = p;
+            }
+            return p;
+        }
+
+        /**
+         * Compiles a {@link Filter} against the sampled {@link Attribute}s,
+         * in the order returned by the {@code Request.getSampled()} method.
+         * The last compiled {@link Filter} is remembered, so that repeated
+         * requests employing the same {@link Filter} object do not compile
+         * it again.
+         *
+         * @param f {@link Filter} to compile
+         * @return compiled {@link Filter} predicate
+         * @throws IllegalArgumentException if the {@link Filter} references
+         * {@link Attribute}s that are not sampled
+         */
+        protected Predicate<Object[]> compileCached(Filter f)
+                throws IllegalArgumentException {
+            CompiledFilter c = cachedFilter;
+            if (c == null || c.filter != f) {
+                c = new CompiledFilter(f, f.compile(request.getSampled()));
+                cachedFilter = c;
+            }
+            return c.predicate;
+        }
+
+    }
+
+    /**
+     * {@link Filter} and the corresponding compiled predicate
+     */
+    private static final class CompiledFilter {
+
+        private final Filter filter;
+        private final Predicate<Object[]> predicate;
+
+        private CompiledFilter(Filter filter, Predicate<Object[]> predicate) {
+            this.filter = filter;
+            this.predicate = predicate;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final List<Attribute> atts;
+        private final boolean strict;
+        private final Mode mode;
+        private final int hash;
+
+        private Key(List<Attribute> atts, boolean strict, Mode mode) {
+            this.atts = atts;
+            this.strict = strict;
+            this.mode = mode;
+            hash = (atts.hashCode() * 31 + mode.hashCode()) * 2 +
+                    (strict ? 1 : 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return strict == k.strict && mode == k.mode &&
+                    atts.equals(k.atts);
+        }
+
+    }
+
+}
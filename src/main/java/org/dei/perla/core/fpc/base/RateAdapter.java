@@ -0,0 +1,151 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.utils.Check;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Adaptive sampling stage of a {@link PeriodicTask}. The
+ * {@code RateAdapter} inspects the raw data relayed by the task, and
+ * computes the sampling period required to track the monitored
+ * {@link Attribute}s within an error tolerance.
+ *
+ * <p>
+ * Every new value is compared with a linear extrapolation of the two
+ * previous ones. The period is doubled (up to the maximum period) after a
+ * few consecutive samples that were predicted within the tolerance, and is
+ * immediately brought back to the minimum period as soon as the prediction
+ * error exceeds the tolerance. Slowly varying signals are therefore
+ * sampled at a lower rate, while sudden changes restore the rate requested
+ * by the user.
+ */
+final class RateAdapter {
+
+    // Number of consecutive predictable samples required to slow down
+    private static final int STABLE_SAMPLES = 3;
+
+    private final int[] src;
+    private final long minPeriod;
+    private final long maxPeriod;
+    private final double tolerance;
+
+    private final double[] last;
+    private final double[] slope;
+    private long lastTime = -1;
+    private boolean hasSlope = false;
+    private int stable = 0;
+    private long period;
+
+    /**
+     * Creates a new {@code RateAdapter}
+     *
+     * @param minPeriod minimum sampling period in milliseconds
+     * @param maxPeriod maximum sampling period in milliseconds
+     * @param tolerance maximum prediction error
+     * @param in {@link Attribute}s of the raw data
+     * @param out {@link Attribute}s requested by the user
+     * @throws IllegalArgumentException if the period bounds are invalid,
+     * or if no numeric {@link Attribute} is requested by the user
+     */
+    protected RateAdapter(long minPeriod, long maxPeriod, double tolerance,
+            List<Attribute> in, List<Attribute> out)
+            throws IllegalArgumentException {
+        Check.argument(maxPeriod >= minPeriod, "Maximum sampling period " +
+                "cannot be shorter than the requested period");
+        List<Integer> idx = new ArrayList<>();
+        for (int i = 0; i < in.size(); i++) {
+            Attribute a = in.get(i);
+            if (a != Attribute.TIMESTAMP && out.contains(a) &&
+                    DataType.NUMERIC.match(a.getType())) {
+                idx.add(i);
+            }
+        }
+        if (idx.isEmpty()) {
+            throw new IllegalArgumentException("Cannot adapt sampling " +
+                    "rate, no numeric attribute is sampled by the task");
+        }
+
+        src = new int[idx.size()];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = idx.get(i);
+        }
+        this.minPeriod = minPeriod;
+        this.maxPeriod = maxPeriod;
+        this.tolerance = tolerance;
+        last = new double[src.length];
+        slope = new double[src.length];
+        period = minPeriod;
+    }
+
+    /**
+     * Returns the sampling period currently required by the monitored
+     * {@link Attribute}s.
+     *
+     * @return sampling period in milliseconds
+     */
+    protected long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Updates the prediction model with a new sample.
+     *
+     * @param sample raw sample
+     * @param time sample time, as returned by {@code System.nanoTime()}
+     * @return true if the sampling period changed, false otherwise
+     */
+    protected boolean update(Object[] sample, long time) {
+        if (lastTime == -1 || time <= lastTime) {
+            if (store(sample, time)) {
+                lastTime = time;
+            }
+            return false;
+        }
+
+        long dt = time - lastTime;
+        boolean violation = false;
+        for (int i = 0; i < src.length; i++) {
+            Object o = sample[src[i]];
+            if (!(o instanceof Number)) {
+                // Missing values cannot be predicted
+                violation = true;
+                continue;
+            }
+            double v = ((Number) o).doubleValue();
+            double predicted = hasSlope ? last[i] + slope[i] * dt : last[i];
+            if (Math.abs(v - predicted) > tolerance) {
+                violation = true;
+            }
+            slope[i] = (v - last[i]) / dt;
+            last[i] = v;
+        }
+        hasSlope = true;
+        lastTime = time;
+
+        long p = period;
+        if (violation) {
+            stable = 0;
+            period = minPeriod;
+        } else if (++stable >= STABLE_SAMPLES && period < maxPeriod) {
+            stable = 0;
+            period = Math.min(maxPeriod, period * 2);
+        }
+        return p != period;
+    }
+
+    private boolean store(Object[] sample, long time) {
+        for (int i = 0; i < src.length; i++) {
+            Object o = sample[src[i]];
+            if (!(o instanceof Number)) {
+                return false;
+            }
+            last[i] = ((Number) o).doubleValue();
+        }
+        return true;
+    }
+
+}
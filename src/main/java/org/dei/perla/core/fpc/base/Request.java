@@ -2,8 +2,9 @@ package org.dei.perla.core.fpc.base;
 
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleSchema;
+import org.dei.perla.core.utils.TimeSource;
 
-import java.time.Instant;
 import java.util.*;
 
 /**
@@ -23,6 +24,7 @@ public final class Request {
 
     // List of attributes that can be generated without sampling the device
     private final List<Attribute> generated;
+    private final SampleSchema generatedSchema;
     private final int generatedTsIdx;
     private final Object[] template;
     private final Map<Attribute, Object> values = new HashMap<>();
@@ -67,6 +69,7 @@ public final class Request {
             sampled = Collections.unmodifiableList(sa);
             template = null;
             generatedTsIdx = -1;
+            generatedSchema = null;
 
         } else {
             sampled = Collections.emptyList();
@@ -79,6 +82,7 @@ public final class Request {
                 generated = Collections.unmodifiableList(request);
             }
             template = precomputeGeneratedSample();
+            generatedSchema = SampleSchema.of(generated);
         }
     }
 
@@ -155,8 +159,8 @@ public final class Request {
         }
 
         Object[] o = Arrays.copyOf(template, template.length);
-        o[generatedTsIdx] = Instant.now();
-        return new Sample(generated, o);
+        o[generatedTsIdx] = TimeSource.getDefault().now();
+        return new Sample(generatedSchema, o);
     }
 
     /**
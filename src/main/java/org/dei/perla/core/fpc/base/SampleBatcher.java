@@ -0,0 +1,220 @@
+package org.dei.perla.core.fpc.base;
+
+import org.apache.log4j.Logger;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleBatch;
+import org.dei.perla.core.fpc.SampleSchema;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * An accumulator of {@link Sample}s, employed to deliver data to a
+ * {@link org.dei.perla.core.fpc.BatchTaskHandler} in batches.
+ *
+ * <p>
+ * A batch is ready to be flushed when it reaches the maximum size, or when
+ * the maximum batching delay expires after the insertion of its first
+ * {@link Sample}. The {@code SampleBatcher} only accumulates the data, the
+ * actual delivery is performed by the flush function passed to the
+ * constructor.
+ *
+ * <p>
+ * Columnar {@code SampleBatcher}s accumulate data in a {@link SampleBatch},
+ * which is used to feed a {@link org.dei.perla.core.fpc.SampleBatchHandler}.
+ */
+final class SampleBatcher {
+
+    private static final Logger log = Logger.getLogger(SampleBatcher.class);
+
+    private final int size;
+    private final long maxDelay;
+    private final Runnable flush;
+    private final SampleSchema schema;
+
+    private List<Sample> batch;
+    private SampleBatch columns;
+    private Timeout flushFuture = null;
+    private boolean closed = false;
+
+    /**
+     * Creates a new {@code SampleBatcher}
+     *
+     * @param size maximum number of {@link Sample}s in a batch
+     * @param maxDelay maximum time, in milliseconds, that a {@link Sample}
+     *                 can wait in the batch before being flushed. No timer
+     *                 is set if the delay is zero.
+     * @param flush function invoked when the batch delay expires
+     */
+    protected SampleBatcher(int size, long maxDelay, Runnable flush) {
+        this(size, maxDelay, flush, null);
+    }
+
+    /**
+     * Creates a new {@code SampleBatcher}
+     *
+     * @param size maximum number of {@link Sample}s in a batch
+     * @param maxDelay maximum time, in milliseconds, that a {@link Sample}
+     *                 can wait in the batch before being flushed. No timer
+     *                 is set if the delay is zero.
+     * @param flush function invoked when the batch delay expires
+     * @param schema schema of the columnar batch, null to accumulate
+     *               {@link Sample} objects
+     */
+    protected SampleBatcher(int size, long maxDelay, Runnable flush,
+            SampleSchema schema) {
+        this.size = size;
+        this.maxDelay = maxDelay;
+        this.flush = flush;
+        this.schema = schema;
+        if (schema == null) {
+            batch = new ArrayList<>(size);
+        } else {
+            columns = new SampleBatch(schema, size);
+        }
+    }
+
+    /**
+     * Indicates if this {@code SampleBatcher} accumulates data in a
+     * {@link SampleBatch}.
+     *
+     * @return true if the batcher is columnar, false otherwise
+     */
+    public boolean isColumnar() {
+        return schema != null;
+    }
+
+    /**
+     * Adds a new {@link Sample} to the current batch. This method has no
+     * effect if the {@code SampleBatcher} is closed.
+     *
+     * @param s {@link Sample} to add
+     * @return true if the batch is full and must be flushed, false otherwise
+     */
+    public synchronized boolean add(Sample s) {
+        if (closed) {
+            return false;
+        }
+
+        startTimer();
+        if (columns != null) {
+            columns.append(s);
+            return columns.size() >= size;
+        }
+        batch.add(s);
+        return batch.size() >= size;
+    }
+
+    /**
+     * Runs new data through the {@link SamplePipeline} and adds the result
+     * to the current batch. Columnar {@code SampleBatcher}s append the
+     * output of the pipeline directly to the {@link SampleBatch}, without
+     * creating an intermediate {@link Sample}. This method has no effect if
+     * the {@code SampleBatcher} is closed.
+     *
+     * @param pipeline {@link SamplePipeline} used to process the data
+     * @param in data to be processed
+     * @return true if the batch is full and must be flushed, false otherwise
+     */
+    public synchronized boolean add(SamplePipeline pipeline, Object[] in) {
+        if (closed) {
+            return false;
+        }
+
+        startTimer();
+        if (columns != null) {
+            pipeline.run(in, columns);
+            return columns.size() >= size;
+        }
+        batch.add(pipeline.run(in));
+        return batch.size() >= size;
+    }
+
+    private void startTimer() {
+        if (count() == 0 && maxDelay > 0) {
+            // Flush functions are not run in the timer thread, so that a
+            // slow consumer cannot delay the expiration of other batches
+            flushFuture = TimerWheel.getDefault().schedule(this::expire,
+                    maxDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private int count() {
+        return columns != null ? columns.size() : batch.size();
+    }
+
+    private void cancelTimer() {
+        if (flushFuture != null) {
+            flushFuture.cancel();
+            flushFuture = null;
+        }
+    }
+
+    /**
+     * Removes and returns the current batch.
+     *
+     * @return {@link Sample}s in the current batch, may be empty
+     */
+    public synchronized List<Sample> drain() {
+        cancelTimer();
+        if (batch.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Sample> b = Collections.unmodifiableList(batch);
+        batch = new ArrayList<>(size);
+        return b;
+    }
+
+    /**
+     * Closes the {@code SampleBatcher}, and returns the last batch.
+     *
+     * @return {@link Sample}s in the last batch, may be empty
+     */
+    public synchronized List<Sample> close() {
+        List<Sample> b = drain();
+        closed = true;
+        return b;
+    }
+
+    /**
+     * Removes and returns the current columnar batch.
+     *
+     * @return current {@link SampleBatch}, null if empty
+     */
+    public synchronized SampleBatch drainColumns() {
+        cancelTimer();
+        if (columns.isEmpty()) {
+            return null;
+        }
+
+        SampleBatch b = columns;
+        columns = new SampleBatch(schema, size);
+        return b;
+    }
+
+    /**
+     * Closes the columnar {@code SampleBatcher}, and returns the last batch.
+     *
+     * @return last {@link SampleBatch}, null if empty
+     */
+    public synchronized SampleBatch closeColumns() {
+        SampleBatch b = drainColumns();
+        closed = true;
+        return b;
+    }
+
+    private void expire() {
+        try {
+            flush.run();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while flushing sample batch", e);
+        }
+    }
+
+}
@@ -3,14 +3,23 @@ package org.dei.perla.core.fpc.base;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.Fpc;
 import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleBatch;
+import org.dei.perla.core.fpc.SampleSchema;
+import org.dei.perla.core.utils.TimeSource;
 
-import java.time.Instant;
 import java.util.*;
 
 /**
  * An immutable pipeline of {@link Modifier}s for adding new fields to an
  * existing {@link Sample}.
  *
+ * <p>
+ * The {@link Modifier}s of a {@code SamplePipeline} are fused into a single
+ * generated {@link FusedStage}, which produces the output {@link Sample} in
+ * one pass. The {@link Modifier}s are only employed if the code generation
+ * fails.
+ *
+ * <p>
  * New {@code SamplePipeline} objects are created using a
  * {@code PipelineBuilder}, which can be obtained through the
  * {@code SamplePipeline.newBuilder()} method.
@@ -23,6 +32,14 @@ public final class SamplePipeline {
     public final List<Modifier> modifiers;
     public final List<Attribute> attributes;
 
+    // Shared by all the samples created by this pipeline
+    private final SampleSchema schema;
+    private final List<Attribute> inputs;
+
+    // Generated implementation of the modifiers, null in passthrough
+    // pipelines or if the code generation failed
+    private final FusedStage stage;
+
     /**
      * Creates a new passthrough {@code SamplePipeline}
      *
@@ -30,8 +47,10 @@ public final class SamplePipeline {
      */
     public SamplePipeline(List<Attribute> atts) {
         modifiers = Collections.emptyList();
-        atts = new ArrayList<>(atts);
-        attributes = Collections.unmodifiableList(atts);
+        stage = null;
+        schema = SampleSchema.of(atts);
+        attributes = schema.getAttributes();
+        inputs = attributes;
     }
 
     /**
@@ -56,6 +75,7 @@ public final class SamplePipeline {
         List<Modifier> mods = new ArrayList<>();
         in = new ArrayList<>(in);
         out = new ArrayList<>(out);
+        inputs = Collections.unmodifiableList(in);
 
         boolean nativeTs = in.contains(Attribute.TIMESTAMP);
         int tsIdx = indexOf(out, Attribute.TIMESTAMP);
@@ -64,22 +84,26 @@ public final class SamplePipeline {
             out.add(Attribute.TIMESTAMP);
         }
 
-        addStatic(in, out, values, mods);
-        addCopy(in, out, mods);
+        Object[] statics = addStatic(in, out, values, mods);
+        int[] order = addCopy(in, out, mods);
 
         if (!nativeTs) {
             tsIdx = indexOf(out, Attribute.TIMESTAMP);
             mods.add(new TimestampAdder(tsIdx));
+        } else {
+            tsIdx = -1;
         }
 
         modifiers = Collections.unmodifiableList(mods);
-        attributes = Collections.unmodifiableList(out);
+        stage = PipelineCompiler.compile(out.size(), order, statics, tsIdx);
+        schema = SampleSchema.of(out);
+        attributes = schema.getAttributes();
     }
 
-    private void addStatic(List<Attribute> in, List<Attribute> out,
+    private Object[] addStatic(List<Attribute> in, List<Attribute> out,
             Map<Attribute, Object> values, List<Modifier> mods) {
         if (values.size() == 0) {
-            return;
+            return null;
         }
 
         Object[] v = new Object[out.size()];
@@ -97,9 +121,10 @@ public final class SamplePipeline {
             v[idx] = values.get(a);
         }
         mods.add(new StaticAppender(v));
+        return v;
     }
 
-    private void addCopy(List<Attribute> in, List<Attribute> out,
+    private int[] addCopy(List<Attribute> in, List<Attribute> out,
             List<Modifier> mods) {
         int[] order = new int[in.size()];
 
@@ -117,6 +142,7 @@ public final class SamplePipeline {
         }
 
         mods.add(new Copy(order));
+        return order;
     }
 
     private int indexOf(List<Attribute> list, Attribute a) {
@@ -139,6 +165,37 @@ public final class SamplePipeline {
         return modifiers;
     }
 
+    /**
+     * Returns the generated {@link FusedStage} of this
+     * {@code SamplePipeline}.
+     *
+     * @return {@link FusedStage} implementing the pipeline modifiers, null
+     * if the pipeline is a passthrough or if the code generation failed
+     */
+    protected FusedStage getFusedStage() {
+        return stage;
+    }
+
+    /**
+     * Returns the {@link SampleSchema} of the {@link Sample}s processed
+     * using the {@code SamplePipeline}.
+     *
+     * @return schema of the processed {@link Sample}s
+     */
+    public SampleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the {@link Attribute}s of the raw data processed by the
+     * {@code SamplePipeline}.
+     *
+     * @return {@link Attribute}s given as an input to the pipeline
+     */
+    public List<Attribute> getInputAttributes() {
+        return inputs;
+    }
+
     /**
      * Returns the {@link Attribute}s that are contained in the {@link
      * Sample}s processed using the {@code SamplePipeline}.
@@ -157,11 +214,58 @@ public final class SamplePipeline {
 	 * @return New {@link Sample} produced by the pipeline
 	 */
 	public Sample run(Object[] in) {
+        return new Sample(schema, process(in));
+    }
+
+    /**
+     * Runs data sampled by the {@link Fpc} through the {@code
+     * SamplePipeline}, and appends the result to a {@link SampleBatch}
+     * without creating an intermediate {@link Sample} object.
+     *
+     * @param in data to be processed
+     * @param dest {@link SampleBatch} where the output is appended. Its
+     *             schema must be the schema of this {@code SamplePipeline}
+     */
+    public void run(Object[] in, SampleBatch dest) {
+        dest.append(process(in));
+    }
+
+    /**
+     * Runs data sampled by the {@link Fpc} through the {@code
+     * SamplePipeline}, without wrapping the result in a {@link Sample}.
+     *
+     * @param in data to be processed
+     * @return output values, ordered as the pipeline {@link Attribute}s
+     */
+    protected Object[] process(Object[] in) {
+        if (stage != null) {
+            return stage.run(in);
+        }
+
         Object[] out = Arrays.copyOf(in, attributes.size());
         for (Modifier m : modifiers) {
             m.process(in, out);
         }
-        return new Sample(attributes, out);
+        return out;
+    }
+
+
+    /**
+     * A single processing stage that applies all the {@link Modifier}s of a
+     * {@code SamplePipeline} in one pass. Implementations of this interface
+     * are generated at runtime, one for every distinct pipeline shape.
+     */
+    public interface FusedStage {
+
+        /**
+         * Creates the output sample array
+         *
+         * @param in original sample generated by the {@link Fpc}. Its
+         *           contents must not be modified
+         * @return new output sample array
+         */
+        public Object[] run(Object[] in);
+
     }
 
 
@@ -205,7 +309,7 @@ public final class SamplePipeline {
 
         @Override
         public void process(Object[] in, Object[] out) {
-            out[idx] = Instant.now();
+            out[idx] = TimeSource.getDefault().now();
         }
 
     }
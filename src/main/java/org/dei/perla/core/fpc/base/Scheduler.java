@@ -119,6 +119,19 @@ public final class Scheduler {
         return findById(periodic, id);
     }
 
+    /**
+     * Performs an action on every {@link Operation} managed by this
+     * {@code Scheduler}.
+     *
+     * @param action action to perform
+     */
+    protected void forEach(Consumer<Operation> action) {
+        get.forEach(action);
+        set.forEach(action);
+        periodic.forEach(action);
+        async.forEach(action);
+    }
+
     private Operation findById(Collection<? extends Operation> ops, String id) {
         for (Operation op : ops) {
             if (op.getId().equals(id)) {
@@ -1,9 +1,7 @@
 package org.dei.perla.core.fpc.base;
 
-import org.dei.perla.core.engine.Executor;
-import org.dei.perla.core.engine.Runner;
 import org.dei.perla.core.engine.Script;
-import org.dei.perla.core.engine.ScriptHandler;
+import org.dei.perla.core.engine.ScriptParameter;
 import org.dei.perla.core.fpc.TaskHandler;
 
 import java.util.List;
@@ -17,64 +15,63 @@ import java.util.List;
  * <p>
  * All {@link org.dei.perla.core.fpc.Sample}s generated by the {@link Script}
  * are notified to the interested components through one or more invocations
- * of the {@link TaskHandler} passed as parameter.
+ * of the {@link TaskHandler} passed as parameter. Concurrent
+ * {@code ScriptTask}s of the same {@link OneoffOperation} may share a single
+ * {@link Script} execution.
  *
  * @author Guido Rota (2014)
  */
 public final class ScriptTask extends BaseTask {
 
-	private final Script script;
-	private Runner runner = null;
+	private final OneoffOperation op;
+	private final ScriptParameter[] params;
+	private OneoffOperation.Flight execution = null;
 
-	protected ScriptTask(OneoffOperation op, TaskHandler h, SamplePipeline p) {
+	protected ScriptTask(OneoffOperation op, TaskHandler h, SamplePipeline p,
+			ScriptParameter[] params) {
 		super(op, h, p);
-		this.script = op.getScript();
+		this.op = op;
+		this.params = params;
 	}
 
 	@Override
 	protected void doStart() {
-		ScriptHandler scriptHand = new OneoffScriptHandler();
-		this.runner = Executor.execute(script, scriptHand);
+		execution = op.run(this, params);
 	}
 
 	@Override
 	public void doStop() {
-		if (runner == null) {
+		if (execution == null) {
 			return;
 		}
-		runner.cancel();
+		op.leave(this, execution);
 	}
 
 	/**
-	 * Custom {@link ScriptHandler} used for collecting the results of the
-	 * {@link Script} and for switching the {@code ScriptTask} state (running /
-	 * not running).
+	 * Collects the results of the {@link Script} execution joined by this
+	 * {@code ScriptTask}, and terminates the task.
 	 *
-	 * @author Guido Rota (2014)
+	 * @param samples samples emitted by the {@link Script}
 	 */
-	private class OneoffScriptHandler implements ScriptHandler {
-
-		@Override
-		public void complete(Script script, List<Object[]> samples) {
-			synchronized (ScriptTask.this) {
-				try {
-					samples.forEach(ScriptTask.this::processSample);
-					notifyComplete();
-				} catch (Exception e) {
-					String msg = "Error while running operation handler";
-					log.error(msg, e);
-					notifyError(e, true);
-				}
-			}
-		}
-
-		@Override
-		public void error(Script script, Throwable cause) {
-			synchronized (ScriptTask.this) {
-				notifyError(cause, true);
-			}
+	protected void scriptComplete(List<Object[]> samples) {
+		try {
+			samples.forEach(this::processSample);
+			notifyComplete();
+		} catch (Exception e) {
+			String msg = "Error while running operation handler";
+			log.error(msg, e);
+			notifyError(e, true);
 		}
+	}
 
+	/**
+	 * Terminates this {@code ScriptTask} following an error in the
+	 * {@link Script} execution it joined.
+	 *
+	 * @param cause cause of the error
+	 */
+	protected void scriptError(Throwable cause) {
+		notifyError(cause, true);
 	}
 
 }
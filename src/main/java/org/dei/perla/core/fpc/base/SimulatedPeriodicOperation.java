@@ -4,94 +4,219 @@ import org.dei.perla.core.engine.Executor;
 import org.dei.perla.core.engine.Script;
 import org.dei.perla.core.engine.ScriptHandler;
 import org.dei.perla.core.fpc.FpcException;
-import org.dei.perla.core.utils.AsyncUtils;
+import org.dei.perla.core.utils.Check;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
 
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+/**
+ * A {@link PeriodicOperation} that simulates periodic sampling on devices
+ * that can only be sampled on demand, by running the sampling
+ * {@link Script} at every period.
+ *
+ * <p>
+ * The number of concurrent {@link Script} executions can be bounded through
+ * the {@link OverrunPolicy} of the operation; by default, executions are
+ * allowed to overlap. The periods that expire while the maximum number of
+ * executions is running are counted as overruns, and are either coalesced
+ * in a single pending execution or skipped.
+ */
 public final class SimulatedPeriodicOperation extends PeriodicOperation {
 
-    private final ScheduledThreadPoolExecutor executor;
-
     private final Script script;
 
-    private volatile ScheduledFuture<?> timerFuture = null;
-    private final TimerScriptHandler handler = new TimerScriptHandler();
+    private volatile Timeout timerFuture = null;
+    // Serializes the distribution of the script results
+    private final Object handlerLock = new Object();
+
+    // Overrun management, guarded by runLock
+    private final Object runLock = new Object();
+    private OverrunPolicy policy = OverrunPolicy.getDefault();
+    private int running = 0;
+    private boolean pending = false;
+    private long pendingTick = 0;
+    private long overruns = 0;
+    private long skipped = 0;
 
     public SimulatedPeriodicOperation(String id, Script script) {
         super(id, script.getEmit());
         this.script = script;
         timerFuture = null;
+    }
+
+    /**
+     * Sets the {@link OverrunPolicy} of this operation. The new policy is
+     * applied starting from the next sampling period.
+     *
+     * @param policy new {@link OverrunPolicy}
+     */
+    public void setOverrunPolicy(OverrunPolicy policy) {
+        Check.notNull(policy, "policy");
+        synchronized (runLock) {
+            this.policy = policy;
+        }
+    }
+
+    /**
+     * Returns the {@link OverrunPolicy} of this operation.
+     *
+     * @return {@link OverrunPolicy} of the operation
+     */
+    public OverrunPolicy getOverrunPolicy() {
+        synchronized (runLock) {
+            return policy;
+        }
+    }
 
-        // A single executor thread, combined with the synchronous script
-        // execution model (see the sample method), ensures that all script
-        // invocations are executed sequentially. If multiple threads were
-        // used instead the Java scheduler could reorder or aggregate
-        // the single script executions, causing a more or less severe
-        // alteration of the effective sampling period.
-        executor = new ScheduledThreadPoolExecutor(1);
-        executor.setRemoveOnCancelPolicy(true);
+    /**
+     * Returns the number of sampling periods that expired while the maximum
+     * number of concurrent {@link Script} executions was running.
+     *
+     * @return number of overruns
+     */
+    public long getOverrunCount() {
+        synchronized (runLock) {
+            return overruns;
+        }
+    }
+
+    /**
+     * Returns the number of sampling periods that did not result in a
+     * {@link Script} execution, either because they were discarded or
+     * because they were coalesced with an execution already pending.
+     *
+     * @return number of skipped sampling periods
+     */
+    public long getSkippedCount() {
+        synchronized (runLock) {
+            return skipped;
+        }
     }
 
     @Override
     protected void setSamplingPeriod(final long period) {
         if (timerFuture != null) {
-            timerFuture.cancel(false);
+            timerFuture.cancel();
         }
         currentPeriod = period;
         if (period == 0) {
+            clearPending();
             return;
         }
 
         forEachTask(t -> t.setInputPeriod(period));
-        timerFuture = executor.scheduleAtFixedRate(this::sample,
-                period, period, TimeUnit.MILLISECONDS);
+        // Script executions are asynchronous, and may last longer than the
+        // sampling period. Their concurrency is bounded by the overrun
+        // policy (see the sample method).
+        long delay = initialDelay(period);
+        startTicks(delay, period);
+        timerFuture = TimerWheel.getDefault().scheduleAtFixedRate(
+                this::sample, delay, period, TimeUnit.MILLISECONDS);
     }
 
     private void sample() {
+        long tick = tick();
+        synchronized (runLock) {
+            if (running >= policy.getMaxRuns()) {
+                overruns++;
+                if (policy.isCoalescing() && !pending) {
+                    pending = true;
+                    pendingTick = tick;
+                } else {
+                    skipped++;
+                }
+                return;
+            }
+            running++;
+        }
+        run(tick);
+    }
+
+    private void run(long tick) {
+        TimerScriptHandler handler = new TimerScriptHandler(tick);
         try {
-            Executor.execute(script, Executor.EMPTY_PARAMETER_ARRAY, handler);
+            Executor.execute(script, Executor.EMPTY_PARAMETER_ARRAY, handler,
+                    getQos());
         } catch (Exception e) {
             handler.error(script, new RuntimeException("Unexpected error " +
                     "while running simulated periodic operation", e));
         }
     }
 
+    /*
+     * Invoked when a script execution terminates. The pending execution, if
+     * any, reuses the slot of the terminated one.
+     */
+    private void runCompleted() {
+        Timeout t = timerFuture;
+        long tick;
+        synchronized (runLock) {
+            boolean again = pending && t != null && !t.isCancelled();
+            pending = false;
+            if (!again) {
+                running--;
+                return;
+            }
+            tick = pendingTick;
+        }
+        run(tick);
+    }
+
+    private void clearPending() {
+        synchronized (runLock) {
+            pending = false;
+        }
+    }
+
     @Override
     protected void doStop(Consumer<Operation> handler) {
-        executor.shutdownNow();
+        Timeout t = timerFuture;
+        if (t != null) {
+            t.cancel();
+        }
+        clearPending();
         // Invoke in new thread to preserve asynchronous locking semantics
-        AsyncUtils.runInNewThread(() -> {
-            handler.accept(this);
-        });
+        dispatch(() -> handler.accept(this));
     }
 
     /**
-     * Timer handler, distributes the outcome of the script to all the
-     * {@link Task} objects.
+     * Timer handler, distributes the outcome of a single script execution
+     * to all the {@link Task} objects.
      */
     private class TimerScriptHandler implements ScriptHandler {
 
+        private final long tick;
+
+        private TimerScriptHandler(long tick) {
+            this.tick = tick;
+        }
+
         @Override
-        public synchronized void complete(Script script,
-                List<Object[]> samples) {
-            synchronized (SimulatedPeriodicOperation.this) {
+        public void complete(Script script, List<Object[]> samples) {
+            synchronized (handlerLock) {
+                // Samples are distributed without locking the Operation, the
+                // task snapshot is immutable
                 for (Object[] s : samples) {
-                    forEachTask(t -> t.newSample(s));
+                    cache(s);
+                    distribute(s, tick);
                 }
             }
+            runCompleted();
         }
 
         @Override
-        public synchronized void error(Script script, Throwable cause) {
-            synchronized (SimulatedPeriodicOperation.this) {
-                Exception e = new FpcException(cause);
-                forEachTask(t -> t.notifyError(e, true));
-                setSamplingPeriod(0); // Stop the operation
+        public void error(Script script, Throwable cause) {
+            synchronized (handlerLock) {
+                synchronized (SimulatedPeriodicOperation.this) {
+                    Exception e = new FpcException(cause);
+                    forEachTask(t -> t.notifyError(e, true));
+                    setSamplingPeriod(0); // Stop the operation
+                }
             }
+            runCompleted();
         }
 
     }
@@ -4,9 +4,11 @@ import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
 import org.dei.perla.core.fpc.Attribute;
 
+import org.dei.perla.core.utils.PhasePolicy;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
+
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -18,29 +20,31 @@ import java.util.concurrent.TimeUnit;
  */
 public class StaticPeriodicTask implements Task {
 
-    private final ScheduledThreadPoolExecutor pool;
-
     private final Request request;
     private final long period;
     private final TaskHandler handler;
 
-    private ScheduledFuture task;
+    private Timeout task;
 
     public StaticPeriodicTask(Request request, long period,
             TaskHandler handler) {
         this.request = request;
         this.period = period;
         this.handler = handler;
-
-        pool = new ScheduledThreadPoolExecutor(1);
     }
 
     public synchronized void start() {
-        task = pool.scheduleAtFixedRate(this::sample, 0, period,
-                TimeUnit.MILLISECONDS);
+        long delay = PhasePolicy.getDefault().initialDelay(period, 0);
+        task = TimerWheel.getDefault().scheduleAtFixedRate(this::sample,
+                delay, period, TimeUnit.MILLISECONDS);
     }
 
     private synchronized void sample() {
+        // Expirations already handed over to the execution pool may run
+        // after the task has been stopped
+        if (task == null) {
+            return;
+        }
         handler.data(this, request.generateSample());
     }
 
@@ -56,7 +60,7 @@ public class StaticPeriodicTask implements Task {
 
     @Override
     public synchronized void stop() {
-        task.cancel(false);
+        task.cancel();
         handler.complete(this);
         task = null;
     }
@@ -0,0 +1,297 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Aggregate;
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleSchema;
+import org.dei.perla.core.fpc.Window;
+import org.dei.perla.core.fpc.Window.Aggregation;
+import org.dei.perla.core.utils.TimeSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A stateful processing stage that aggregates the output of a
+ * {@link SamplePipeline} over a time-based {@link Window}.
+ *
+ * <p>
+ * The window is divided in panes as long as the slide interval. Partial
+ * aggregates (count, sum, minimum, maximum and last value) are kept
+ * incrementally for every pane in primitive arrays, and are combined when
+ * the window ends. No sample is retained.
+ *
+ * <p>
+ * Window boundaries are computed using the {@code timestamp} attribute of
+ * the incoming samples, or the default {@link TimeSource} if the samples
+ * are not timestamped. A window is closed when the first sample past its
+ * end is received, or when the aggregator is closed. No timer is employed,
+ * as sample timestamps are set by the device clock, which is not
+ * necessarily aligned with the local one. Samples arriving late are
+ * accounted in the current pane.
+ */
+final class WindowAggregator {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final SampleSchema schema;
+
+    private final int n;
+    private final int[] src;
+    private final Aggregate[] fun;
+    private final boolean[] integer;
+    private final int tsIdx;
+
+    private final int panes;
+    private final long slide;
+
+    // Partial aggregates, indexed by pane * n + aggregation
+    private final long[] count;
+    private final double[] sum;
+    private final double[] min;
+    private final double[] max;
+    private final double[] last;
+    private final int[] paneSamples;
+
+    private long current = Long.MIN_VALUE;
+    private boolean closed = false;
+
+    /**
+     * Creates a new {@code WindowAggregator}
+     *
+     * @param w {@link Window} to compute
+     * @param in {@link Attribute}s of the samples to aggregate
+     * @throws IllegalArgumentException if an aggregated {@link Attribute} is
+     * missing, or if its type is not compatible with the aggregation
+     */
+    protected WindowAggregator(Window w, List<Attribute> in)
+            throws IllegalArgumentException {
+        List<Aggregation> aggs = w.getAggregations();
+        n = aggs.size();
+        src = new int[n];
+        fun = new Aggregate[n];
+        integer = new boolean[n];
+
+        List<Attribute> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Aggregation a = aggs.get(i);
+            fun[i] = a.getFunction();
+            src[i] = indexOf(in, a.getAttributeId());
+            if (src[i] == -1) {
+                throw new IllegalArgumentException("Cannot aggregate " +
+                        "attribute '" + a.getAttributeId() + "', attribute " +
+                        "is not part of the request");
+            }
+            DataType type = in.get(src[i]).getType();
+            if (fun[i] != Aggregate.COUNT && !DataType.NUMERIC.match(type)) {
+                throw new IllegalArgumentException("Cannot compute " +
+                        fun[i] + " of non-numeric attribute '" +
+                        a.getAttributeId() + "'");
+            }
+            integer[i] = type == DataType.INTEGER;
+            out.add(Attribute.create(fun[i].resultId(a.getAttributeId()),
+                    fun[i].resultType(type)));
+        }
+        out.add(Attribute.TIMESTAMP);
+        schema = SampleSchema.of(out);
+        tsIdx = indexOf(in, Attribute.TIMESTAMP.getId());
+
+        panes = (int) (w.getLength() / w.getSlide());
+        slide = w.getSlide() * NANOS_PER_MILLI;
+        count = new long[panes * n];
+        sum = new double[panes * n];
+        min = new double[panes * n];
+        max = new double[panes * n];
+        last = new double[panes * n];
+        paneSamples = new int[panes];
+    }
+
+    private static int indexOf(List<Attribute> atts, String id) {
+        for (int i = 0; i < atts.size(); i++) {
+            if (atts.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the {@link Attribute}s of the aggregated samples.
+     *
+     * @return {@link Attribute}s produced by the aggregator
+     */
+    public List<Attribute> getAttributes() {
+        return schema.getAttributes();
+    }
+
+    /**
+     * Returns the {@link SampleSchema} of the aggregate {@link Sample}s.
+     *
+     * @return schema of the aggregate {@link Sample}s
+     */
+    public SampleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Adds a new sample to the current window. The aggregates of all the
+     * windows closed by the new sample are passed to the {@code out}
+     * consumer. Samples added after the aggregator is closed are ignored.
+     *
+     * @param row sample values, as produced by the {@link SamplePipeline}
+     * @param out consumer of the aggregated samples
+     */
+    public synchronized void add(Object[] row, Consumer<Sample> out) {
+        if (closed) {
+            return;
+        }
+
+        long ts;
+        if (tsIdx != -1 && row[tsIdx] != null) {
+            ts = TimeSource.toEpochNanos((Instant) row[tsIdx]);
+        } else {
+            ts = TimeSource.getDefault().nanos();
+        }
+
+        long p = Math.floorDiv(ts, slide);
+        if (current == Long.MIN_VALUE) {
+            current = p;
+        } else if (p > current) {
+            advance(p, out);
+        }
+
+        int pane = (int) Math.floorMod(current, (long) panes);
+        paneSamples[pane]++;
+        int base = pane * n;
+        for (int i = 0; i < n; i++) {
+            Object o = row[src[i]];
+            if (o == null) {
+                continue;
+            }
+            int j = base + i;
+            if (fun[i] == Aggregate.COUNT) {
+                count[j]++;
+                continue;
+            }
+            double v = ((Number) o).doubleValue();
+            if (count[j] == 0) {
+                min[j] = v;
+                max[j] = v;
+            } else {
+                min[j] = Math.min(min[j], v);
+                max[j] = Math.max(max[j], v);
+            }
+            count[j]++;
+            sum[j] += v;
+            last[j] = v;
+        }
+    }
+
+    /**
+     * Closes the aggregator. The aggregates of the current window, if it
+     * contains any sample, are passed to the {@code out} consumer even if
+     * the window has not ended yet.
+     *
+     * @param out consumer of the aggregated samples
+     */
+    public synchronized void close(Consumer<Sample> out) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current != Long.MIN_VALUE) {
+            emit(out);
+        }
+    }
+
+    /*
+     * Closes all windows ending before the pane p. After 'panes' steps all
+     * partial aggregates are empty, hence no more window can be produced.
+     */
+    private void advance(long p, Consumer<Sample> out) {
+        long steps = Math.min(p - current, panes);
+        for (long s = 0; s < steps; s++) {
+            emit(out);
+            current++;
+            clear((int) Math.floorMod(current, (long) panes));
+        }
+        current = p;
+    }
+
+    private void clear(int pane) {
+        int base = pane * n;
+        Arrays.fill(count, base, base + n, 0);
+        Arrays.fill(sum, base, base + n, 0);
+        paneSamples[pane] = 0;
+    }
+
+    private void emit(Consumer<Sample> out) {
+        int samples = 0;
+        for (int s : paneSamples) {
+            samples += s;
+        }
+        if (samples == 0) {
+            return;
+        }
+
+        Object[] values = new Object[n + 1];
+        for (int i = 0; i < n; i++) {
+            long c = 0;
+            double s = 0;
+            double mn = Double.POSITIVE_INFINITY;
+            double mx = Double.NEGATIVE_INFINITY;
+            double l = 0;
+            // Panes are visited from the oldest to the most recent
+            for (int k = panes - 1; k >= 0; k--) {
+                int pane = (int) Math.floorMod(current - k, (long) panes);
+                int j = pane * n + i;
+                if (count[j] == 0) {
+                    continue;
+                }
+                c += count[j];
+                s += sum[j];
+                mn = Math.min(mn, min[j]);
+                mx = Math.max(mx, max[j]);
+                l = last[j];
+            }
+            values[i] = result(i, c, s, mn, mx, l);
+        }
+        values[n] = TimeSource.fromEpochNanos((current + 1) * slide);
+        out.accept(new Sample(schema, values));
+    }
+
+    private Object result(int i, long c, double s, double mn, double mx,
+            double l) {
+        if (fun[i] == Aggregate.COUNT) {
+            return (int) c;
+        } else if (c == 0) {
+            return null;
+        }
+
+        switch (fun[i]) {
+            case AVG:
+                return (float) (s / c);
+            case SUM:
+                return (float) s;
+            case MIN:
+                return number(i, mn);
+            case MAX:
+                return number(i, mx);
+            default:
+                return number(i, l);
+        }
+    }
+
+    private Object number(int i, double v) {
+        if (integer[i]) {
+            return (int) v;
+        }
+        return (float) v;
+    }
+
+}
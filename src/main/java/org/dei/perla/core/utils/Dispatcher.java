@@ -0,0 +1,322 @@
+package org.dei.perla.core.utils;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Bounded thread pool used to run asynchronous callbacks, such as the
+ * notifications sent when a {@code Task} or an {@code Operation} stops.
+ * Callbacks are never run by the thread that submits them, hence they can
+ * be safely submitted while holding a lock.
+ *
+ * <p>
+ * The number of threads employed by the {@code Dispatcher} is fixed, and
+ * callbacks that exceed the capacity of the pool are queued. Callbacks are
+ * expected to be short: a callback that blocks occupies one of the threads
+ * until it returns. Activities that may block, such as the expiration of
+ * {@link TimerWheel} timeouts and the delivery of queued samples, run in
+ * separate pools. Runtime exceptions thrown by a callback are logged and
+ * do not affect the {@code Dispatcher}.
+ *
+ * <p>
+ * Callbacks submitted directly to the {@code Dispatcher} may run
+ * concurrently and in any order. Callbacks that must be run one at a time
+ * in submission order can be submitted to a sequence (see the
+ * {@code newSequence()} method). Sequences share the threads of their
+ * {@code Dispatcher}.
+ *
+ * <p>
+ * The {@code Dispatcher} keeps track of the number of callbacks waiting to
+ * be run, of the time they spent in the queue and of their execution
+ * time.
+ *
+ * <p>
+ * A default {@code Dispatcher}, shared by all the components of the
+ * middleware, can be obtained through the {@code Dispatcher.getDefault()}
+ * method, and can be replaced using {@code Dispatcher.setDefault()}.
+ * Sequences created before the replacement keep using the previous
+ * {@code Dispatcher}.
+ */
+public final class Dispatcher implements Executor {
+
+    private static final Logger log = Logger.getLogger(Dispatcher.class);
+
+    /**
+     * Default number of threads
+     */
+    public static final int DEFAULT_THREADS =
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // Idle time after which unused threads are terminated, in seconds
+    private static final long KEEP_ALIVE = 60;
+
+    private static volatile Dispatcher defaultDispatcher = null;
+
+    private final ThreadPoolExecutor pool;
+
+    // Instrumentation, all times in nanoseconds
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicInteger maxQueued = new AtomicInteger(0);
+    private final Histogram latencyHist = new Histogram();
+    private final Histogram runHist = new Histogram();
+
+    /**
+     * Creates a new {@code Dispatcher}
+     *
+     * @param threads maximum number of threads
+     * @param name prefix of the thread names
+     */
+    public Dispatcher(int threads, String name) {
+        Check.argument(threads > 0, "Number of threads must be greater " +
+                "than zero");
+        Check.notNull(name, "name");
+        pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new DispatcherThreadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the default {@code Dispatcher}. The default
+     * {@code Dispatcher} is created with {@code DEFAULT_THREADS} threads
+     * when first requested.
+     *
+     * @return default {@code Dispatcher}
+     */
+    public static Dispatcher getDefault() {
+        Dispatcher d = defaultDispatcher;
+        if (d != null) {
+            return d;
+        }
+        synchronized (Dispatcher.class) {
+            if (defaultDispatcher == null) {
+                defaultDispatcher = new Dispatcher(DEFAULT_THREADS,
+                        "Dispatcher_");
+            }
+            return defaultDispatcher;
+        }
+    }
+
+    /**
+     * Sets the default {@code Dispatcher}. The previous default
+     * {@code Dispatcher} is not shut down, and completes the callbacks
+     * already submitted.
+     *
+     * @param dispatcher new default {@code Dispatcher}
+     */
+    public static synchronized void setDefault(Dispatcher dispatcher) {
+        defaultDispatcher = Check.notNull(dispatcher, "dispatcher");
+    }
+
+    /**
+     * Submits a callback for execution.
+     *
+     * @param callback callback to run
+     * @throws java.util.concurrent.RejectedExecutionException if the
+     * {@code Dispatcher} has been shut down
+     */
+    @Override
+    public void execute(Runnable callback) {
+        Job j = new Job(callback, null);
+        try {
+            pool.execute(j);
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new sequence of callbacks. Callbacks submitted to the
+     * sequence are run by this {@code Dispatcher} one at a time, in
+     * submission order.
+     *
+     * @return new sequence
+     */
+    public Executor newSequence() {
+        return new Sequence();
+    }
+
+    /**
+     * Returns the maximum number of threads employed by this
+     * {@code Dispatcher}.
+     *
+     * @return maximum number of threads
+     */
+    public int getThreads() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns the number of callbacks submitted and not yet started,
+     * including those waiting in a sequence.
+     *
+     * @return number of queued callbacks
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the highest number of queued callbacks observed since the
+     * creation of this {@code Dispatcher}, or since the last invocation of
+     * the {@code resetStatistics()} method.
+     *
+     * @return highest number of queued callbacks
+     */
+    public int getMaxQueueDepth() {
+        return maxQueued.get();
+    }
+
+    /**
+     * Returns the histogram of the time elapsed between the submission of
+     * a callback and the start of its execution.
+     *
+     * @return callback latency histogram, in nanoseconds
+     */
+    public Histogram getLatencyHistogram() {
+        return latencyHist;
+    }
+
+    /**
+     * Returns the histogram of the execution time of the callbacks.
+     *
+     * @return callback execution time histogram, in nanoseconds
+     */
+    public Histogram getRunTimeHistogram() {
+        return runHist;
+    }
+
+    /**
+     * Clears the statistics collected by this {@code Dispatcher}.
+     */
+    public void resetStatistics() {
+        maxQueued.set(queued.get());
+        latencyHist.reset();
+        runHist.reset();
+    }
+
+    /**
+     * Shuts down this {@code Dispatcher}. Callbacks already submitted are
+     * run, new callbacks are rejected.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * A single callback, timestamped when it is submitted.
+     */
+    private final class Job implements Runnable {
+
+        private final Runnable callback;
+        private final Sequence seq;
+        private final long created;
+
+        private Job(Runnable callback, Sequence seq) {
+            this.callback = Check.notNull(callback, "callback");
+            this.seq = seq;
+            created = System.nanoTime();
+            maxQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queued.decrementAndGet();
+            latencyHist.record(start - created);
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in asynchronous callback", e);
+            } finally {
+                runHist.record(System.nanoTime() - start);
+                if (seq != null) {
+                    seq.next();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Callbacks run one at a time in submission order. At most one
+     * callback of the sequence is submitted to the thread pool at any time,
+     * the others wait in the sequence queue.
+     */
+    private final class Sequence implements Executor {
+
+        // Guarded by this
+        private final Queue<Job> jobs = new ArrayDeque<>();
+        private boolean active = false;
+
+        @Override
+        public void execute(Runnable callback) {
+            Job j = new Job(callback, this);
+            synchronized (this) {
+                if (active) {
+                    jobs.add(j);
+                    return;
+                }
+                active = true;
+            }
+            submit(j);
+        }
+
+        private void next() {
+            Job j;
+            synchronized (this) {
+                j = jobs.poll();
+                if (j == null) {
+                    active = false;
+                    return;
+                }
+            }
+            submit(j);
+        }
+
+        private void submit(Job j) {
+            try {
+                pool.execute(j);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    queued.addAndGet(-(jobs.size() + 1));
+                    jobs.clear();
+                    active = false;
+                }
+                throw e;
+            }
+        }
+
+    }
+
+    /**
+     * Custom thread naming pattern
+     */
+    private static final class DispatcherThreadFactory
+            implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        private DispatcherThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, prefix + count.incrementAndGet());
+        }
+
+    }
+
+}
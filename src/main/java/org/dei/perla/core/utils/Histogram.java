@@ -0,0 +1,171 @@
+package org.dei.perla.core.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A concurrent histogram of non-negative {@code long} values (e.g., time
+ * intervals expressed in nanoseconds), with a fixed relative precision over
+ * the whole {@code long} range.
+ *
+ * <p>
+ * Values are counted in log-linear buckets, in the style of HdrHistogram:
+ * values smaller than 64 have their own bucket, while larger values are
+ * grouped in buckets whose width is at most 1/32 of their lower bound. The
+ * value range reported for a percentile is therefore accurate to about 3%.
+ * Recording a value is a constant time, lock-free operation that does not
+ * allocate any memory.
+ *
+ * <p>
+ * Statistics are computed from the live counters. Values recorded while a
+ * statistic is being computed may or may not be considered.
+ */
+public final class Histogram {
+
+    // Number of buckets with unit width, and number of buckets for every
+    // subsequent power of 2
+    private static final int SUB = 64;
+    private static final int HALF = SUB / 2;
+    private static final int SUB_BITS = 6;
+
+    private static final int BUCKETS = SUB + (Long.SIZE - SUB_BITS - 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Records a new value. Negative values are recorded as zero.
+     *
+     * @param value value to record
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(index(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    private static int index(long v) {
+        if (v < SUB) {
+            return (int) v;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        int mantissa = (int) (v >>> shift);
+        return SUB + (shift - 1) * HALF + mantissa - HALF;
+    }
+
+    // Highest value counted in the bucket i
+    private static long highest(int i) {
+        if (i < SUB) {
+            return i;
+        }
+        int shift = (i - SUB) / HALF + 1;
+        long mantissa = (i - SUB) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return smallest recorded value, 0 if no value was recorded
+     */
+    public long getMin() {
+        long m = min.get();
+        return m == Long.MAX_VALUE ? 0 : m;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return largest recorded value, 0 if no value was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return mean value, 0 if no value was recorded
+     */
+    public double getMean() {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        return (double) sum.get() / c;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall. The result is the highest value of the bucket containing
+     * the percentile, capped to the largest recorded value.
+     *
+     * @param percentile percentile to compute, between 0 and 100
+     * @return value at the requested percentile, 0 if no value was recorded
+     * @throws IllegalArgumentException if the percentile is not between 0
+     * and 100
+     */
+    public long getValueAtPercentile(double percentile)
+            throws IllegalArgumentException {
+        Check.argument(percentile >= 0 && percentile <= 100,
+                "Percentile must be between 0 and 100");
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highest(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Discards all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram[count=" + getCount() + ", min=" + getMin() +
+                ", mean=" + String.format("%.1f", getMean()) +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() + "]";
+    }
+
+}
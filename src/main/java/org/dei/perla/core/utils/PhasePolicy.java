@@ -0,0 +1,127 @@
+package org.dei.perla.core.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * Policy used to choose the phase (i.e., the time of the first execution)
+ * of the periodic activities of the PerLa middleware.
+ *
+ * <p>
+ * By default, periodic activities start one period after they are
+ * scheduled, hence with a random phase. When a large number of devices is
+ * sampled with the same period, an aligned {@code PhasePolicy} snaps the
+ * first execution to the next multiple of the period since the epoch: all
+ * activities with the same period expire in the same {@link TimerWheel}
+ * tick and are executed together, reducing the number of wake-ups. An
+ * optional jitter can be added to the aligned phase, to spread the
+ * executions over an interval when simultaneous activity is not desired
+ * (e.g., to avoid request bursts on a shared channel).
+ *
+ * <p>
+ * The {@code PhasePolicy} employed by the middleware can be changed through
+ * the {@code PhasePolicy.setDefault()} method.
+ */
+public final class PhasePolicy {
+
+    /**
+     * Periodic activities start one period after they are scheduled
+     */
+    public static final PhasePolicy NONE = new PhasePolicy(false, 0);
+
+    private static volatile PhasePolicy defaultPolicy = NONE;
+
+    private final boolean aligned;
+    private final long jitter;
+
+    private PhasePolicy(boolean aligned, long jitter) {
+        this.aligned = aligned;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Returns a {@code PhasePolicy} that aligns the first execution of the
+     * periodic activities to the next multiple of their period.
+     *
+     * @return aligned {@code PhasePolicy}
+     */
+    public static PhasePolicy aligned() {
+        return new PhasePolicy(true, 0);
+    }
+
+    /**
+     * Returns a {@code PhasePolicy} that aligns the first execution of the
+     * periodic activities to the next multiple of their period, plus a
+     * random delay. A jitter equal to the period spreads the activities
+     * uniformly over the period.
+     *
+     * @param maxJitterMs maximum random delay, in milliseconds. The actual
+     *                    delay never exceeds the period of the activity.
+     * @return aligned {@code PhasePolicy} with jitter
+     */
+    public static PhasePolicy aligned(long maxJitterMs) {
+        Check.argument(maxJitterMs >= 0, "Jitter cannot be negative");
+        return new PhasePolicy(true, maxJitterMs);
+    }
+
+    /**
+     * Returns the {@code PhasePolicy} currently used by the middleware.
+     *
+     * @return default {@code PhasePolicy}
+     */
+    public static PhasePolicy getDefault() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Sets the {@code PhasePolicy} used by the middleware. The new policy
+     * only affects activities scheduled after this method is invoked.
+     *
+     * @param policy new default {@code PhasePolicy}
+     */
+    public static void setDefault(PhasePolicy policy) {
+        defaultPolicy = Check.notNull(policy, "policy");
+    }
+
+    /**
+     * Indicates if this {@code PhasePolicy} aligns the activities to their
+     * period boundaries.
+     *
+     * @return true if the policy is aligned, false otherwise
+     */
+    public boolean isAligned() {
+        return aligned;
+    }
+
+    /**
+     * Returns the maximum random delay added to the aligned phase.
+     *
+     * @return maximum jitter in milliseconds
+     */
+    public long getMaxJitter() {
+        return jitter;
+    }
+
+    /**
+     * Computes the delay before the first execution of a periodic activity.
+     *
+     * @param period period of the activity, in milliseconds
+     * @param unaligned delay to use when the policy is not aligned, in
+     *                  milliseconds
+     * @return initial delay in milliseconds
+     */
+    public long initialDelay(long period, long unaligned) {
+        if (!aligned || period <= 0) {
+            return unaligned;
+        }
+
+        long now = System.currentTimeMillis();
+        long delay = period - Math.floorMod(now, period);
+        long j = Math.min(jitter, period);
+        if (j > 0) {
+            delay += ThreadLocalRandom.current().nextLong(j);
+        }
+        return delay;
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.dei.perla.core.utils;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Source of the wall-clock time used by the PerLa middleware to timestamp
+ * new samples. Time is represented internally as a primitive number of
+ * nanoseconds since the epoch, and is converted into an {@link Instant}
+ * only when requested.
+ *
+ * <p>
+ * Two implementations are available: a precise {@code TimeSource} which
+ * follows the system clock with nanosecond resolution, and a coarse
+ * {@code TimeSource} which caches the current time and refreshes it at a
+ * fixed resolution. The coarse {@code TimeSource} returns the same
+ * {@link Instant} object to all the callers of the same clock tick, and is
+ * therefore suitable for high rate sample feeds that do not require
+ * sub-resolution precision.
+ *
+ * <p>
+ * The {@code TimeSource} employed by the middleware can be changed through
+ * the {@code TimeSource.setDefault()} method.
+ */
+public abstract class TimeSource {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final TimeSource SYSTEM = new SystemTimeSource();
+
+    private static volatile TimeSource defaultSource = SYSTEM;
+
+    /**
+     * Returns the {@code TimeSource} currently used to timestamp new
+     * samples.
+     *
+     * @return default {@code TimeSource}
+     */
+    public static TimeSource getDefault() {
+        return defaultSource;
+    }
+
+    /**
+     * Sets the {@code TimeSource} used to timestamp new samples.
+     *
+     * @param source new default {@code TimeSource}
+     */
+    public static void setDefault(TimeSource source) {
+        defaultSource = Check.notNull(source, "source");
+    }
+
+    /**
+     * Returns a {@code TimeSource} that follows the system clock with
+     * nanosecond resolution.
+     *
+     * @return precise {@code TimeSource}
+     */
+    public static TimeSource system() {
+        return SYSTEM;
+    }
+
+    /**
+     * Creates a new coarse {@code TimeSource}. The current time is cached
+     * and updated at the desired resolution by a periodic timer of the
+     * default {@link TimerWheel}, hence the resolution cannot be finer than
+     * the tick of the wheel. The timer runs until the {@code stop()} method
+     * is invoked.
+     *
+     * @param resolution clock resolution
+     * @param unit time unit of the resolution
+     * @return new coarse {@code TimeSource}
+     */
+    public static TimeSource coarse(long resolution, TimeUnit unit) {
+        Check.argument(resolution > 0, "Resolution must be greater than zero");
+        return new CoarseTimeSource(unit.toNanos(resolution));
+    }
+
+    /**
+     * Converts an {@link Instant} into a number of nanoseconds since the
+     * epoch.
+     *
+     * @param i {@link Instant} to convert
+     * @return nanoseconds since the epoch
+     */
+    public static long toEpochNanos(Instant i) {
+        return i.getEpochSecond() * NANOS_PER_SECOND + i.getNano();
+    }
+
+    /**
+     * Converts a number of nanoseconds since the epoch into an
+     * {@link Instant}.
+     *
+     * @param nanos nanoseconds since the epoch
+     * @return corresponding {@link Instant}
+     */
+    public static Instant fromEpochNanos(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                Math.floorMod(nanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Returns the current time, expressed in nanoseconds since the epoch.
+     *
+     * @return current time in nanoseconds since the epoch
+     */
+    public abstract long nanos();
+
+    /**
+     * Returns the current time as an {@link Instant}.
+     *
+     * @return current time
+     */
+    public abstract Instant now();
+
+    /**
+     * Stops any background activity associated with this
+     * {@code TimeSource}. The default implementation does nothing.
+     */
+    public void stop() { }
+
+
+    /**
+     * {@code TimeSource} backed by the system clock. The wall-clock time is
+     * read once per second, and extrapolated with {@code System.nanoTime()}
+     * in between. This avoids allocating an {@link Instant} every time the
+     * {@code nanos()} method is invoked, and provides a resolution finer
+     * than the system clock. Adjustments of the system clock are followed
+     * within a second.
+     */
+    private static final class SystemTimeSource extends TimeSource {
+
+        private static final long RESYNC = NANOS_PER_SECOND;
+
+        private volatile Anchor anchor = new Anchor();
+
+        @Override
+        public long nanos() {
+            Anchor a = anchor;
+            long mono = System.nanoTime();
+            if (mono - a.mono >= RESYNC) {
+                a = new Anchor();
+                anchor = a;
+                mono = a.mono;
+            }
+            return a.epoch + (mono - a.mono);
+        }
+
+        @Override
+        public Instant now() {
+            return fromEpochNanos(nanos());
+        }
+
+    }
+
+    /**
+     * Wall-clock time read at a known {@code System.nanoTime()} value
+     */
+    private static final class Anchor {
+
+        private final long mono;
+        private final long epoch;
+
+        private Anchor() {
+            epoch = toEpochNanos(Instant.now());
+            mono = System.nanoTime();
+        }
+
+    }
+
+
+    /**
+     * {@code TimeSource} that caches the current time, refreshing it at
+     * fixed intervals from the shared {@link TimerWheel}. The time is
+     * cached as a primitive value, and the {@link Instant} of a clock tick
+     * is only created when requested for the first time.
+     */
+    private static final class CoarseTimeSource extends TimeSource {
+
+        private final TimerWheel.Timeout ticker;
+
+        private volatile long nanos;
+        // Instant of the current clock tick, created on demand
+        private volatile Stamp stamp = null;
+
+        private CoarseTimeSource(long resolution) {
+            nanos = SYSTEM.nanos();
+            ticker = TimerWheel.getDefault().scheduleAtFixedRate(
+                    () -> nanos = SYSTEM.nanos(),
+                    resolution, resolution, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public long nanos() {
+            return nanos;
+        }
+
+        @Override
+        public Instant now() {
+            long n = nanos;
+            Stamp s = stamp;
+            if (s != null && s.nanos == n) {
+                return s.instant;
+            }
+            s = new Stamp(n);
+            stamp = s;
+            return s.instant;
+        }
+
+        @Override
+        public void stop() {
+            ticker.cancel();
+        }
+
+    }
+
+    /**
+     * {@link Instant} of a clock tick
+     */
+    private static final class Stamp {
+
+        private final long nanos;
+        private final Instant instant;
+
+        private Stamp(long nanos) {
+            this.nanos = nanos;
+            instant = fromEpochNanos(nanos);
+        }
+
+    }
+
+}
@@ -0,0 +1,460 @@
+package org.dei.perla.core.utils;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * A hashed timing wheel that drives all the timed activities of the PerLa
+ * middleware (periodic sampling, simulated devices, batch timers, etc.)
+ * using a single timer thread.
+ *
+ * <p>
+ * Time is divided in ticks of configurable resolution. Every timeout is
+ * stored in the wheel bucket corresponding to its deadline tick, so that
+ * scheduling and cancellation cost O(1) regardless of the number of active
+ * timeouts. The timer thread only detects expired timeouts: the associated
+ * work is handed over to an execution pool, so that a slow activity cannot
+ * delay the expiration of the others. Unless a different pool is provided,
+ * every {@code TimerWheel} employs a {@link Dispatcher} of its own, distinct
+ * from the default one: timed activities may block (e.g., on a full
+ * delivery queue) without preventing the execution of the callbacks of the
+ * middleware.
+ *
+ * <p>
+ * The timer thread only wakes up at the ticks that contain a timeout: when
+ * the nearest deadline is several ticks away, or when no timeout is
+ * scheduled at all, it sleeps until the deadline or until a new timeout is
+ * scheduled.
+ *
+ * <p>
+ * Periodic timeouts are fired at a fixed rate. A periodic activity is never
+ * executed concurrently with itself: if a new expiration occurs while the
+ * previous execution is still running, a single new execution is started
+ * as soon as the running one terminates.
+ *
+ * <p>
+ * The {@code TimerWheel} shared by all components of the middleware can be
+ * obtained through the {@code TimerWheel.getDefault()} method. The runtime
+ * (see {@link org.dei.perla.core.PerLaSystem}) installs its own wheel with
+ * {@code TimerWheel.setDefault()}, and stops it when it shuts down; a wheel
+ * is otherwise created on first use. Timeouts already scheduled are not
+ * moved to a new default wheel.
+ */
+public final class TimerWheel {
+
+    private static final Logger log = Logger.getLogger(TimerWheel.class);
+
+    /**
+     * Default tick resolution, in milliseconds
+     */
+    public static final long DEFAULT_TICK = 1;
+
+    /**
+     * Default number of wheel buckets
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    private static volatile TimerWheel defaultWheel = null;
+
+    private final long tick;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+    private final Executor exec;
+    // Execution pool owned by this wheel, null if provided by the user
+    private final Dispatcher pool;
+
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped = false;
+    // True while the worker sleeps past the next tick, new timeouts must
+    // wake it up
+    private volatile boolean sleeping = false;
+
+    // Only accessed by the worker thread
+    private long currentTick = 0;
+    // Only modified by the worker thread
+    private volatile long wakeups = 0;
+
+    /**
+     * Creates a new {@code TimerWheel} with default size, which executes
+     * the expired activities in a {@link Dispatcher} of its own with
+     * {@code Dispatcher.DEFAULT_THREADS} threads.
+     *
+     * @param tick tick resolution
+     * @param unit time unit of the tick resolution
+     */
+    public TimerWheel(long tick, TimeUnit unit) {
+        this(tick, unit, DEFAULT_WHEEL_SIZE,
+                new Dispatcher(Dispatcher.DEFAULT_THREADS, "TimerWheel_"),
+                true);
+    }
+
+    /**
+     * Creates a new {@code TimerWheel}
+     *
+     * @param tick tick resolution
+     * @param unit time unit of the tick resolution
+     * @param size number of wheel buckets, rounded up to the next power of 2
+     * @param exec {@link Executor} used to run the expired activities
+     */
+    public TimerWheel(long tick, TimeUnit unit, int size, Executor exec) {
+        this(tick, unit, size, exec, false);
+    }
+
+    private TimerWheel(long tick, TimeUnit unit, int size, Executor exec,
+            boolean owned) {
+        Check.argument(tick > 0, "Tick resolution must be greater than zero");
+        Check.argument(size > 0, "Wheel size must be greater than zero");
+        this.tick = unit.toNanos(tick);
+        this.exec = Check.notNull(exec, "exec");
+        this.pool = owned ? (Dispatcher) exec : null;
+
+        int cap = 1;
+        while (cap < size) {
+            cap <<= 1;
+        }
+        mask = cap - 1;
+        wheel = new ArrayList<>(cap);
+        for (int i = 0; i < cap; i++) {
+            wheel.add(new ArrayList<>());
+        }
+
+        startTime = System.nanoTime();
+        worker = new Thread(this::run, "perla-timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Returns the {@code TimerWheel} shared by all the components of the
+     * PerLa middleware. If no wheel was set, or if the default wheel has
+     * been stopped, a new wheel is created with a resolution of
+     * {@code DEFAULT_TICK} milliseconds.
+     *
+     * @return default {@code TimerWheel}
+     */
+    public static TimerWheel getDefault() {
+        TimerWheel w = defaultWheel;
+        if (w != null && !w.stopped) {
+            return w;
+        }
+        synchronized (TimerWheel.class) {
+            if (defaultWheel == null || defaultWheel.stopped) {
+                defaultWheel = new TimerWheel(DEFAULT_TICK,
+                        TimeUnit.MILLISECONDS);
+            }
+            return defaultWheel;
+        }
+    }
+
+    /**
+     * Replaces the {@code TimerWheel} shared by all the components of the
+     * PerLa middleware. This method is intended to be invoked during
+     * startup, before any activity is scheduled. The previous default
+     * wheel is not stopped.
+     *
+     * @param wheel new default {@code TimerWheel}
+     */
+    public static synchronized void setDefault(TimerWheel wheel) {
+        defaultWheel = Check.notNull(wheel, "wheel");
+    }
+
+    /**
+     * Returns the tick resolution of this {@code TimerWheel}.
+     *
+     * @return tick resolution in nanoseconds
+     */
+    public long getTickNanos() {
+        return tick;
+    }
+
+    /**
+     * Schedules a one-shot activity.
+     *
+     * @param task activity to run
+     * @param delay delay before the execution
+     * @param unit time unit of the delay
+     * @return {@link Timeout} handle, can be used to cancel the execution
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, System.nanoTime() +
+                unit.toNanos(Math.max(0, delay)), 0));
+    }
+
+    /**
+     * Schedules a periodic activity, executed at a fixed rate.
+     *
+     * @param task activity to run
+     * @param initialDelay delay before the first execution
+     * @param period interval between the start of two consecutive
+     *               executions
+     * @param unit time unit of the delay and period
+     * @return {@link Timeout} handle, can be used to cancel the execution
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay,
+            long period, TimeUnit unit) {
+        Check.argument(period > 0, "Period must be greater than zero");
+        return add(new Timeout(task, System.nanoTime() +
+                unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period)));
+    }
+
+    private Timeout add(Timeout t) {
+        if (stopped) {
+            throw new IllegalStateException("TimerWheel has been stopped");
+        }
+        pending.add(t);
+        if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+        return t;
+    }
+
+    /**
+     * Returns the number of ticks processed by the timer thread.
+     *
+     * @return number of processed ticks
+     */
+    long getWakeups() {
+        return wakeups;
+    }
+
+    /**
+     * Stops the {@code TimerWheel}. No activity will be executed after this
+     * method returns, except for those already handed over to the execution
+     * pool. The execution pool is shut down if it is owned by this
+     * {@code TimerWheel}.
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            // The ticks preceding the nearest timeout are skipped
+            long next = nextTick();
+            if (next > currentTick) {
+                sleep(next);
+                if (stopped) {
+                    return;
+                }
+                long now = (System.nanoTime() - startTime) / tick;
+                currentTick = Math.max(currentTick, Math.min(next, now));
+            }
+
+            long deadline = startTime + (currentTick + 1) * tick;
+            long wait;
+            while ((wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+                if (stopped) {
+                    return;
+                }
+            }
+
+            Timeout t;
+            while ((t = pending.poll()) != null) {
+                place(t, currentTick);
+            }
+            expire(wheel.get((int) (currentTick & mask)));
+            currentTick++;
+            wakeups++;
+        }
+    }
+
+    /*
+     * Returns the first tick whose bucket contains a timeout to expire,
+     * Long.MAX_VALUE if the wheel is empty. The scan stops at the first
+     * bucket holding a timeout due in the current revolution.
+     */
+    private long nextTick() {
+        if (!pending.isEmpty()) {
+            return currentTick;
+        }
+        long min = Long.MAX_VALUE;
+        for (long tk = currentTick; tk <= currentTick + mask; tk++) {
+            for (Timeout t : wheel.get((int) (tk & mask))) {
+                if (t.deadlineTick <= tk) {
+                    return tk;
+                }
+                min = Math.min(min, t.deadlineTick);
+            }
+        }
+        return min;
+    }
+
+    /*
+     * Sleeps until the beginning of the tick passed as parameter, or until
+     * a new timeout is scheduled.
+     */
+    private void sleep(long untilTick) {
+        sleeping = true;
+        try {
+            while (!stopped && pending.isEmpty()) {
+                if (untilTick == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                long wait = startTime + untilTick * tick - System.nanoTime();
+                if (wait <= 0) {
+                    return;
+                }
+                LockSupport.parkNanos(this, wait);
+            }
+        } finally {
+            sleeping = false;
+        }
+    }
+
+    /*
+     * Adds a timeout to the wheel. Timeouts whose deadline has already
+     * passed are placed in the bucket of the minimum tick passed as
+     * parameter.
+     */
+    private void place(Timeout t, long minTick) {
+        if (t.isCancelled()) {
+            return;
+        }
+        // Round up, activities never run before their deadline
+        long ticks = (t.deadline - startTime + tick - 1) / tick - 1;
+        t.deadlineTick = Math.max(ticks, minTick);
+        wheel.get((int) (t.deadlineTick & mask)).add(t);
+    }
+
+    private void expire(List<Timeout> bucket) {
+        List<Timeout> rescheduled = null;
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout t = it.next();
+            if (t.isCancelled()) {
+                it.remove();
+                continue;
+            }
+            if (t.deadlineTick > currentTick) {
+                continue;
+            }
+
+            it.remove();
+            t.fire();
+            if (t.period > 0) {
+                t.deadline += t.period;
+                if (rescheduled == null) {
+                    rescheduled = new ArrayList<>();
+                }
+                rescheduled.add(t);
+            }
+        }
+
+        // Rescheduled after the bucket scan, no earlier than the next tick.
+        // A period shorter than a tick, or a worker that fell behind by more
+        // than a period, would otherwise place the timeout in the bucket
+        // just scanned, delaying it by a whole wheel revolution
+        if (rescheduled != null) {
+            for (Timeout t : rescheduled) {
+                place(t, currentTick + 1);
+            }
+        }
+    }
+
+
+    /**
+     * Handle of an activity scheduled in a {@link TimerWheel}.
+     */
+    public final class Timeout {
+
+        private static final int IDLE = 0;
+        private static final int RUNNING = 1;
+        private static final int RUNNING_PENDING = 2;
+
+        private final Runnable task;
+        private final long period;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        // Only accessed by the worker thread
+        private long deadline;
+        private long deadlineTick;
+
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = Check.notNull(task, "task");
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the scheduled activity. An execution already in progress
+         * is not interrupted.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Indicates if the activity has been cancelled.
+         *
+         * @return true if the activity was cancelled, false otherwise
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void fire() {
+            while (true) {
+                int s = state.get();
+                if (s == IDLE && state.compareAndSet(IDLE, RUNNING)) {
+                    submit();
+                    return;
+                } else if (s != IDLE &&
+                        state.compareAndSet(s, RUNNING_PENDING)) {
+                    // Coalesced with the execution in progress
+                    return;
+                }
+            }
+        }
+
+        private void submit() {
+            try {
+                exec.execute(this::execute);
+            } catch (RejectedExecutionException e) {
+                // The execution pool is shutting down
+                state.set(IDLE);
+            }
+        }
+
+        private void execute() {
+            if (cancelled) {
+                state.set(IDLE);
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in timed activity", e);
+            }
+            // The coalesced execution is submitted again instead of being
+            // run in this thread, so that an activity that keeps running
+            // late cannot hold on to a thread of the pool indefinitely
+            if (!state.compareAndSet(RUNNING, IDLE) &&
+                    state.compareAndSet(RUNNING_PENDING, RUNNING)) {
+                submit();
+            }
+        }
+
+    }
+
+}
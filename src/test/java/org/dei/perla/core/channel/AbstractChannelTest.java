@@ -1,8 +1,11 @@
 package org.dei.perla.core.channel;
 
+import org.dei.perla.core.fpc.QosClass;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -187,4 +190,43 @@ public class AbstractChannelTest {
 		assertThat(cancelled.get(), greaterThanOrEqualTo(requestCount - 1));
 	}
 
+	@Test
+	public void testQosOrdering() throws InterruptedException {
+		MockChannel channel = new MockChannel();
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(5);
+
+		IOHandler handler = new IOHandler() {
+			@Override
+			public void complete(IORequest request, Optional<Payload> result) {
+				order.add(((LoopbackRequest) request).getMessage());
+				latch.countDown();
+			}
+
+			@Override
+			public void error(IORequest request, Throwable cause) {
+				latch.countDown();
+			}
+		};
+
+		// Block the dispatcher on the first request
+		channel.pause();
+		LoopbackRequest first = new LoopbackRequest("first");
+		channel.submit(first, handler);
+		first.waitPaused();
+
+		channel.submit(new LoopbackRequest("bulk"), handler, QosClass.BULK);
+		channel.submit(new LoopbackRequest("normal1"), handler);
+		channel.submit(new LoopbackRequest("critical"), handler,
+				QosClass.CRITICAL);
+		channel.submit(new LoopbackRequest("normal2"), handler);
+		channel.resume();
+		latch.await();
+
+		// Higher classes first, insertion order within the same class
+		assertThat(order, contains("first", "critical", "normal1", "normal2",
+				"bulk"));
+		channel.close();
+	}
+
 }
@@ -12,6 +12,7 @@ import org.dei.perla.core.message.FpcMessage;
 import org.dei.perla.core.message.Mapper;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleSchema;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -582,7 +583,8 @@ public class InstructionsTest {
         assertThat(samples, notNullValue());
         assertThat(samples.size(), equalTo(3));
 
-        Sample r = new Sample(script.getEmit(), samples.get(0));
+        SampleSchema schema = SampleSchema.of(script.getEmit());
+        Sample r = new Sample(schema, samples.get(0));
         for (Attribute a : r.fields()) {
             Object f = r.getValue(a.getId());
             assertThat(f, notNullValue());
@@ -603,7 +605,7 @@ public class InstructionsTest {
             }
         }
 
-        r = new Sample(script.getEmit(), samples.get(1));
+        r = new Sample(schema, samples.get(1));
         for (Attribute a : r.fields()) {
             Object f = r.getValue(a.getId());
             assertThat(f, notNullValue());
@@ -624,7 +626,7 @@ public class InstructionsTest {
             }
         }
 
-        r = new Sample(script.getEmit(), samples.get(2));
+        r = new Sample(schema, samples.get(2));
         for (Attribute a : r.fields()) {
             Object f = r.getValue(a.getId());
             assertThat(f, notNullValue());
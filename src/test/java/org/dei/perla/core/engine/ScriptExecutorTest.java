@@ -8,6 +8,7 @@ import org.dei.perla.core.channel.loopback.TestMapper;
 import org.dei.perla.core.engine.ExecutionContext.InstructionLocal;
 import org.dei.perla.core.engine.SubmitInstruction.RequestParameter;
 import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.message.Mapper;
 import org.dei.perla.core.fpc.Attribute;
 import org.junit.BeforeClass;
@@ -17,6 +18,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -261,6 +263,34 @@ public class ScriptExecutorTest {
         assertTrue(e instanceof ScriptException);
     }
 
+    @Test
+    public void testQosLanes() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        Script script = ScriptBuilder.newScript()
+                .add(new BasicInstruction() {
+                    @Override
+                    protected void runBasic(Runner runner) {
+                        thread.set(Thread.currentThread().getName());
+                    }
+                })
+                .add(new StopInstruction())
+                .buildScript("qos");
+
+        SynchronizerScriptHandler h = new SynchronizerScriptHandler();
+        Runner r = Executor.execute(script, Executor.EMPTY_PARAMETER_ARRAY,
+                h, QosClass.CRITICAL);
+        h.getResult();
+        assertThat(r.getQos(), equalTo(QosClass.CRITICAL));
+        assertThat(thread.get(), startsWith("Executor_critical_"));
+
+        h = new SynchronizerScriptHandler();
+        r = Executor.execute(script, Executor.EMPTY_PARAMETER_ARRAY, h,
+                QosClass.BULK);
+        h.getResult();
+        assertThat(r.getQos(), equalTo(QosClass.BULK));
+        assertThat(thread.get(), startsWith("Executor_bulk_"));
+    }
+
     @Test
     public void stressTest() throws InterruptedException {
         int count = 1000;
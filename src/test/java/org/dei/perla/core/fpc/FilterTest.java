@@ -0,0 +1,67 @@
+package org.dei.perla.core.fpc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FilterTest {
+
+    private static final List<Attribute> atts = Arrays.asList(
+            Attribute.create("temperature", DataType.FLOAT),
+            Attribute.create("floor", DataType.INTEGER),
+            Attribute.create("room", DataType.STRING));
+
+    @Test
+    public void testComparison() {
+        Predicate<Object[]> p = Filter.gt("temperature", 40).compile(atts);
+        assertTrue(p.test(new Object[]{41f, 1, "a"}));
+        assertFalse(p.test(new Object[]{40f, 1, "a"}));
+        assertFalse(p.test(new Object[]{null, 1, "a"}));
+
+        p = Filter.le("floor", 2).compile(atts);
+        assertTrue(p.test(new Object[]{0f, 2, "a"}));
+        assertFalse(p.test(new Object[]{0f, 3, "a"}));
+    }
+
+    @Test
+    public void testEquality() {
+        Predicate<Object[]> p = Filter.eq("floor", 2f).compile(atts);
+        assertTrue(p.test(new Object[]{0f, 2, "a"}));
+
+        p = Filter.ne("room", "kitchen").compile(atts);
+        assertTrue(p.test(new Object[]{0f, 2, "bedroom"}));
+        assertFalse(p.test(new Object[]{0f, 2, "kitchen"}));
+        assertFalse(p.test(new Object[]{0f, 2, null}));
+    }
+
+    @Test
+    public void testComposition() {
+        Filter f = Filter.or(
+                Filter.and(
+                        Filter.gt("temperature", 40),
+                        Filter.eq("room", "kitchen"),
+                        Filter.not(Filter.eq("floor", 0))),
+                Filter.gt("temperature", 80));
+        Predicate<Object[]> p = f.compile(atts);
+        assertTrue(p.test(new Object[]{50f, 1, "kitchen"}));
+        assertFalse(p.test(new Object[]{50f, 0, "kitchen"}));
+        assertFalse(p.test(new Object[]{50f, 1, "bedroom"}));
+        assertTrue(p.test(new Object[]{90f, 0, "bedroom"}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingAttribute() {
+        Filter.gt("humidity", 10).compile(atts);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonNumeric() {
+        Filter.gt("room", 10).compile(atts);
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.dei.perla.core.fpc;
+
+import org.dei.perla.core.fpc.base.SamplePipeline;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.*;
+
+public class SampleBatchTest {
+
+    private static final List<Attribute> atts = Arrays.asList(
+            Attribute.create("integer", DataType.INTEGER),
+            Attribute.create("float", DataType.FLOAT),
+            Attribute.create("boolean", DataType.BOOLEAN),
+            Attribute.create("string", DataType.STRING),
+            Attribute.TIMESTAMP
+    );
+
+    @Test
+    public void testConversion() {
+        SampleSchema schema = SampleSchema.of(atts);
+        Instant now = Instant.now();
+
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            samples.add(new Sample(schema, new Object[]{
+                    i, i * 0.5f, i % 2 == 0, "s" + i, now.plusNanos(i)
+            }));
+        }
+        samples.add(new Sample(schema, new Object[5]));
+
+        SampleBatch b = SampleBatch.of(samples);
+        assertThat(b.size(), equalTo(101));
+        assertThat(b.getSchema(), equalTo(schema));
+
+        int[] ints = b.intColumn(0);
+        float[] floats = b.floatColumn(1);
+        long[] ts = b.timestampColumn(4);
+        for (int i = 0; i < 100; i++) {
+            assertThat(ints[i], equalTo(i));
+            assertThat(floats[i], equalTo(i * 0.5f));
+            assertThat(b.getBoolean(2, i), equalTo(i % 2 == 0));
+            assertThat(ts[i] - ts[0], equalTo((long) i));
+            assertFalse(b.isNull(0, i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(b.isNull(i, 100));
+        }
+
+        List<Sample> back = b.toSamples();
+        for (int i = 0; i < back.size(); i++) {
+            assertArrayEquals(samples.get(i).values(), back.get(i).values());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongColumnType() {
+        SampleBatch b = new SampleBatch(SampleSchema.of(atts), 1);
+        b.floatColumn(0);
+    }
+
+    @Test
+    public void testPipelineAppend() {
+        SamplePipeline p = new SamplePipeline(atts);
+        SampleBatch b = new SampleBatch(p.getSchema(), 0);
+        Instant now = Instant.now();
+        for (int i = 0; i < 20; i++) {
+            p.run(new Object[]{i, 1f, true, "s", now}, b);
+        }
+        assertThat(b.size(), equalTo(20));
+        assertThat(b.getInt(0, 19), equalTo(19));
+        assertThat(b.getValue(4, 0), equalTo(now));
+        b.clear();
+        assertTrue(b.isEmpty());
+    }
+
+}
@@ -6,18 +6,21 @@ import org.dei.perla.core.fpc.Sample;
 import org.junit.Test;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.*;
 
 public class SampleTest {
 
 	public static final Sample EMPTY_SAMPLE =
-			new Sample(Collections.emptyList(), new Object[0]);
+			new Sample(SampleSchema.EMPTY, new Object[0]);
 
 	@Test
 	public void sampleCreationTest() {
@@ -102,4 +105,28 @@ public class SampleTest {
 		}
 	}
 
+	@Test
+	public void schemaTest() {
+		List<Attribute> atts = Arrays.asList(
+				Attribute.create("integer", DataType.INTEGER),
+				Attribute.create("string", DataType.STRING),
+				Attribute.create("integer", DataType.INTEGER));
+		SampleSchema schema = SampleSchema.of(atts);
+		assertThat(schema.size(), equalTo(3));
+		assertThat(schema.indexOf("integer"), equalTo(0));
+		assertThat(schema.indexOf("string"), equalTo(1));
+		assertThat(schema.indexOf("missing"), equalTo(-1));
+		assertThat(SampleSchema.of(Arrays.asList(atts.get(0), atts.get(1),
+				atts.get(2))), equalTo(schema));
+
+		// Samples created from the same schema share it
+		Sample s = new Sample(schema, new Object[]{1, "test", 2});
+		assertThat(s.getSchema(), sameInstance(schema));
+		Sample s2 = new Sample(atts, new Object[]{3, "test", 4});
+		assertThat(s2.getSchema(), equalTo(schema));
+		assertThat(s.getValue("integer"), equalTo(1));
+		assertThat(s.getValue("string"), equalTo("test"));
+		assertFalse(s.hasField("missing"));
+	}
+
 }
@@ -0,0 +1,37 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.channel.loopback.TestMapper;
+import org.dei.perla.core.fpc.base.AsyncOperation.AsyncMessageHandler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class AsyncOperationTest {
+
+    @Test
+    public void testOnDemandStartFailure() throws Exception {
+        TestMapper mapper = new TestMapper("msg");
+        // The 'on' script cannot be started
+        AsyncOperation op = new AsyncOperation("async",
+                Collections.emptyList(), null,
+                new AsyncMessageHandler(mapper, null, "msg"),
+                new ChannelManager(new ArrayList<>()));
+
+        // No task is running, the message is processed on demand
+        op.handleMessage(mapper.createMessage());
+        CountDownLatch first = new CountDownLatch(1);
+        op.latestSample(s -> first.countDown());
+        assertTrue(first.await(1, TimeUnit.SECONDS));
+
+        // Requests issued after the failure are not left waiting
+        CountDownLatch next = new CountDownLatch(1);
+        op.latestSample(s -> next.countDown());
+        assertTrue(next.await(1, TimeUnit.SECONDS));
+    }
+
+}
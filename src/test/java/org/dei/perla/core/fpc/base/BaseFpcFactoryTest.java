@@ -22,6 +22,7 @@ import java.util.*;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
 
 public class BaseFpcFactoryTest {
@@ -201,6 +202,12 @@ public class BaseFpcFactoryTest {
         assertTrue(attributes.contains(floatAtt));
         assertTrue(attributes.contains(intAtt));
         assertFalse(attributes.contains(boolAtt));
+        assertThat(((NativePeriodicOperation) op).getChangeScript(),
+                notNullValue());
+
+        op = scheduler.getPeriodicOperation("multiple-periodic");
+        assertThat(((NativePeriodicOperation) op).getChangeScript(),
+                nullValue());
     }
 
     @Test
@@ -10,7 +10,9 @@ import org.dei.perla.core.descriptor.JaxbDeviceDescriptorParser;
 import org.dei.perla.core.fpc.DataType;
 import org.dei.perla.core.fpc.Fpc;
 import org.dei.perla.core.fpc.FpcFactory;
+import org.dei.perla.core.fpc.QosClass;
 import org.dei.perla.core.fpc.Task;
+import org.dei.perla.core.fpc.TaskOptions;
 import org.dei.perla.core.message.MapperFactory;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.Sample;
@@ -263,6 +265,32 @@ public class BaseFpcTest {
         assertThat(value, equalTo(5));
     }
 
+    @Test
+    public void testStaticOptions() throws InterruptedException {
+        List<Attribute> attributeList = new ArrayList<>();
+        attributeList.add(Attribute.create("static", DataType.INTEGER));
+
+        // Options that do not require a processing stage are accepted
+        TaskOptions qos = TaskOptions.newBuilder()
+                .qos(QosClass.CRITICAL).build();
+        LatchingTaskHandler handler = new LatchingTaskHandler(1);
+        Task task = fpc.get(attributeList, false, qos, handler);
+        assertThat(task, notNullValue());
+        handler.awaitCompletion();
+        assertThat(handler.getLastSample().getValue("static"), equalTo(5));
+
+        TaskOptions batch = TaskOptions.newBuilder().batch(10, 100).build();
+        try {
+            fpc.get(attributeList, false, batch, new LatchingTaskHandler(1));
+            fail("Batching accepted for a static request");
+        } catch (IllegalArgumentException e) { }
+        try {
+            fpc.get(attributeList, false, 10, batch,
+                    new LatchingTaskHandler(1));
+            fail("Batching accepted for a static periodic request");
+        } catch (IllegalArgumentException e) { }
+    }
+
     @Test
     public void testPeriodicMultipleHandler() throws InterruptedException,
             ExecutionException {
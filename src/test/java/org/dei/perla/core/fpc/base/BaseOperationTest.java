@@ -1,11 +1,14 @@
 package org.dei.perla.core.fpc.base;
 
+import org.dei.perla.core.fpc.BatchTaskHandler;
 import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
 import org.dei.perla.core.fpc.Sample;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -66,6 +69,48 @@ public class BaseOperationTest {
         assertFalse(task2.isRunning());
     }
 
+    @Test
+    public void testTaskIsolation() throws InterruptedException {
+        TestOperation op = new TestOperation();
+
+        BaseTask faulty = op.schedule(Collections.emptyMap(),
+                new FaultyTaskHandler());
+        faulty.start();
+        TestTaskHandler handler = new TestTaskHandler(3);
+        BaseTask task = op.schedule(Collections.emptyMap(), handler);
+        task.start();
+
+        // An exception thrown by a TaskHandler must not prevent other tasks
+        // from receiving the sample
+        for (int i = 0; i < 3; i++) {
+            op.forEachTask(t -> t.processSample(new Object[0]));
+        }
+        assertThat(handler.getSampleCount(), equalTo(3));
+        assertTrue(faulty.isRunning());
+        assertTrue(task.isRunning());
+    }
+
+    @Test
+    public void testBatchDelivery() throws InterruptedException {
+        TestOperation op = new TestOperation();
+        TestBatchHandler handler = new TestBatchHandler();
+
+        BaseTask task = op.schedule(Collections.emptyMap(), handler);
+        task.setBatching(3, 0);
+        task.start();
+        for (int i = 0; i < 7; i++) {
+            task.processSample(new Object[0]);
+        }
+        task.stop();
+
+        // The last partial batch is delivered before completion
+        List<Integer> batches = handler.awaitCompletion();
+        assertThat(batches.size(), equalTo(3));
+        assertThat(batches.get(0), equalTo(3));
+        assertThat(batches.get(1), equalTo(3));
+        assertThat(batches.get(2), equalTo(1));
+    }
+
     private static class TestStopHandler implements Consumer<Operation> {
 
         private boolean done = false;
@@ -109,6 +154,14 @@ public class BaseOperationTest {
             return completionCount;
         }
 
+        public synchronized int getSampleCount()
+                throws InterruptedException {
+            while (!isComplete()) {
+                this.wait();
+            }
+            return sampleCount;
+        }
+
         private synchronized boolean isComplete() {
             if (completionCount + sampleCount + errorCount >= eventCount) {
                 return true;
@@ -137,6 +190,56 @@ public class BaseOperationTest {
 
     }
 
+    /**
+     * {@link BatchTaskHandler} that records the size of every batch
+     */
+    private static class TestBatchHandler implements BatchTaskHandler {
+
+        private final List<Integer> batches = new ArrayList<>();
+        private boolean complete = false;
+
+        public synchronized List<Integer> awaitCompletion()
+                throws InterruptedException {
+            while (!complete) {
+                this.wait();
+            }
+            return batches;
+        }
+
+        @Override
+        public synchronized void data(Task task, List<Sample> samples) {
+            batches.add(samples.size());
+        }
+
+        @Override
+        public synchronized void complete(Task task) {
+            complete = true;
+            this.notifyAll();
+        }
+
+        @Override
+        public void error(Task task, Throwable cause) { }
+
+    }
+
+    /**
+     * {@link TaskHandler} that fails every time a new sample is received
+     */
+    private static class FaultyTaskHandler implements TaskHandler {
+
+        @Override
+        public void complete(Task task) { }
+
+        @Override
+        public void data(Task task, Sample sample) {
+            throw new RuntimeException("Faulty handler");
+        }
+
+        @Override
+        public void error(Task task, Throwable cause) { }
+
+    }
+
     /**
      * Test implementation of the {@link BaseOperation} class
      *
@@ -135,7 +135,7 @@ public class ConcreteOperationTest {
                 true, "result", 0));
 
         natPeriodicOp = new NativePeriodicOperation("periodic_operation",
-                perOnScript.getEmit(), perStartScript, perStopScript,
+                perOnScript.getEmit(), perStartScript, perStopScript, null,
                 perHandlerList, chMgr);
 
         // Asynchronous operation
@@ -0,0 +1,92 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Deadband;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeadbandFilterTest {
+
+    private static final List<Attribute> atts = Arrays.asList(
+            Attribute.create("temperature", DataType.FLOAT),
+            Attribute.create("pressure", DataType.INTEGER),
+            Attribute.create("label", DataType.STRING));
+
+    @Test
+    public void testAbsolute() {
+        Deadband d = Deadband.newBuilder()
+                .absolute("temperature", 0.5).build();
+        DeadbandFilter f = new DeadbandFilter(d, atts);
+
+        assertTrue(accept(f, row(20f, 1000)));
+        assertFalse(accept(f, row(20.3f, 1000)));
+        // Changes are measured against the last reported value
+        assertTrue(accept(f, row(20.6f, 1000)));
+        assertFalse(accept(f, row(20.2f, 1000)));
+        assertTrue(accept(f, row(null, 1000)));
+        assertFalse(accept(f, row(null, 1000)));
+        assertTrue(accept(f, row(1f, 1000)));
+    }
+
+    @Test
+    public void testRelativeHeartbeat() {
+        Deadband d = Deadband.newBuilder()
+                .relative("pressure", 0.1)
+                .heartbeat(3)
+                .build();
+        DeadbandFilter f = new DeadbandFilter(d, atts);
+
+        assertTrue(accept(f, row(0f, 1000)));
+        assertFalse(accept(f, row(0f, 1050)));
+        assertFalse(accept(f, row(0f, 950)));
+        // Heartbeat
+        assertTrue(accept(f, row(0f, 1000)));
+        assertFalse(accept(f, row(0f, 1100)));
+        assertTrue(accept(f, row(0f, 1101)));
+    }
+
+    @Test
+    public void testUncommitted() {
+        Deadband d = Deadband.newBuilder()
+                .absolute("temperature", 0.5).build();
+        DeadbandFilter f = new DeadbandFilter(d, atts);
+
+        // Nothing has been reported yet, every sample is accepted
+        assertTrue(f.accept(row(20f, 1000)));
+        assertTrue(f.accept(row(20f, 1000)));
+        f.commit(row(20f, 1000));
+
+        // An accepted sample that is not committed is not a reference
+        assertTrue(f.accept(row(21f, 1000)));
+        assertTrue(f.accept(row(20.8f, 1000)));
+        assertFalse(f.accept(row(20.2f, 1000)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonNumeric() {
+        Deadband d = Deadband.newBuilder().absolute("label", 1).build();
+        new DeadbandFilter(d, atts);
+    }
+
+    /*
+     * Accepted samples are committed, as if they were delivered
+     */
+    private static boolean accept(DeadbandFilter f, Object[] sample) {
+        if (!f.accept(sample)) {
+            return false;
+        }
+        f.commit(sample);
+        return true;
+    }
+
+    private static Object[] row(Float temperature, Integer pressure) {
+        return new Object[]{temperature, pressure, "label"};
+    }
+
+}
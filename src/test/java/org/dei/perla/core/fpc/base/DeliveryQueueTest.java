@@ -0,0 +1,128 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.OverloadPolicy;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.SampleSchema;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DeliveryQueueTest {
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        BlockingConsumer c = new BlockingConsumer();
+        DeliveryQueue q = new DeliveryQueue(2, OverloadPolicy.DROP_NEWEST, c);
+
+        List<Sample> samples = offerAll(q, c, 5);
+        // One sample is being consumed, two are queued
+        assertThat(q.size(), equalTo(2));
+        assertThat(q.dropped(), equalTo(2l));
+        // Discarded samples are reported to the producer
+        Sample s = new Sample(SampleSchema.EMPTY, new Object[0]);
+        assertThat(q.offer(s), equalTo(false));
+
+        List<Sample> received = c.release(q);
+        assertThat(received, equalTo(samples.subList(0, 3)));
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        BlockingConsumer c = new BlockingConsumer();
+        DeliveryQueue q = new DeliveryQueue(2, OverloadPolicy.DROP_OLDEST, c);
+
+        List<Sample> samples = offerAll(q, c, 5);
+        assertThat(q.size(), equalTo(2));
+        assertThat(q.dropped(), equalTo(2l));
+
+        List<Sample> received = c.release(q);
+        assertThat(received.size(), equalTo(3));
+        assertThat(received.get(0), equalTo(samples.get(0)));
+        assertThat(received.get(1), equalTo(samples.get(3)));
+        assertThat(received.get(2), equalTo(samples.get(4)));
+    }
+
+    @Test
+    public void testLatest() throws InterruptedException {
+        BlockingConsumer c = new BlockingConsumer();
+        DeliveryQueue q = new DeliveryQueue(8, OverloadPolicy.LATEST, c);
+
+        List<Sample> samples = offerAll(q, c, 5);
+        assertThat(q.size(), equalTo(1));
+        assertThat(q.dropped(), equalTo(3l));
+
+        List<Sample> received = c.release(q);
+        assertThat(received.size(), equalTo(2));
+        assertThat(received.get(0), equalTo(samples.get(0)));
+        assertThat(received.get(1), equalTo(samples.get(4)));
+    }
+
+    @Test
+    public void testCloseDiscard() throws InterruptedException {
+        BlockingConsumer c = new BlockingConsumer();
+        DeliveryQueue q = new DeliveryQueue(4, OverloadPolicy.BLOCK, c);
+
+        offerAll(q, c, 3);
+        CountDownLatch closed = new CountDownLatch(1);
+        q.close(closed::countDown, true);
+        assertThat(q.size(), equalTo(0));
+        c.proceed.countDown();
+        closed.await();
+        assertThat(c.received.size(), equalTo(1));
+    }
+
+    // Offers a number of samples, making sure that the first one has
+    // already been handed over to the consumer
+    private static List<Sample> offerAll(DeliveryQueue q, BlockingConsumer c,
+            int count) throws InterruptedException {
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Sample s = new Sample(SampleSchema.EMPTY, new Object[0]);
+            samples.add(s);
+            q.offer(s);
+            if (i == 0) {
+                c.started.await();
+            }
+        }
+        return samples;
+    }
+
+    private static class BlockingConsumer implements Consumer<Sample> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch proceed = new CountDownLatch(1);
+        private final List<Sample> received = new ArrayList<>();
+
+        @Override
+        public void accept(Sample s) {
+            synchronized (this) {
+                received.add(s);
+            }
+            started.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private List<Sample> release(DeliveryQueue q)
+                throws InterruptedException {
+            CountDownLatch done = new CountDownLatch(1);
+            q.close(done::countDown, false);
+            proceed.countDown();
+            done.await();
+            synchronized (this) {
+                return received;
+            }
+        }
+
+    }
+
+}
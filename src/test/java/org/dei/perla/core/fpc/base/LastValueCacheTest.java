@@ -0,0 +1,80 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class LastValueCacheTest {
+
+    private static final Attribute temp =
+            Attribute.create("temperature", DataType.FLOAT);
+    private static final Attribute hum =
+            Attribute.create("humidity", DataType.INTEGER);
+    private static final Attribute room =
+            Attribute.create("room", DataType.STRING);
+
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    public void testLookup() {
+        LastValueCache c = new LastValueCache();
+        LastValueCache.Slot[] s = c.slots(Arrays.asList(temp, hum));
+        assertThat(c.lookup(Arrays.asList(temp), HOUR), nullValue());
+
+        LastValueCache.update(s, new Object[]{ 21.5f, 40 }, 0);
+        Object[] v = c.lookup(Arrays.asList(hum, temp), HOUR);
+        assertThat(v, notNullValue());
+        assertThat(v[0], equalTo(40));
+        assertThat(v[1], equalTo(21.5f));
+
+        // Attributes never sampled are missing
+        assertThat(c.lookup(Arrays.asList(temp, room), HOUR), nullValue());
+    }
+
+    @Test
+    public void testPartialUpdate() {
+        LastValueCache c = new LastValueCache();
+        List<Attribute> atts = Arrays.asList(temp, hum, room);
+        LastValueCache.Slot[] s = c.slots(atts);
+
+        // Null values are not stored
+        LastValueCache.update(s, new Object[]{ 22f, null }, 0);
+        assertThat(c.lookup(Arrays.asList(temp), HOUR), notNullValue());
+        assertThat(c.lookup(Arrays.asList(hum), HOUR), nullValue());
+
+        LastValueCache.update(s, new Object[]{ "kitchen" }, 2);
+        Object[] v = c.lookup(Arrays.asList(room), HOUR);
+        assertThat(v[0], equalTo("kitchen"));
+    }
+
+    @Test
+    public void testSharedSlots() {
+        LastValueCache c = new LastValueCache();
+        LastValueCache.Slot[] s1 = c.slots(Arrays.asList(temp));
+        LastValueCache.Slot[] s2 = c.slots(Arrays.asList(hum, temp));
+        assertThat(s1[0], sameInstance(s2[1]));
+
+        LastValueCache.update(s1, new Object[]{ 10f }, 0);
+        LastValueCache.update(s2, new Object[]{ 50, 12f }, 0);
+        assertThat(c.lookup(Arrays.asList(temp), HOUR)[0], equalTo(12f));
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        LastValueCache c = new LastValueCache();
+        LastValueCache.Slot[] s = c.slots(Arrays.asList(temp));
+        LastValueCache.update(s, new Object[]{ 10f }, 0);
+        Thread.sleep(20);
+        assertThat(c.lookup(Arrays.asList(temp),
+                TimeUnit.MILLISECONDS.toNanos(5)), nullValue());
+        assertThat(c.lookup(Arrays.asList(temp), HOUR), notNullValue());
+    }
+
+}
@@ -0,0 +1,225 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.channel.loopback.TestMapper;
+import org.dei.perla.core.engine.BasicInstruction;
+import org.dei.perla.core.engine.EmitInstruction;
+import org.dei.perla.core.engine.Runner;
+import org.dei.perla.core.engine.Script;
+import org.dei.perla.core.engine.ScriptBuilder;
+import org.dei.perla.core.engine.ScriptException;
+import org.dei.perla.core.engine.UnsupportedPeriodException;
+import org.dei.perla.core.fpc.QosClass;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.Task;
+import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class NativePeriodicOperationTest {
+
+    @Test
+    public void testChangeInPlace() throws Exception {
+        CountingInstruction start = new CountingInstruction();
+        CountingInstruction stop = new CountingInstruction();
+        CountingInstruction change = new CountingInstruction();
+        NativePeriodicOperation op = create(start, stop, change);
+
+        BaseTask t1 = schedule(op, 100);
+        await(() -> start.runs.get() == 1);
+        BaseTask t2 = schedule(op, 10);
+        await(() -> change.runs.get() == 1);
+        assertThat(op.getSamplingPeriod(), equalTo(10L));
+
+        // Slowing down is performed in place as well
+        t2.stop();
+        await(() -> change.runs.get() == 2);
+        assertThat(op.getSamplingPeriod(), equalTo(100L));
+
+        assertThat(start.runs.get(), equalTo(1));
+        assertThat(stop.runs.get(), equalTo(0));
+        t1.stop();
+        await(() -> stop.runs.get() == 1);
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        CountingInstruction start = new CountingInstruction();
+        CountingInstruction stop = new CountingInstruction();
+        NativePeriodicOperation op = create(start, stop, null);
+
+        BaseTask t1 = schedule(op, 100);
+        await(() -> start.runs.get() == 1);
+        BaseTask t2 = schedule(op, 10);
+        // Without change script the sampling operation is restarted
+        await(() -> start.runs.get() == 2);
+        assertThat(stop.runs.get(), equalTo(1));
+
+        t2.stop();
+        t1.stop();
+    }
+
+    @Test
+    public void testUnsupportedPeriod() throws Exception {
+        CountingInstruction start = new CountingInstruction(1);
+        NativePeriodicOperation op = create(start,
+                new CountingInstruction(), null);
+
+        // The device rejects the first period, and suggests a new one
+        BaseTask t1 = schedule(op, 10);
+        await(() -> start.runs.get() == 2);
+        await(() -> op.getPeriodTable().isAccepted(12));
+        assertThat(op.getSamplingPeriod(), equalTo(12L));
+        assertThat(op.getPeriodTable().isRejected(10), equalTo(true));
+        t1.stop();
+
+        // Operations sharing the table request the supported period
+        // directly, without probing the device again
+        CountingInstruction start2 = new CountingInstruction();
+        NativePeriodicOperation op2 = create(start2,
+                new CountingInstruction(), null);
+        op2.setPeriodTable(op.getPeriodTable());
+        BaseTask t2 = schedule(op2, 10);
+        await(() -> start2.runs.get() == 1);
+        assertThat(op2.getSamplingPeriod(), equalTo(12L));
+        t2.stop();
+    }
+
+    @Test
+    public void testQos() throws Exception {
+        CountingInstruction start = new CountingInstruction();
+        NativePeriodicOperation op = create(start,
+                new CountingInstruction(), null);
+
+        TaskOptions opts = TaskOptions.newBuilder()
+                .qos(QosClass.CRITICAL).build();
+        BaseTask t = op.schedule(Collections.singletonMap("period", 10L),
+                new LatchingTaskHandler(0), new SamplePipeline(
+                        Collections.emptyList()), opts);
+        t.start();
+        // The first start script already runs in the lane of the new task
+        await(() -> start.runs.get() == 1);
+        assertThat(start.qos, equalTo(QosClass.CRITICAL));
+        t.stop();
+    }
+
+    @Test
+    public void testMultiRecordMessages() throws Exception {
+        CountingInstruction start = new CountingInstruction();
+        TestMapper mapper = new TestMapper("msg");
+        // Every message carries three records
+        Script on = ScriptBuilder.newScript()
+                .add(new EmitInstruction())
+                .add(new EmitInstruction())
+                .add(new EmitInstruction())
+                .buildScript("on");
+        NativePeriodicOperation op = new NativePeriodicOperation("native",
+                Collections.emptyList(),
+                ScriptBuilder.newScript().add(start).buildScript("start"),
+                ScriptBuilder.newScript().add(new CountingInstruction())
+                        .buildScript("stop"), null,
+                Collections.singletonList(new MessageScript(on, mapper,
+                        false, "msg", 0)),
+                new ChannelManager(new ArrayList<>()));
+        // The device samples twice as fast as requested
+        PeriodTable periods = new PeriodTable();
+        periods.rejected(20, 10);
+        op.setPeriodTable(periods);
+
+        AtomicInteger relayed = new AtomicInteger(0);
+        BaseTask t = op.schedule(Collections.singletonMap("period", 20L),
+                new TaskHandler() {
+
+                    @Override
+                    public void complete(Task task) { }
+
+                    @Override
+                    public void data(Task task, Sample sample) {
+                        relayed.incrementAndGet();
+                    }
+
+                    @Override
+                    public void error(Task task, Throwable cause) { }
+
+                });
+        t.start();
+        await(() -> start.runs.get() == 1);
+        assertThat(op.getSamplingPeriod(), equalTo(10L));
+
+        // Every other record is relayed. No message can be skipped, as
+        // each one advances the downsampling by three records
+        int[] expected = {2, 3, 5, 6};
+        for (int e : expected) {
+            op.handleMessage(mapper.createMessage());
+            await(() -> relayed.get() == e);
+        }
+        Thread.sleep(50);
+        assertThat(relayed.get(), equalTo(6));
+        t.stop();
+    }
+
+    private static NativePeriodicOperation create(CountingInstruction start,
+            CountingInstruction stop, CountingInstruction change) {
+        Script startScript = ScriptBuilder.newScript().add(start)
+                .buildScript("start");
+        Script stopScript = ScriptBuilder.newScript().add(stop)
+                .buildScript("stop");
+        Script changeScript = null;
+        if (change != null) {
+            changeScript = ScriptBuilder.newScript().add(change)
+                    .buildScript("change");
+        }
+        return new NativePeriodicOperation("native", Collections.emptyList(),
+                startScript, stopScript, changeScript,
+                Collections.emptyList(), new ChannelManager(new ArrayList<>()));
+    }
+
+    private static BaseTask schedule(NativePeriodicOperation op,
+            long period) {
+        BaseTask t = op.schedule(Collections.singletonMap("period", period),
+                new LatchingTaskHandler(0));
+        t.start();
+        return t;
+    }
+
+    private static void await(BooleanSupplier c) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!c.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(c.getAsBoolean(), equalTo(true));
+    }
+
+    private static final class CountingInstruction extends BasicInstruction {
+
+        private final AtomicInteger runs = new AtomicInteger(0);
+        private volatile QosClass qos = null;
+        // Number of runs rejected with an UnsupportedPeriodException
+        private final int rejections;
+
+        private CountingInstruction() {
+            this(0);
+        }
+
+        private CountingInstruction(int rejections) {
+            this.rejections = rejections;
+        }
+
+        @Override
+        protected void runBasic(Runner runner) throws ScriptException {
+            qos = runner.getQos();
+            if (runs.incrementAndGet() <= rejections) {
+                throw new UnsupportedPeriodException(10, 12);
+            }
+        }
+
+    }
+
+}
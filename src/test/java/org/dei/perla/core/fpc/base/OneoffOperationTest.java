@@ -0,0 +1,142 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.engine.BasicInstruction;
+import org.dei.perla.core.engine.EmitInstruction;
+import org.dei.perla.core.engine.PutInstruction;
+import org.dei.perla.core.engine.Runner;
+import org.dei.perla.core.engine.Script;
+import org.dei.perla.core.engine.ScriptBuilder;
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.QosClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class OneoffOperationTest {
+
+    private static final Attribute intAtt =
+            Attribute.create("integer", DataType.INTEGER);
+
+    @Test
+    public void testCoalescing() throws Exception {
+        CountingInstruction in = new CountingInstruction();
+        Script script = ScriptBuilder.newScript()
+                .add(in)
+                .add(new PutInstruction("${5}", Integer.class, 0), intAtt)
+                .add(new EmitInstruction())
+                .buildScript("get");
+        OneoffOperation op = new OneoffOperation("get", script.getEmit(),
+                script);
+
+        List<LatchingTaskHandler> hs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LatchingTaskHandler h = new LatchingTaskHandler(1);
+            hs.add(h);
+            op.schedule(Collections.emptyMap(), h).start();
+        }
+
+        for (LatchingTaskHandler h : hs) {
+            assertThat(h.getCount(), equalTo(1));
+            assertThat(h.getLastSample().getValue("integer"), equalTo(5));
+        }
+        // All tasks were started while the first execution was in flight
+        assertThat(in.runs.get(), equalTo(1));
+
+        // A new execution is started once the previous one is complete
+        LatchingTaskHandler h = new LatchingTaskHandler(1);
+        op.schedule(Collections.emptyMap(), h).start();
+        assertThat(h.getCount(), equalTo(1));
+        assertThat(in.runs.get(), equalTo(2));
+    }
+
+    @Test
+    public void testNoCoalescing() throws Exception {
+        CountingInstruction in = new CountingInstruction();
+        Script script = ScriptBuilder.newScript().add(in).buildScript("set");
+        OneoffOperation op = new OneoffOperation("set",
+                Collections.emptyList(), script);
+
+        for (int i = 0; i < 5; i++) {
+            op.schedule(Collections.emptyMap(), new LatchingTaskHandler(0))
+                    .start();
+        }
+        Thread.sleep(CountingInstruction.DURATION * 4);
+        // Scripts without emitted attributes are run for every task
+        assertThat(in.runs.get(), equalTo(5));
+    }
+
+    @Test
+    public void testQosCoalescing() throws Exception {
+        CountingInstruction in = new CountingInstruction();
+        Script script = ScriptBuilder.newScript()
+                .add(in)
+                .add(new PutInstruction("${5}", Integer.class, 0), intAtt)
+                .add(new EmitInstruction())
+                .buildScript("get");
+        OneoffOperation op = new OneoffOperation("get", script.getEmit(),
+                script);
+
+        LatchingTaskHandler bulk = new LatchingTaskHandler(1);
+        start(op, bulk, QosClass.BULK);
+        // Critical tasks never wait for an execution in a lower lane
+        LatchingTaskHandler critical = new LatchingTaskHandler(1);
+        start(op, critical, QosClass.CRITICAL);
+        // Lower classes may join an execution in a higher lane
+        LatchingTaskHandler normal = new LatchingTaskHandler(1);
+        start(op, normal, QosClass.NORMAL);
+
+        assertThat(bulk.getCount(), equalTo(1));
+        assertThat(critical.getCount(), equalTo(1));
+        assertThat(normal.getCount(), equalTo(1));
+        assertThat(in.runs.get(), equalTo(2));
+    }
+
+    private static void start(OneoffOperation op, LatchingTaskHandler h,
+            QosClass qos) {
+        BaseTask t = op.schedule(Collections.emptyMap(), h);
+        t.setQos(qos);
+        t.start();
+    }
+
+    @Test
+    public void testParameters() throws Exception {
+        Script script = ScriptBuilder.newScript()
+                .add(new PutInstruction("${param['integer']}",
+                        Integer.class, 0), intAtt)
+                .add(new EmitInstruction())
+                .buildScript("set");
+        OneoffOperation op = new OneoffOperation("set", script.getEmit(),
+                script);
+
+        LatchingTaskHandler h = new LatchingTaskHandler(1);
+        op.schedule(Collections.singletonMap("integer", 42), h).start();
+        assertThat(h.getCount(), equalTo(1));
+        assertThat(h.getLastSample().getValue("integer"), equalTo(42));
+    }
+
+    private static final class CountingInstruction extends BasicInstruction {
+
+        private static final long DURATION = 100;
+
+        private final AtomicInteger runs = new AtomicInteger(0);
+
+        @Override
+        protected void runBasic(Runner runner) {
+            runs.incrementAndGet();
+            try {
+                Thread.sleep(DURATION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.dei.perla.core.fpc.base;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PeriodTableTest {
+
+    @Test
+    public void testNegotiate() {
+        PeriodTable t = new PeriodTable();
+        assertThat(t.negotiate(10), equalTo(10L));
+
+        t.rejected(10, 12);
+        assertTrue(t.isRejected(10));
+        assertThat(t.negotiate(10), equalTo(12L));
+
+        // Suggestions are followed until a period is not rejected
+        t.rejected(12, 15);
+        assertThat(t.negotiate(10), equalTo(15L));
+        assertThat(t.negotiate(12), equalTo(15L));
+
+        t.accepted(12);
+        assertTrue(t.isAccepted(12));
+        assertFalse(t.isRejected(12));
+        assertThat(t.negotiate(10), equalTo(12L));
+    }
+
+    @Test
+    public void testCycle() {
+        PeriodTable t = new PeriodTable();
+        t.rejected(10, 12);
+        t.rejected(12, 10);
+        long p = t.negotiate(10);
+        assertTrue(t.isRejected(p));
+    }
+
+    @Test
+    public void testShared() {
+        PeriodTable.Registry r = new PeriodTable.Registry();
+        PeriodTable t1 = r.acquire("device", "op");
+        PeriodTable t2 = r.acquire("device", "op");
+        PeriodTable t3 = r.acquire("device", "other-op");
+        assertThat(t1, sameInstance(t2));
+        assertThat(t1, not(sameInstance(t3)));
+
+        // Tables are not shared across registries
+        PeriodTable.Registry other = new PeriodTable.Registry();
+        assertThat(other.acquire("device", "op"), not(sameInstance(t1)));
+    }
+
+    @Test
+    public void testRelease() {
+        PeriodTable.Registry r = new PeriodTable.Registry();
+        PeriodTable t1 = r.acquire("device", "op");
+        PeriodTable t2 = r.acquire("device", "op");
+        t1.rejected(10, 12);
+
+        // The table is kept while it is in use
+        t1.release();
+        assertThat(r.size(), equalTo(1));
+        assertThat(r.acquire("device", "op"), sameInstance(t2));
+        t2.release();
+        t2.release();
+        assertThat(r.size(), equalTo(0));
+
+        // Periods learned before the release are forgotten
+        PeriodTable t3 = r.acquire("device", "op");
+        assertThat(t3, not(sameInstance(t1)));
+        assertFalse(t3.isRejected(10));
+    }
+
+}
@@ -1,17 +1,37 @@
 package org.dei.perla.core.fpc.base;
 
+import org.dei.perla.core.fpc.Aggregate;
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Deadband;
+import org.dei.perla.core.fpc.Filter;
+import org.dei.perla.core.fpc.OverloadPolicy;
 import org.dei.perla.core.fpc.Sample;
 import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
+import org.dei.perla.core.fpc.Window;
+import org.dei.perla.core.utils.Dispatcher;
+import org.dei.perla.core.utils.TimerWheel;
+import org.dei.perla.core.utils.TimerWheel.Timeout;
 import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class PeriodicTaskTest {
 
@@ -107,22 +127,325 @@ public class PeriodicTaskTest {
         assertThat(countHandler.getCount(), equalTo(samples / ratio));
     }
 
+    @Test
+    public void testSkipSample() {
+        CountingHandler countHandler = new CountingHandler();
+        PeriodicTask task = new PeriodicTask(FAKE_OP, countHandler, 4,
+                EMPTY_PIPELINE);
+        task.setInputPeriod(1);
+        assertThat(task.acceptsNext(), equalTo(false));
+        task.start();
+
+        // Skipped samples advance the downsampling like discarded ones
+        for (int i = 0; i < 100; i++) {
+            if (task.acceptsNext()) {
+                task.newSample(EMPTY_SAMPLE);
+            } else {
+                task.skipSample();
+            }
+        }
+        assertThat(countHandler.getCount(), equalTo(25L));
+    }
+
+    @Test
+    public void testHistograms() {
+        CountingHandler countHandler = new CountingHandler();
+        PeriodicTask task = new PeriodicTask(FAKE_OP, countHandler, 2,
+                EMPTY_PIPELINE);
+        task.setInputPeriod(1);
+        task.start();
+
+        for (int i = 0; i < 100; i++) {
+            long tick = System.nanoTime() - 1_000_000;
+            task.newSample(EMPTY_SAMPLE, tick);
+        }
+
+        // Only relayed samples are recorded
+        assertThat(task.getLatencyHistogram().getCount(), equalTo(50L));
+        assertThat(task.getLatencyHistogram().getMin(),
+                greaterThanOrEqualTo(1_000_000L));
+        assertThat(task.getPeriodHistogram().getCount(), equalTo(49L));
+    }
+
+    @Test
+    public void testRejectedOptions() {
+        Attribute temp = Attribute.create("temperature", DataType.FLOAT);
+        List<Attribute> atts = Collections.singletonList(temp);
+        FakeOperation op = new FakeOperation(atts);
+        SamplePipeline p = new SamplePipeline(atts, atts);
+        Map<String, Object> slow = Collections.singletonMap("period", 100);
+        Map<String, Object> fast = Collections.singletonMap("period", 10);
+
+        op.schedule(slow, new CountingHandler(), p).start();
+        assertThat(op.taskCount(), equalTo(1));
+        assertThat(op.getSamplingPeriod(), equalTo(100L));
+
+        List<TaskOptions> rejected = Arrays.asList(
+                TaskOptions.newBuilder()
+                        .filter(Filter.gt("humidity", 50)).build(),
+                TaskOptions.newBuilder()
+                        .deadband(Deadband.newBuilder()
+                                .absolute("humidity", 1).build()).build(),
+                TaskOptions.newBuilder().adaptive(5, 1).build(),
+                TaskOptions.newBuilder().batch(10, 0).build());
+        for (TaskOptions opts : rejected) {
+            try {
+                op.schedule(fast, new CountingHandler(), p, opts);
+                fail("Options should have been rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            // The operation is left untouched
+            assertThat(op.taskCount(), equalTo(1));
+            assertThat(op.getSamplingPeriod(), equalTo(100L));
+        }
+    }
+
+    @Test
+    public void testWindowFlush() throws InterruptedException {
+        Window w = Window.newBuilder(1000)
+                .aggregate(Aggregate.AVG, "temperature")
+                .build();
+        List<TaskOptions> options = Arrays.asList(
+                TaskOptions.newBuilder().window(w).build(),
+                TaskOptions.newBuilder().window(w)
+                        .queue(10, OverloadPolicy.BLOCK).build());
+
+        Attribute temp = Attribute.create("temperature", DataType.FLOAT);
+        List<Attribute> atts = Arrays.asList(temp, Attribute.TIMESTAMP);
+        Map<String, Object> period = Collections.singletonMap("period", 10);
+        for (TaskOptions opts : options) {
+            FakeOperation op = new FakeOperation(atts);
+            SamplePipeline p = new SamplePipeline(atts, atts);
+            LatchingTaskHandler h = new LatchingTaskHandler(Integer.MAX_VALUE);
+            PeriodicTask t = (PeriodicTask) op.schedule(period, h, p, opts);
+            t.start();
+
+            t.newSample(new Object[]{1f, Instant.ofEpochMilli(100)});
+            t.newSample(new Object[]{3f, Instant.ofEpochMilli(200)});
+            // The window has not ended yet, its aggregate is delivered on stop
+            t.stop();
+            h.awaitCompletion();
+            List<Sample> out = h.getSamples();
+            assertThat(out.size(), equalTo(1));
+            assertThat(out.get(0).getValue("avg_temperature"), equalTo(2f));
+            assertThat(out.get(0).getValue("timestamp"),
+                    equalTo(Instant.ofEpochMilli(1000)));
+        }
+    }
+
+    @Test
+    public void testConcurrentDeadband() throws Exception {
+        Attribute temp = Attribute.create("temperature", DataType.FLOAT);
+        List<Attribute> atts = Collections.singletonList(temp);
+        TaskOptions opts = TaskOptions.newBuilder()
+                .deadband(Deadband.newBuilder()
+                        .absolute("temperature", 1).build())
+                .queue(1000, OverloadPolicy.BLOCK).build();
+        FakeOperation op = new FakeOperation(atts);
+        LatchingTaskHandler h = new LatchingTaskHandler(Integer.MAX_VALUE);
+        PeriodicTask t = (PeriodicTask) op.schedule(
+                Collections.singletonMap("period", 10), h,
+                new SamplePipeline(atts, atts), opts);
+        t.start();
+
+        // In every round all producers report the same value, which must
+        // only be delivered once
+        int rounds = 200;
+        int producers = 4;
+        CyclicBarrier barrier = new CyclicBarrier(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            Thread th = new Thread(() -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        barrier.await();
+                        t.processSample(new Object[]{r * 10f});
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            th.start();
+            threads.add(th);
+        }
+        for (Thread th : threads) {
+            th.join();
+        }
+
+        t.stop();
+        h.awaitCompletion();
+        assertThat(h.getSamples().size(), equalTo(rounds));
+    }
+
+    @Test
+    public void testBlockingQueues() throws InterruptedException {
+        // More blocking producers than callback threads: timers and queue
+        // drains must not wait for each other in the same pool
+        int n = Dispatcher.DEFAULT_THREADS * 2;
+        TaskOptions opts = TaskOptions.newBuilder()
+                .queue(1, OverloadPolicy.BLOCK).build();
+        Map<String, Object> period = Collections.singletonMap("period", 1);
+        List<TimerOperation> ops = new ArrayList<>();
+        List<SlowHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            TimerOperation op = new TimerOperation();
+            SlowHandler h = new SlowHandler(10);
+            op.schedule(period, h, EMPTY_PIPELINE, opts).start();
+            ops.add(op);
+            handlers.add(h);
+        }
+
+        try {
+            for (SlowHandler h : handlers) {
+                assertThat(h.latch.await(5, TimeUnit.SECONDS), equalTo(true));
+            }
+        } finally {
+            ops.forEach(o -> o.stop(op -> { }));
+        }
+    }
+
+    @Test
+    public void testChainedNotification() throws Exception {
+        // A single callback thread, which must not be parked waiting for
+        // the delivery in progress
+        Dispatcher callbacks = new Dispatcher(1, "Chained_");
+        FakeOperation op = new FakeOperation();
+        op.setCallbackExecutor(callbacks);
+
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch complete = new CountDownLatch(1);
+        TaskHandler h = new TaskHandler() {
+            @Override
+            public void complete(Task task) {
+                events.add("complete");
+                complete.countDown();
+            }
+
+            @Override
+            public void data(Task task, Sample result) {
+                events.add("data");
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void error(Task task, Throwable cause) {
+                events.add("error");
+            }
+        };
+        PeriodicTask t = (PeriodicTask) op.schedule(
+                Collections.singletonMap("period", 10), h, EMPTY_PIPELINE,
+                TaskOptions.DEFAULT);
+        t.start();
+
+        Thread producer = new Thread(() -> t.processSample(EMPTY_SAMPLE));
+        producer.start();
+        assertThat(delivering.await(1, TimeUnit.SECONDS), equalTo(true));
+        t.stop();
+
+        CountDownLatch probe = new CountDownLatch(1);
+        callbacks.execute(probe::countDown);
+        try {
+            assertThat(probe.await(1, TimeUnit.SECONDS), equalTo(true));
+            assertThat(events, contains("data"));
+        } finally {
+            release.countDown();
+        }
+
+        producer.join();
+        assertThat(complete.await(1, TimeUnit.SECONDS), equalTo(true));
+        assertThat(events, contains("data", "complete"));
+        callbacks.shutdown();
+    }
+
     private static class FakeOperation extends PeriodicOperation {
 
         private FakeOperation() {
-            super("fake", Collections.emptyList());
+            this(Collections.emptyList());
+        }
+
+        private FakeOperation(List<Attribute> atts) {
+            super("fake", atts);
         }
 
         @Override
         protected void setSamplingPeriod(long period) {
+            currentPeriod = period;
+        }
+
+        @Override
+        protected void doStop(Consumer<Operation> handler) {
+
+        }
+
+    }
+
+    /**
+     * Distributes samples directly from the timer thread pool
+     */
+    private static class TimerOperation extends PeriodicOperation {
 
+        private Timeout timer = null;
+
+        private TimerOperation() {
+            super("timer", Collections.emptyList());
+        }
+
+        @Override
+        protected void setSamplingPeriod(long period) {
+            if (timer != null) {
+                timer.cancel();
+            }
+            currentPeriod = period;
+            if (period == 0) {
+                return;
+            }
+            forEachTask(t -> t.setInputPeriod(period));
+            timer = TimerWheel.getDefault().scheduleAtFixedRate(
+                    () -> distribute(EMPTY_SAMPLE, System.nanoTime()),
+                    0, period, TimeUnit.MILLISECONDS);
         }
 
         @Override
         protected void doStop(Consumer<Operation> handler) {
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+
+    }
+
+    private static class SlowHandler implements TaskHandler {
 
+        private final CountDownLatch latch;
+
+        private SlowHandler(int samples) {
+            latch = new CountDownLatch(samples);
         }
 
+        @Override
+        public void complete(Task task) { }
+
+        @Override
+        public void data(Task task, Sample result) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public void error(Task task, Throwable cause) { }
+
     }
 
     private class CountingHandler implements TaskHandler {
@@ -0,0 +1,122 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Filter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PlanCacheTest {
+
+    private static final Attribute temp =
+            Attribute.create("temperature", DataType.FLOAT);
+    private static final Attribute hum =
+            Attribute.create("humidity", DataType.INTEGER);
+
+    @Test
+    public void testHit() {
+        PlanCache c = new PlanCache(8);
+        Resolver r = new Resolver();
+
+        PlanCache.Plan p1 = c.get(Arrays.asList(temp, hum), false,
+                PlanCache.Mode.GET, r);
+        PlanCache.Plan p2 = c.get(Arrays.asList(temp, hum), false,
+                PlanCache.Mode.GET, r);
+        assertThat(p2, sameInstance(p1));
+        assertThat(r.count.get(), equalTo(1));
+        assertThat(c.getHits(), equalTo(1L));
+        assertThat(c.getMisses(), equalTo(1L));
+
+        // Attribute order, scheduling policy and mode are part of the key
+        c.get(Arrays.asList(hum, temp), false, PlanCache.Mode.GET, r);
+        c.get(Arrays.asList(temp, hum), true, PlanCache.Mode.GET, r);
+        c.get(Arrays.asList(temp, hum), false, PlanCache.Mode.PERIODIC, r);
+        assertThat(r.count.get(), equalTo(4));
+        assertThat(c.size(), equalTo(4));
+
+        c.clear();
+        assertThat(c.size(), equalTo(0));
+        c.get(Arrays.asList(temp, hum), false, PlanCache.Mode.GET, r);
+        assertThat(r.count.get(), equalTo(5));
+    }
+
+    @Test
+    public void testRequestCopy() {
+        PlanCache c = new PlanCache(8);
+        Resolver r = new Resolver();
+
+        List<Attribute> atts = new ArrayList<>(Arrays.asList(temp));
+        PlanCache.Plan p = c.get(atts, false, PlanCache.Mode.GET, r);
+        // Changes to the user list must not affect the cached plan
+        atts.add(hum);
+        assertThat(p.request.getRequest(), contains(temp));
+        assertThat(c.get(Collections.singletonList(temp), false,
+                PlanCache.Mode.GET, r), sameInstance(p));
+    }
+
+    @Test
+    public void testEviction() {
+        PlanCache c = new PlanCache(2);
+        Resolver r = new Resolver();
+
+        c.get(Arrays.asList(temp), false, PlanCache.Mode.GET, r);
+        c.get(Arrays.asList(hum), false, PlanCache.Mode.GET, r);
+        // Access temp, hum becomes the least recently used plan
+        c.get(Arrays.asList(temp), false, PlanCache.Mode.GET, r);
+        c.get(Arrays.asList(temp, hum), false, PlanCache.Mode.GET, r);
+        assertThat(c.size(), equalTo(2));
+        assertThat(r.count.get(), equalTo(3));
+
+        c.get(Arrays.asList(temp), false, PlanCache.Mode.GET, r);
+        assertThat(r.count.get(), equalTo(3));
+        c.get(Arrays.asList(hum), false, PlanCache.Mode.GET, r);
+        assertThat(r.count.get(), equalTo(4));
+    }
+
+    @Test
+    public void testCachedAnswer() {
+        PlanCache c = new PlanCache(8);
+        PlanCache.Plan p = c.get(Arrays.asList(temp, hum), false,
+                PlanCache.Mode.GET, new Resolver());
+
+        SamplePipeline pipe = p.getCachedPipeline();
+        assertThat(p.getCachedPipeline(), sameInstance(pipe));
+
+        // The same Filter object is compiled only once
+        Filter f = Filter.gt("temperature", 20);
+        Predicate<Object[]> pred = p.compileCached(f);
+        assertThat(p.compileCached(f), sameInstance(pred));
+        assertThat(pred.test(new Object[]{25f, 10}), equalTo(true));
+        assertThat(pred.test(new Object[]{15f, 10}), equalTo(false));
+
+        Filter g = Filter.lt("humidity", 50);
+        assertThat(p.compileCached(g), not(sameInstance(pred)));
+        assertThat(p.compileCached(g).test(new Object[]{25f, 10}),
+                equalTo(true));
+    }
+
+    private static final class Resolver
+            implements Function<List<Attribute>, PlanCache.Plan> {
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public PlanCache.Plan apply(List<Attribute> atts) {
+            count.incrementAndGet();
+            return new PlanCache.Plan(
+                    new Request(atts, Collections.emptyMap()), null, null);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RateAdapterTest {
+
+    private static final Attribute temp =
+            Attribute.create("temperature", DataType.FLOAT);
+    private static final Attribute room =
+            Attribute.create("room", DataType.STRING);
+
+    private static final List<Attribute> atts = Arrays.asList(temp, room);
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testFlatSignal() {
+        RateAdapter a = new RateAdapter(100, 1000, 0.5, atts, atts);
+        assertThat(a.getPeriod(), equalTo(100L));
+
+        long t = 0;
+        for (int i = 0; i < 50; i++) {
+            a.update(new Object[]{ 20f, "a" }, t);
+            t += a.getPeriod() * MS;
+            assertThat(a.getPeriod(), lessThanOrEqualTo(1000L));
+        }
+        // The period never exceeds the maximum requested by the user
+        assertThat(a.getPeriod(), equalTo(1000L));
+
+        // Unpredictable values bring the period back to the minimum
+        assertTrue(a.update(new Object[]{ 30f, "a" }, t));
+        assertThat(a.getPeriod(), equalTo(100L));
+    }
+
+    @Test
+    public void testLinearSignal() {
+        RateAdapter a = new RateAdapter(100, 800, 0.1, atts, atts);
+
+        // Values increasing linearly are predicted by extrapolation
+        long t = 0;
+        for (int i = 0; i < 50; i++) {
+            a.update(new Object[]{ t / (float) MS / 100, "a" }, t);
+            t += a.getPeriod() * MS;
+        }
+        assertThat(a.getPeriod(), equalTo(800L));
+    }
+
+    @Test
+    public void testNoisySignal() {
+        RateAdapter a = new RateAdapter(100, 800, 0.1, atts, atts);
+
+        long t = 0;
+        for (int i = 0; i < 50; i++) {
+            a.update(new Object[]{ i % 2 == 0 ? 20f : 21f, "a" }, t);
+            t += a.getPeriod() * MS;
+            assertThat(a.getPeriod(), equalTo(100L));
+        }
+    }
+
+    @Test
+    public void testPeriodicOperation() {
+        FakePeriodicOperation op = new FakePeriodicOperation();
+        SamplePipeline p = new SamplePipeline(atts, atts);
+        PeriodicTask task = (PeriodicTask) op.schedule(
+                Collections.singletonMap("period", 100),
+                new LatchingTaskHandler(0), p);
+        task.setAdaptive(400, 0.5);
+        task.start();
+        assertThat(op.getSamplingPeriod(), equalTo(100L));
+
+        long t = 0;
+        for (int i = 0; i < 20; i++) {
+            op.distribute(new Object[]{ 20f, "a" }, t);
+            t += op.getSamplingPeriod() * MS;
+        }
+        // The operation follows the period of the adaptive task
+        assertThat(task.getPeriod(), equalTo(400L));
+        assertThat(op.getSamplingPeriod(), equalTo(400L));
+
+        op.distribute(new Object[]{ 30f, "a" }, t);
+        assertThat(task.getPeriod(), equalTo(100L));
+        assertThat(op.getSamplingPeriod(), equalTo(100L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new RateAdapter(100, 50, 0.5, atts, atts);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoNumericAttribute() {
+        new RateAdapter(100, 1000, 0.5, atts,
+                Collections.singletonList(room));
+    }
+
+    private static final class FakePeriodicOperation
+            extends PeriodicOperation {
+
+        private FakePeriodicOperation() {
+            super("fake", atts);
+        }
+
+        @Override
+        protected void setSamplingPeriod(long period) {
+            currentPeriod = period;
+            forEachTask(t -> t.setInputPeriod(period));
+        }
+
+        @Override
+        protected void doStop(Consumer<Operation> h) {
+            h.accept(this);
+        }
+
+    }
+
+}
@@ -422,4 +422,38 @@ public class SamplePipelineTest {
         assertThat(atts.get(5), equalTo(s1));
     }
 
+    @Test
+    public void testFusedStage() {
+        Attribute s1 = Attribute.create("source1", DataType.STRING);
+        Attribute s2 = Attribute.create("source2", DataType.STRING);
+        Attribute s3 = Attribute.create("source3", DataType.STRING);
+
+        List<Attribute> in = Arrays.asList(s1, s2);
+        List<Attribute> out = Arrays.asList(s2, s3, s1);
+        Map<Attribute, Object> statics = new HashMap<>();
+        statics.put(s3, "static3");
+
+        SamplePipeline p = new SamplePipeline(in, statics, out);
+        assertThat(p.getFusedStage(), notNullValue());
+
+        Object[] source = new Object[]{"source1", "source2"};
+        Object[] fused = p.getFusedStage().run(source);
+        Object[] interpreted = new Object[fused.length];
+        for (Modifier m : p.getModifiers()) {
+            m.process(source, interpreted);
+        }
+        assertThat(fused.length, equalTo(4));
+        for (int i = 0; i < 3; i++) {
+            assertThat(fused[i], equalTo(interpreted[i]));
+        }
+        assertTrue(fused[3] instanceof Instant);
+
+        // Pipelines with the same shape share the same generated class
+        statics.put(s3, "other");
+        SamplePipeline p2 = new SamplePipeline(in, statics, out);
+        assertThat(p2.getFusedStage().getClass(),
+                equalTo(p.getFusedStage().getClass()));
+        assertThat(p2.run(source).getValue("source3"), equalTo("other"));
+    }
+
 }
@@ -3,6 +3,7 @@ package org.dei.perla.core.fpc.base;
 import org.dei.perla.core.fpc.Attribute;
 import org.dei.perla.core.fpc.DataType;
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
 import org.junit.Test;
 
 import java.util.*;
@@ -137,6 +138,13 @@ public class SchedulerTest {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public BaseTask schedule(Map<String, Object> parameterMap, TaskHandler handler,
+                SamplePipeline pipeline, TaskOptions opts)
+                throws IllegalArgumentException, IllegalStateException {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public boolean isSchedulable() {
             return false;
@@ -0,0 +1,139 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.engine.BasicInstruction;
+import org.dei.perla.core.engine.EmitInstruction;
+import org.dei.perla.core.engine.Runner;
+import org.dei.perla.core.engine.Script;
+import org.dei.perla.core.engine.ScriptBuilder;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.Task;
+import org.dei.perla.core.fpc.TaskHandler;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class SimulatedPeriodicOperationTest {
+
+    private static final long RUN_DURATION = 30;
+    private static final long PERIOD = 5;
+
+    @Test
+    public void testUnbounded() throws Exception {
+        assertThat(OverrunPolicy.getDefault(),
+                equalTo(OverrunPolicy.UNBOUNDED));
+
+        SlowInstruction in = new SlowInstruction();
+        SimulatedPeriodicOperation op = run(in, OverrunPolicy.getDefault());
+
+        // Executions overlap, no tick is lost
+        assertThat(in.maxConcurrent.get(), greaterThan(1));
+        assertThat(op.getOverrunCount(), equalTo(0l));
+        assertThat(op.getSkippedCount(), equalTo(0l));
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        SlowInstruction in = new SlowInstruction();
+        SimulatedPeriodicOperation op = run(in, OverrunPolicy.SKIP);
+
+        assertThat(in.maxConcurrent.get(), equalTo(1));
+        assertThat(op.getOverrunCount(), greaterThan(0l));
+        assertThat(op.getSkippedCount(), equalTo(op.getOverrunCount()));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        SlowInstruction in = new SlowInstruction();
+        SimulatedPeriodicOperation op = run(in, OverrunPolicy.COALESCE);
+
+        assertThat(in.maxConcurrent.get(), equalTo(1));
+        assertThat(op.getOverrunCount(), greaterThan(0l));
+        assertThat(op.getSkippedCount(), lessThan(op.getOverrunCount()));
+    }
+
+    @Test
+    public void testInstrumentation() throws Exception {
+        SlowInstruction in = new SlowInstruction();
+        SimulatedPeriodicOperation op = run(in, OverrunPolicy.SKIP);
+
+        assertThat(op.getSchedulerLagHistogram().getCount(), greaterThan(0L));
+        assertThat(op.getSchedulerLagHistogram().getMax(),
+                lessThan(PERIOD * 1_000_000));
+        // Executions last longer than the period, the interval between
+        // consecutive samples is at least as long as an execution
+        assertThat(op.getPeriodHistogram().getCount(), greaterThan(0L));
+        assertThat(op.getPeriodHistogram().getValueAtPercentile(50),
+                greaterThanOrEqualTo(RUN_DURATION * 1_000_000));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        SlowInstruction in = new SlowInstruction();
+        SimulatedPeriodicOperation op = run(in, OverrunPolicy.concurrent(3));
+
+        assertThat(in.maxConcurrent.get(), greaterThan(1));
+        assertThat(in.maxConcurrent.get(), lessThanOrEqualTo(3));
+        assertThat(op.getOverrunCount(), greaterThan(0l));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidConcurrency() {
+        OverrunPolicy.concurrent(0);
+    }
+
+    private SimulatedPeriodicOperation run(SlowInstruction in,
+            OverrunPolicy policy) throws Exception {
+        Script script = ScriptBuilder.newScript().add(in)
+                .add(new EmitInstruction()).buildScript("slow");
+        SimulatedPeriodicOperation op =
+                new SimulatedPeriodicOperation("slow", script);
+        op.setOverrunPolicy(policy);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("period", PERIOD);
+        BaseTask task = op.schedule(params, new NoopHandler());
+        task.start();
+        Thread.sleep(RUN_DURATION * 10);
+        task.stop();
+        return op;
+    }
+
+    private static final class SlowInstruction extends BasicInstruction {
+
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger maxConcurrent = new AtomicInteger(0);
+
+        @Override
+        protected void runBasic(Runner runner) {
+            int r = running.incrementAndGet();
+            maxConcurrent.accumulateAndGet(r, Math::max);
+            try {
+                Thread.sleep(RUN_DURATION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+    }
+
+    private static final class NoopHandler implements TaskHandler {
+
+        @Override
+        public void complete(Task task) { }
+
+        @Override
+        public void data(Task task, Sample sample) { }
+
+        @Override
+        public void error(Task task, Throwable cause) { }
+
+    }
+
+}
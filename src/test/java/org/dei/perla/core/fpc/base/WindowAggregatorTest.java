@@ -0,0 +1,167 @@
+package org.dei.perla.core.fpc.base;
+
+import org.dei.perla.core.fpc.Aggregate;
+import org.dei.perla.core.fpc.Attribute;
+import org.dei.perla.core.fpc.DataType;
+import org.dei.perla.core.fpc.Sample;
+import org.dei.perla.core.fpc.Window;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class WindowAggregatorTest {
+
+    private static final Attribute temp =
+            Attribute.create("temperature", DataType.FLOAT);
+    private static final Attribute count =
+            Attribute.create("count", DataType.INTEGER);
+    private static final Attribute label =
+            Attribute.create("label", DataType.STRING);
+
+    private static final List<Attribute> atts =
+            Arrays.asList(temp, count, label, Attribute.TIMESTAMP);
+
+    @Test
+    public void testTumbling() {
+        Window w = Window.newBuilder(1000)
+                .aggregate(Aggregate.AVG, "temperature")
+                .aggregate(Aggregate.MIN, "count")
+                .aggregate(Aggregate.MAX, "count")
+                .aggregate(Aggregate.COUNT, "label")
+                .aggregate(Aggregate.LAST, "temperature")
+                .build();
+        WindowAggregator wa = new WindowAggregator(w, atts);
+        assertThat(wa.getAttributes().get(0).getId(),
+                equalTo("avg_temperature"));
+        assertThat(wa.getAttributes().get(1).getType(),
+                equalTo(DataType.INTEGER));
+
+        List<Sample> out = new ArrayList<>();
+        wa.add(row(1f, 5, "a", 0), out::add);
+        wa.add(row(2f, 3, null, 400), out::add);
+        wa.add(row(6f, 9, "c", 999), out::add);
+        assertThat(out.size(), equalTo(0));
+
+        // Closes the first window, skips the empty second one
+        wa.add(row(10f, 1, "d", 2500), out::add);
+        assertThat(out.size(), equalTo(1));
+        Sample s = out.get(0);
+        assertThat(s.getValue("avg_temperature"), equalTo(3f));
+        assertThat(s.getValue("min_count"), equalTo(3));
+        assertThat(s.getValue("max_count"), equalTo(9));
+        assertThat(s.getValue("count_label"), equalTo(2));
+        assertThat(s.getValue("last_temperature"), equalTo(6f));
+        assertThat(s.getValue("timestamp"),
+                equalTo(Instant.ofEpochMilli(1000)));
+
+        wa.add(row(null, 1, "e", 3000), out::add);
+        assertThat(out.size(), equalTo(2));
+        s = out.get(1);
+        assertThat(s.getValue("avg_temperature"), equalTo(10f));
+        assertThat(s.getValue("timestamp"),
+                equalTo(Instant.ofEpochMilli(3000)));
+    }
+
+    @Test
+    public void testSliding() {
+        Window w = Window.newBuilder(300).slide(100)
+                .aggregate(Aggregate.SUM, "count")
+                .aggregate(Aggregate.AVG, "temperature")
+                .build();
+        WindowAggregator wa = new WindowAggregator(w, atts);
+
+        List<Sample> out = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            wa.add(row(null, i + 1, null, i * 100), out::add);
+        }
+        // Windows ending at 100, 200, 300 and 400
+        assertThat(out.size(), equalTo(4));
+        assertThat(out.get(0).getValue("sum_count"), equalTo(1f));
+        assertThat(out.get(1).getValue("sum_count"), equalTo(3f));
+        assertThat(out.get(2).getValue("sum_count"), equalTo(6f));
+        assertThat(out.get(3).getValue("sum_count"), equalTo(9f));
+        assertThat(out.get(3).getValue("avg_temperature"), nullValue());
+
+        // Long gap, only the windows still containing data are produced
+        wa.add(row(null, 1, null, 10_000), out::add);
+        assertThat(out.size(), equalTo(7));
+        assertThat(out.get(4).getValue("sum_count"), equalTo(12f));
+        assertThat(out.get(5).getValue("sum_count"), equalTo(9f));
+        assertThat(out.get(6).getValue("sum_count"), equalTo(5f));
+    }
+
+    @Test
+    public void testSampleDriven() throws InterruptedException {
+        Window w = Window.newBuilder(10)
+                .aggregate(Aggregate.SUM, "count")
+                .build();
+        WindowAggregator wa = new WindowAggregator(w, atts);
+
+        // Windows are closed by new samples, not by the passing of time
+        List<Sample> out = new ArrayList<>();
+        wa.add(row(null, 1, null, 0), out::add);
+        Thread.sleep(50);
+        assertThat(out.size(), equalTo(0));
+
+        wa.add(row(null, 2, null, 10), out::add);
+        assertThat(out.size(), equalTo(1));
+        assertThat(out.get(0).getValue("sum_count"), equalTo(1f));
+    }
+
+    @Test
+    public void testClose() {
+        Window w = Window.newBuilder(300).slide(100)
+                .aggregate(Aggregate.SUM, "count")
+                .build();
+        WindowAggregator wa = new WindowAggregator(w, atts);
+
+        List<Sample> out = new ArrayList<>();
+        wa.add(row(null, 1, null, 0), out::add);
+        wa.add(row(null, 2, null, 150), out::add);
+        assertThat(out.size(), equalTo(1));
+
+        // The partial window is delivered when the aggregator is closed
+        wa.close(out::add);
+        assertThat(out.size(), equalTo(2));
+        assertThat(out.get(1).getValue("sum_count"), equalTo(3f));
+        assertThat(out.get(1).getValue("timestamp"),
+                equalTo(Instant.ofEpochMilli(200)));
+
+        // Samples received after close are ignored
+        wa.add(row(null, 4, null, 500), out::add);
+        wa.close(out::add);
+        assertThat(out.size(), equalTo(2));
+    }
+
+    @Test
+    public void testCloseEmpty() {
+        Window w = Window.newBuilder(100)
+                .aggregate(Aggregate.COUNT, "label")
+                .build();
+        WindowAggregator wa = new WindowAggregator(w, atts);
+
+        List<Sample> out = new ArrayList<>();
+        wa.close(out::add);
+        assertThat(out.size(), equalTo(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonNumeric() {
+        Window w = Window.newBuilder(1000)
+                .aggregate(Aggregate.AVG, "label")
+                .build();
+        new WindowAggregator(w, atts);
+    }
+
+    private static Object[] row(Float t, Integer c, String l, long ms) {
+        return new Object[]{t, c, l, Instant.ofEpochMilli(ms)};
+    }
+
+}
@@ -3,6 +3,7 @@ package org.dei.perla.core.registry;
 import org.dei.perla.core.fpc.Fpc;
 import org.dei.perla.core.fpc.Task;
 import org.dei.perla.core.fpc.TaskHandler;
+import org.dei.perla.core.fpc.TaskOptions;
 import org.dei.perla.core.fpc.Attribute;
 
 import java.util.ArrayList;
@@ -44,19 +45,19 @@ public class FakeFpc implements Fpc {
 
 	@Override
 	public Task get(List<Attribute> attributes, boolean strict,
-			TaskHandler handler) {
+			TaskOptions opts, TaskHandler handler) {
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
 	public Task get(List<Attribute> attributes, boolean strict, long periodMs,
-			TaskHandler handler) {
+			TaskOptions opts, TaskHandler handler) {
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
 	public Task async(List<Attribute> attributes, boolean strict,
-			TaskHandler handler) {
+			TaskOptions opts, TaskHandler handler) {
 		throw new UnsupportedOperationException();
 	}
 
@@ -0,0 +1,143 @@
+package org.dei.perla.core.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DispatcherTest {
+
+    @Test
+    public void testBounded() throws InterruptedException {
+        Dispatcher d = new Dispatcher(2, "test_");
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(20);
+        try {
+            for (int i = 0; i < 20; i++) {
+                d.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(),
+                            Math::max);
+                    sleep(5);
+                    running.decrementAndGet();
+                    latch.countDown();
+                });
+            }
+            // Callbacks exceeding the pool capacity are queued
+            assertThat(d.getQueueDepth(), greaterThan(0));
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } finally {
+            d.shutdown();
+        }
+        assertThat(maxRunning.get(), equalTo(2));
+        assertThat(d.getMaxQueueDepth(), greaterThanOrEqualTo(18));
+    }
+
+    @Test
+    public void testStatistics() throws InterruptedException {
+        Dispatcher d = new Dispatcher(1, "test_");
+        CountDownLatch latch = new CountDownLatch(10);
+        try {
+            for (int i = 0; i < 10; i++) {
+                d.execute(() -> {
+                    sleep(2);
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } finally {
+            d.shutdown();
+        }
+        assertThat(d.getQueueDepth(), equalTo(0));
+        assertThat(d.getLatencyHistogram().getCount(), equalTo(10L));
+        // The last callback waited for the execution of all the others
+        assertThat(d.getLatencyHistogram().getMax(),
+                greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2 * 9)));
+        assertThat(d.getRunTimeHistogram().getMin(),
+                greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2)));
+
+        d.resetStatistics();
+        assertThat(d.getLatencyHistogram().getCount(), equalTo(0L));
+        assertThat(d.getMaxQueueDepth(), equalTo(0));
+    }
+
+    @Test
+    public void testSequence() throws InterruptedException {
+        Dispatcher d = new Dispatcher(4, "test_");
+        Executor seq = d.newSequence();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(50);
+        try {
+            for (int i = 0; i < 50; i++) {
+                int n = i;
+                seq.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(),
+                            Math::max);
+                    order.add(n);
+                    running.decrementAndGet();
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } finally {
+            d.shutdown();
+        }
+        assertThat(maxRunning.get(), equalTo(1));
+        for (int i = 0; i < 50; i++) {
+            assertThat(order.get(i), equalTo(i));
+        }
+    }
+
+    @Test
+    public void testCallbackError() throws InterruptedException {
+        Dispatcher d = new Dispatcher(1, "test_");
+        Executor seq = d.newSequence();
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            seq.execute(() -> {
+                throw new RuntimeException("test");
+            });
+            // Errors do not stop the sequence
+            seq.execute(latch::countDown);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() {
+        Dispatcher d = new Dispatcher(1, "test_");
+        d.shutdown();
+        try {
+            d.execute(() -> { });
+        } finally {
+            assertThat(d.getQueueDepth(), equalTo(0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads() {
+        new Dispatcher(0, "test_");
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
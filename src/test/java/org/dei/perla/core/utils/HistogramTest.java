@@ -0,0 +1,75 @@
+package org.dei.perla.core.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram h = new Histogram();
+        assertThat(h.getCount(), equalTo(0L));
+        assertThat(h.getMin(), equalTo(0L));
+        assertThat(h.getMax(), equalTo(0L));
+        assertThat(h.getMean(), equalTo(0d));
+        assertThat(h.getValueAtPercentile(99), equalTo(0L));
+    }
+
+    @Test
+    public void testSmallValues() {
+        Histogram h = new Histogram();
+        for (int i = 1; i <= 50; i++) {
+            h.record(i);
+        }
+        // Values below 64 are recorded exactly
+        assertThat(h.getCount(), equalTo(50L));
+        assertThat(h.getMin(), equalTo(1L));
+        assertThat(h.getMax(), equalTo(50L));
+        assertThat(h.getMean(), equalTo(25.5d));
+        assertThat(h.getValueAtPercentile(50), equalTo(25L));
+        assertThat(h.getValueAtPercentile(100), equalTo(50L));
+    }
+
+    @Test
+    public void testPrecision() {
+        Histogram h = new Histogram();
+        for (long i = 1; i <= 100_000; i++) {
+            h.record(i * 1000);
+        }
+        long[] ps = { 10, 50, 90, 99 };
+        for (long p : ps) {
+            double exact = p * 1000 * 1000;
+            double v = h.getValueAtPercentile(p);
+            assertThat(v, greaterThanOrEqualTo(exact));
+            assertThat(v, lessThanOrEqualTo(exact * 1.035));
+        }
+        assertThat(h.getValueAtPercentile(100), equalTo(100_000_000L));
+    }
+
+    @Test
+    public void testLargeValues() {
+        Histogram h = new Histogram();
+        h.record(Long.MAX_VALUE);
+        h.record(-5);
+        assertThat(h.getMin(), equalTo(0L));
+        assertThat(h.getValueAtPercentile(50), equalTo(0L));
+        assertThat(h.getValueAtPercentile(100), equalTo(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testReset() {
+        Histogram h = new Histogram();
+        h.record(1000);
+        h.reset();
+        assertThat(h.getCount(), equalTo(0L));
+        assertThat(h.getValueAtPercentile(50), equalTo(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new Histogram().getValueAtPercentile(101);
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.dei.perla.core.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PhasePolicyTest {
+
+    @Test
+    public void testNone() {
+        assertThat(PhasePolicy.NONE.initialDelay(1000, 1000), equalTo(1000L));
+        assertThat(PhasePolicy.NONE.initialDelay(1000, 0), equalTo(0L));
+    }
+
+    @Test
+    public void testAligned() {
+        PhasePolicy p = PhasePolicy.aligned();
+        for (int i = 0; i < 100; i++) {
+            long before = System.currentTimeMillis();
+            long delay = p.initialDelay(1000, 1000);
+            long after = System.currentTimeMillis();
+            assertTrue(delay > 0 && delay <= 1000);
+            // The first execution falls on a period boundary
+            long first = (before + delay) % 1000;
+            assertTrue(first == 0 || first >= 1000 - (after - before));
+        }
+    }
+
+    @Test
+    public void testJitter() {
+        PhasePolicy p = PhasePolicy.aligned(10_000);
+        for (int i = 0; i < 100; i++) {
+            // Jitter never exceeds the period
+            long delay = p.initialDelay(100, 100);
+            assertTrue(delay > 0 && delay < 200);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.dei.perla.core.utils;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSourceTest {
+
+    @Test
+    public void testConversion() {
+        Instant i = Instant.ofEpochSecond(1432000000, 123456789);
+        long nanos = TimeSource.toEpochNanos(i);
+        assertThat(nanos, equalTo(1432000000123456789L));
+        assertThat(TimeSource.fromEpochNanos(nanos), equalTo(i));
+
+        Instant before = Instant.ofEpochSecond(-1, 500);
+        assertThat(TimeSource.fromEpochNanos(
+                TimeSource.toEpochNanos(before)), equalTo(before));
+    }
+
+    @Test
+    public void testSystem() {
+        TimeSource ts = TimeSource.system();
+        long before = TimeSource.toEpochNanos(Instant.now());
+        long nanos = ts.nanos();
+        long after = TimeSource.toEpochNanos(Instant.now());
+        // Tolerance accounts for the resolution of the system clock
+        long tolerance = TimeUnit.MILLISECONDS.toNanos(20);
+        assertTrue(nanos >= before - tolerance);
+        assertTrue(nanos <= after + tolerance);
+        assertTrue(ts.nanos() >= nanos);
+    }
+
+    @Test
+    public void testCoarse() throws InterruptedException {
+        // No tick is expected to occur during the test
+        TimeSource slow = TimeSource.coarse(1, TimeUnit.HOURS);
+        try {
+            Instant first = slow.now();
+            assertThat(slow.now(), sameInstance(first));
+            assertThat(slow.nanos(), equalTo(TimeSource.toEpochNanos(first)));
+        } finally {
+            slow.stop();
+        }
+
+        TimeSource fast = TimeSource.coarse(10, TimeUnit.MILLISECONDS);
+        try {
+            Instant first = fast.now();
+            Thread.sleep(100);
+            assertTrue(fast.now().isAfter(first));
+        } finally {
+            fast.stop();
+        }
+    }
+
+    @Test
+    public void testDefault() {
+        TimeSource ts = TimeSource.coarse(1, TimeUnit.SECONDS);
+        try {
+            TimeSource.setDefault(ts);
+            assertThat(TimeSource.getDefault(), sameInstance(ts));
+        } finally {
+            TimeSource.setDefault(TimeSource.system());
+            ts.stop();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.dei.perla.core.utils;
+
+import org.dei.perla.core.utils.TimerWheel.Timeout;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.dei.perla.core.utils.TimerWheel.DEFAULT_WHEEL_SIZE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+    @Test
+    public void testOneShot() throws InterruptedException {
+        TimerWheel w = new TimerWheel(1, TimeUnit.MILLISECONDS, 8,
+                Dispatcher.getDefault());
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            long start = System.nanoTime();
+            // Longer than a full wheel revolution
+            w.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            long elapsed = System.nanoTime() - start;
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(30));
+        } finally {
+            w.stop();
+        }
+    }
+
+    @Test
+    public void testPeriodicAndCancel() throws InterruptedException {
+        TimerWheel w = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        try {
+            AtomicInteger count = new AtomicInteger();
+            CountDownLatch latch = new CountDownLatch(5);
+            Timeout t = w.scheduleAtFixedRate(() -> {
+                count.incrementAndGet();
+                latch.countDown();
+            }, 0, 5, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+            t.cancel();
+            assertTrue(t.isCancelled());
+            Thread.sleep(20);
+            int c = count.get();
+            Thread.sleep(50);
+            assertThat(count.get(), equalTo(c));
+        } finally {
+            w.stop();
+        }
+    }
+
+    @Test
+    public void testNoOverlap() throws InterruptedException {
+        TimerWheel w = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger runs = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            Timeout t = w.scheduleAtFixedRate(() -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                runs.incrementAndGet();
+                running.decrementAndGet();
+            }, 0, 2, TimeUnit.MILLISECONDS);
+            Thread.sleep(100);
+            t.cancel();
+
+            assertThat(overlaps.get(), equalTo(0));
+            assertTrue(runs.get() > 1);
+        } finally {
+            w.stop();
+        }
+    }
+
+    @Test
+    public void testStalledWorker() throws InterruptedException {
+        // The first expiration stalls the timer thread for longer than the
+        // period, which is also shorter than a tick
+        AtomicBoolean stall = new AtomicBoolean(true);
+        Executor exec = r -> {
+            if (stall.getAndSet(false)) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            r.run();
+        };
+        TimerWheel w = new TimerWheel(10, TimeUnit.MILLISECONDS,
+                DEFAULT_WHEEL_SIZE, exec);
+        try {
+            CountDownLatch latch = new CountDownLatch(10);
+            w.scheduleAtFixedRate(latch::countDown, 0, 5,
+                    TimeUnit.MILLISECONDS);
+            // Late timeouts are rescheduled in the next tick, not after a
+            // full wheel revolution
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+        } finally {
+            w.stop();
+        }
+    }
+
+    @Test
+    public void testIdle() throws InterruptedException {
+        TimerWheel w = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        try {
+            // The timer thread does not wake up when no timeout is scheduled
+            Thread.sleep(50);
+            assertThat(w.getWakeups(), lessThanOrEqualTo(1L));
+
+            // Ticks preceding the nearest deadline are skipped
+            CountDownLatch latch = new CountDownLatch(1);
+            w.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertThat(w.getWakeups(), lessThanOrEqualTo(5L));
+        } finally {
+            w.stop();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStopped() {
+        TimerWheel w = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        w.stop();
+        w.schedule(() -> { }, 1, TimeUnit.MILLISECONDS);
+    }
+
+}